@@ -0,0 +1,122 @@
+package de.ppi.selenium.util;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the similarity-check of {@link ScreenshotUtils} with the former
+ * implementation, which created a {@link Color} per pixel.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScreenshotUtilsBenchmark {
+
+    /**
+     * Size of the screenshots.
+     */
+    @Param({"320x240", "1280x1024", "1920x1080" })
+    private String size;
+
+    /**
+     * Type of the screenshots, 1 is TYPE_INT_RGB, 5 is TYPE_3BYTE_BGR.
+     */
+    @Param({"1", "5" })
+    private int type;
+
+    /** The first screenshot. */
+    private BufferedImage first;
+
+    /** The second screenshot. */
+    private BufferedImage second;
+
+    /** A black screenshot. */
+    private BufferedImage black;
+
+    /**
+     * Creates the screenshots.
+     */
+    @Setup
+    public void createImages() {
+        final String[] dimension = size.split("x");
+        final int width = Integer.parseInt(dimension[0]);
+        final int height = Integer.parseInt(dimension[1]);
+        first = new BufferedImage(width, height, type);
+        second = new BufferedImage(width, height, type);
+        black = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                final int rgb = (x * 7 + y * 13) * 0x010305;
+                first.setRGB(x, y, rgb);
+                second.setRGB(x, y, (x + y) % 50 == 0 ? ~rgb : rgb);
+            }
+        }
+    }
+
+    /**
+     * The current implementation.
+     *
+     * @return the similarity.
+     */
+    @Benchmark
+    public double similarity() {
+        return ScreenshotUtils.similarity(first, second);
+    }
+
+    /**
+     * The former implementation.
+     *
+     * @return the similarity.
+     */
+    @Benchmark
+    public double similarityWithColor() {
+        final double[] varArr = new double[first.getWidth()
+                * first.getHeight() * 3];
+        final double[] contArr = new double[varArr.length];
+        for (int i = 0; i < first.getHeight(); i++) {
+            for (int j = 0; j < first.getWidth(); j++) {
+                final int pos = (i * first.getWidth() + j) * 3;
+                varArr[pos] = new Color(first.getRGB(j, i)).getRed();
+                contArr[pos] = new Color(second.getRGB(j, i)).getRed();
+                varArr[pos + 1] = new Color(first.getRGB(j, i)).getGreen();
+                contArr[pos + 1] = new Color(second.getRGB(j, i)).getGreen();
+                varArr[pos + 2] = new Color(first.getRGB(j, i)).getBlue();
+                contArr[pos + 2] = new Color(second.getRGB(j, i)).getBlue();
+            }
+        }
+        double numerator = 0;
+        double denominator = 0;
+        for (int i = 0; i < varArr.length; i++) {
+            numerator += Math.min(varArr[i], contArr[i]);
+            denominator += Math.max(varArr[i], contArr[i]);
+        }
+        return numerator / denominator;
+    }
+
+    /**
+     * The check for black screenshots, which has to scan the whole image.
+     *
+     * @return true if the image is black.
+     */
+    @Benchmark
+    public boolean isBlack() {
+        return ScreenshotUtils.isBlack(black);
+    }
+}
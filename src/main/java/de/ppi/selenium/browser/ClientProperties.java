@@ -17,12 +17,15 @@
 package de.ppi.selenium.browser;
 
 import java.io.File;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.PropertiesConfiguration;
@@ -39,8 +42,19 @@ public class ClientProperties {
     private static final Logger LOG = LoggerFactory
             .getLogger(ClientProperties.class);
 
+    /**
+     * Cache of the loaded properties per file.
+     */
+    private static final ConcurrentMap<String, ClientProperties> CACHE =
+            new ConcurrentHashMap<String, ClientProperties>();
+
     private URL client;
 
+    /**
+     * Modification time of the file after it was loaded, 0 if it's unknown.
+     */
+    private final long lastModified;
+
     private final PropertiesConfiguration config;
     private final PropertiesConfigurationLayout propertiesConfigurationLayout;
 
@@ -95,6 +109,51 @@ public class ClientProperties {
     private final String gridPlatform;
     private final String gridProperties;
 
+    /**
+     * Delivers the {@code ClientProperties} of the given file. The properties
+     * are loaded once and reloaded if the file has been modified.
+     *
+     * @param filePath the file to be loaded
+     * @return the properties.
+     */
+    public static ClientProperties getInstance(String filePath) {
+        if (filePath == null) {
+            return new ClientProperties(filePath);
+        }
+        final ClientProperties cached = CACHE.get(filePath);
+        if (cached != null
+                && cached.lastModified == getLastModified(cached.client)) {
+            return cached;
+        }
+        final ClientProperties properties = new ClientProperties(filePath);
+        CACHE.put(filePath, properties);
+        return properties;
+    }
+
+    /**
+     * Removes all properties from the cache, so they are loaded again.
+     */
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+    /**
+     * Delivers the modification time of the file.
+     *
+     * @param url the url of the file.
+     * @return the modification time or 0 if the url isn't a file.
+     */
+    private static long getLastModified(URL url) {
+        if (url == null || !"file".equals(url.getProtocol())) {
+            return 0;
+        }
+        try {
+            return new File(url.toURI()).lastModified();
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return 0;
+        }
+    }
+
     /**
      * Constructs a {@code ClientProperties} from the given file.
      *
@@ -334,6 +393,8 @@ public class ClientProperties {
         gridProperties =
                 load("grid.properties", "record-screenshots=true",
                         "Space separated Selenium Grid properties (e.g. 'record-screenshots=true')");
+        // Read after loading, because missing defaults are saved to the file.
+        lastModified = getLastModified(clientPath);
     }
 
     /**
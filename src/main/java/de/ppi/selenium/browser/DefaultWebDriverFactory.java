@@ -22,13 +22,16 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.URL;
 import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Handler;
@@ -78,17 +81,46 @@ public class DefaultWebDriverFactory implements WebDriverFactory {
      * from {@link ClientProperties}.
      */
     public static final String CLIENT_PROPERTIES_KEY = "client";
-    private static final long MILLISECONDS_IN_DAY = 86400000;
     private static final Object lock = new Object();
     private static final Log log = LogFactory
             .getLog(DefaultWebDriverFactory.class);
     private static boolean executedTaskKill = false;
 
+    /**
+     * Cache of the capabilities per options.
+     */
+    private static final ConcurrentMap<Map<String, String>,
+            CachedCapabilities> CAPABILITIES_CACHE =
+            new ConcurrentHashMap<Map<String, String>, CachedCapabilities>();
+
+    /**
+     * True if the firefox-profiles should be copied from a template.
+     */
+    private static final boolean USE_FIREFOX_PROFILE_TEMPLATE = Boolean
+            .parseBoolean(System.getProperty("webtest.firefoxProfileTemplate",
+                    "true"));
+
+    /**
+     * Directory of the firefox-profile templates. Its name doesn't match the
+     * folders which are deleted by the {@link TempFolderJanitor}, so templates
+     * which are in use aren't deleted.
+     */
+    private static final File FIREFOX_PROFILE_TEMPLATE_DIR = new File(
+            System.getProperty("java.io.tmpdir"), "webtest-profile-templates");
+
+    /**
+     * The firefox-profile templates per properties-file.
+     */
+    private static final Map<String, FirefoxProfileTemplate>
+            FIREFOX_PROFILE_TEMPLATES =
+            new HashMap<String, FirefoxProfileTemplate>();
+
     @Override
     public void cleanup(Map<String, String> options) throws Exception {
 
         ClientProperties properties =
-                new ClientProperties(options.get(CLIENT_PROPERTIES_KEY));
+                ClientProperties.getInstance(options
+                        .get(CLIENT_PROPERTIES_KEY));
         // TODO Improvement Is this really needed?
         if (!executedTaskKill) {
             synchronized (lock) {
@@ -231,13 +263,46 @@ public class DefaultWebDriverFactory implements WebDriverFactory {
         removeWebDriverTempOldFolders(properties);
     }
 
+    /**
+     * {@inheritDoc} The capabilities are cached per options and a copy is
+     * delivered. They are created again if the properties-file has been
+     * modified.
+     */
     @Override
     public DesiredCapabilities createCapabilities(Map<String, String> options)
             throws Exception {
+        final ClientProperties properties =
+                ClientProperties.getInstance(options
+                        .get(CLIENT_PROPERTIES_KEY));
+        final Map<String, String> key = new HashMap<String, String>(options);
+        CachedCapabilities cached = CAPABILITIES_CACHE.get(key);
+        if (cached == null || cached.properties != properties) {
+            cached =
+                    new CachedCapabilities(properties,
+                            buildCapabilities(properties));
+            CAPABILITIES_CACHE.put(key, cached);
+        }
+        return new DesiredCapabilities(cached.capabilities);
+    }
 
-        ClientProperties properties =
-                new ClientProperties(options.get(CLIENT_PROPERTIES_KEY));
+    /**
+     * Removes all cached capabilities and {@link ClientProperties}, so they
+     * are created again.
+     */
+    public static void clearCache() {
+        CAPABILITIES_CACHE.clear();
+        ClientProperties.clearCache();
+    }
 
+    /**
+     * Creates the capabilities from the properties.
+     *
+     * @param properties the properties.
+     * @return the capabilities.
+     * @throws Exception if the properties are invalid.
+     */
+    private DesiredCapabilities buildCapabilities(ClientProperties properties)
+            throws Exception {
         final String browser = properties.getBrowser();
 
         if (properties.isUseGrid()) {
@@ -403,7 +468,8 @@ public class DefaultWebDriverFactory implements WebDriverFactory {
     public WebDriver createWebDriver(Map<String, String> options,
             DesiredCapabilities capabilities) throws IOException {
         ClientProperties properties =
-                new ClientProperties(options.get(CLIENT_PROPERTIES_KEY));
+                ClientProperties.getInstance(options
+                        .get(CLIENT_PROPERTIES_KEY));
 
         WebDriver wd = null;
         DesiredCapabilities desiredCapabilities =
@@ -449,27 +515,11 @@ public class DefaultWebDriverFactory implements WebDriverFactory {
                 }
             } else if ((browser.equalsIgnoreCase("firefox") || browser
                     .equalsIgnoreCase("*firefox"))) {
-                final String ffProfileFolder =
-                        properties.getFirefoxProfileFolder();
-                final String ffProfileFile = properties.getFirefoxProfileFile();
                 final String path = properties.getFfBinaryPath();
-                final FirefoxProfile ffp;
-                if (ffProfileFolder != null) {
-                    ffp = new FirefoxProfile(new File(ffProfileFolder));
-                } else {
-                    ffp = new FirefoxProfile();
-                }
-
-                if (ffProfileFile != null) {
-                    addPreferences(ffp, ffProfileFile);
-                }
-
-                addPreferences(ffp, properties);
-
-                List<String> ffExtensions = properties.getFirefoxExtensions();
-                if (ffExtensions != null && ffExtensions.size() > 0) {
-                    addExtensionsToFirefoxProfile(ffp, ffExtensions);
-                }
+                final FirefoxProfile ffp =
+                        createFirefoxProfile(
+                                options.get(CLIENT_PROPERTIES_KEY),
+                                properties);
 
                 if (path != null) {
                     FirefoxBinary fireFox = getFFBinary(path);
@@ -582,6 +632,109 @@ public class DefaultWebDriverFactory implements WebDriverFactory {
         return ret;
     }
 
+    /**
+     * Creates the firefox-profile for a new session. The configured profile
+     * is written once to a template-directory per {@link ClientProperties},
+     * each session gets a copy of this directory. This could be disabled by
+     * the system-property <code>webtest.firefoxProfileTemplate=false</code>.
+     *
+     * @param propertiesFile the name of the properties-file.
+     * @param properties the properties.
+     * @return the profile.
+     * @throws IOException if the profile can't be created.
+     */
+    static FirefoxProfile createFirefoxProfile(String propertiesFile,
+            ClientProperties properties) throws IOException {
+        if (!USE_FIREFOX_PROFILE_TEMPLATE) {
+            return buildFirefoxProfile(properties);
+        }
+        return new FirefoxProfile(getFirefoxProfileTemplate(propertiesFile,
+                properties));
+    }
+
+    /**
+     * Delivers the template-directory of the properties. If the properties
+     * are reloaded, a new template is created. The old one isn't deleted
+     * before the JVM exits, because the {@link FirefoxProfile} copies it not
+     * until the browser starts.
+     *
+     * @param propertiesFile the name of the properties-file.
+     * @param properties the properties.
+     * @return the template-directory.
+     * @throws IOException if the template can't be created.
+     */
+    static File getFirefoxProfileTemplate(String propertiesFile,
+            ClientProperties properties) throws IOException {
+        synchronized (FIREFOX_PROFILE_TEMPLATES) {
+            FirefoxProfileTemplate template =
+                    FIREFOX_PROFILE_TEMPLATES.get(propertiesFile);
+            if (template == null || template.properties != properties
+                    || !template.directory.isDirectory()) {
+                template =
+                        new FirefoxProfileTemplate(properties,
+                                layoutTemplate(buildFirefoxProfile(properties)));
+                FIREFOX_PROFILE_TEMPLATES.put(propertiesFile, template);
+            }
+            return template.directory;
+        }
+    }
+
+    /**
+     * Writes the profile to a new directory in
+     * {@link #FIREFOX_PROFILE_TEMPLATE_DIR}, which is deleted when the JVM
+     * exits.
+     *
+     * @param profile the profile.
+     * @return the directory.
+     * @throws IOException if the profile can't be moved.
+     */
+    private static File layoutTemplate(FirefoxProfile profile)
+            throws IOException {
+        final File layout = profile.layoutOnDisk();
+        if (!FIREFOX_PROFILE_TEMPLATE_DIR.isDirectory()
+                && !FIREFOX_PROFILE_TEMPLATE_DIR.mkdirs()) {
+            throw new IOException(FIREFOX_PROFILE_TEMPLATE_DIR
+                    + " can't be created.");
+        }
+        final File template =
+                new File(FIREFOX_PROFILE_TEMPLATE_DIR, layout.getName());
+        Files.move(layout.toPath(), template.toPath());
+        FileUtils.forceDeleteOnExit(template);
+        return template;
+    }
+
+    /**
+     * Builds the firefox-profile with the preferences and extensions of the
+     * properties.
+     *
+     * @param properties the properties.
+     * @return the profile.
+     * @throws IOException if an extension can't be added.
+     */
+    private static FirefoxProfile buildFirefoxProfile(
+            ClientProperties properties) throws IOException {
+        final String ffProfileFolder = properties.getFirefoxProfileFolder();
+        final String ffProfileFile = properties.getFirefoxProfileFile();
+        final FirefoxProfile ffp;
+        if (ffProfileFolder != null) {
+            ffp = new FirefoxProfile(new File(ffProfileFolder));
+        } else {
+            ffp = new FirefoxProfile();
+        }
+
+        if (ffProfileFile != null) {
+            addPreferences(ffp, ffProfileFile);
+        }
+
+        addPreferences(ffp, properties);
+
+        List<String> ffExtensions = properties.getFirefoxExtensions();
+        if (ffExtensions != null && ffExtensions.size() > 0) {
+            addExtensionsToFirefoxProfile(ffp, ffExtensions);
+        }
+        return ffp;
+    }
+
     /**
      *
      * @param ffp for use in setting the firefox profile for the tests to use
@@ -711,8 +864,8 @@ public class DefaultWebDriverFactory implements WebDriverFactory {
     }
 
     /**
-     * This method cleans out folders where the WebDriver temp information is
-     * stored.
+     * This method starts the cleaning of the folders where the WebDriver temp
+     * information is stored in the background, see {@link TempFolderJanitor}.
      *
      * @param properties client properties specified
      */
@@ -742,43 +895,56 @@ public class DefaultWebDriverFactory implements WebDriverFactory {
             }
         }
 
-        removeFolders(tempFolder, tempFolderNameContainsList,
-                numberOfDaysToKeepTempFolders);
+        TempFolderJanitor.start(Paths.get(tempFolder),
+                tempFolderNameContainsList, numberOfDaysToKeepTempFolders);
     }
 
     /**
-     * This method can be called to remove specific folders or set how long you
-     * want to keep the temp information.
-     *
-     * @param folder which temp folder you want to remove
-     * @param folderTemplates the templates of these temp folders
-     * @param numberOfDaysToKeepTempFolders how long you want to keep the temp
-     *            information
+     * Directory of a firefox-profile template with the properties it is
+     * created from.
      */
-    private final static void removeFolders(String folder,
-            List<String> folderTemplates, int numberOfDaysToKeepTempFolders) {
-        long dateToRemoveFiledAfter =
-                (new Date()).getTime()
-                        - (numberOfDaysToKeepTempFolders * MILLISECONDS_IN_DAY);
-
-        File tempFolder = new File(folder);
-        for (File currentFile : tempFolder.listFiles()) {
-            if (currentFile.isDirectory()) {
-                for (String folderTemplate : folderTemplates) {
-                    if (currentFile.getName().contains(folderTemplate)
-                            && (currentFile.lastModified() < dateToRemoveFiledAfter)) {
-                        try {
-                            currentFile.delete();
-                            FileUtils.deleteDirectory(currentFile);
-                            log.debug("Folder '" + currentFile.getName()
-                                    + "' deleted...");
-                        } catch (Exception e) {
-                            log.fatal("Error deleting folder '"
-                                    + currentFile.getName() + "'");
-                        }
-                    }
-                }
-            }
+    private static final class FirefoxProfileTemplate {
+
+        /** The properties. */
+        private final ClientProperties properties;
+
+        /** The directory of the template. */
+        private final File directory;
+
+        /**
+         * Initiates an object of type FirefoxProfileTemplate.
+         *
+         * @param properties the properties.
+         * @param directory the directory of the template.
+         */
+        private FirefoxProfileTemplate(ClientProperties properties,
+                File directory) {
+            this.properties = properties;
+            this.directory = directory;
+        }
+    }
+
+    /**
+     * Capabilities with the properties they are created from.
+     */
+    private static final class CachedCapabilities {
+
+        /** The properties. */
+        private final ClientProperties properties;
+
+        /** The capabilities. */
+        private final DesiredCapabilities capabilities;
+
+        /**
+         * Initiates an object of type CachedCapabilities.
+         *
+         * @param properties the properties.
+         * @param capabilities the capabilities.
+         */
+        private CachedCapabilities(ClientProperties properties,
+                DesiredCapabilities capabilities) {
+            this.properties = properties;
+            this.capabilities = capabilities;
         }
     }
 }
@@ -16,9 +16,17 @@
  */
 package de.ppi.selenium.browser;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.remote.DesiredCapabilities;
@@ -68,6 +76,29 @@ public class SessionManager {
 
     private boolean doCleanup = false;
 
+    /**
+     * Browser which is started in the background to replace the current
+     * session.
+     */
+    private Future<WebBrowser> replacementSession;
+
+    /**
+     * Threads which start replacement browsers and quit old browsers.
+     */
+    private static final ExecutorService BACKGROUND_EXECUTOR = Executors
+            .newCachedThreadPool(new ThreadFactory() {
+                private final AtomicInteger threadNr = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    final Thread thread =
+                            new Thread(runnable, "webtest-browser-spawn-"
+                                    + threadNr.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
     private SessionManager() {
 
     }
@@ -80,11 +111,18 @@ public class SessionManager {
                 }
             };
 
+    /**
+     * The factory of all threads which don't set their own, so they share one
+     * {@link WebBrowserPool}.
+     */
+    private static final WebDriverFactory DEFAULT_WEB_DRIVER_FACTORY =
+            new DefaultWebDriverFactory();
+
     private static ThreadLocal<WebDriverFactory> webDriverFactory =
             new ThreadLocal<WebDriverFactory>() {
                 @Override
                 protected synchronized WebDriverFactory initialValue() {
-                    return new DefaultWebDriverFactory();
+                    return DEFAULT_WEB_DRIVER_FACTORY;
                 }
             };
 
@@ -299,11 +337,32 @@ public class SessionManager {
      */
 
     public WebBrowser getNewSession(boolean setAsCurrent) throws Exception {
+        if (WebBrowserPool.isEnabled()) {
+            return getPooledSession(setAsCurrent, false);
+        }
         Map<String, String> options =
                 webDriverFactory.get().createDefaultOptions();
         return getNewSessionDo(options, setAsCurrent);
     }
 
+    /**
+     * Create and return a new WebBrowser instance with default options, which
+     * was never used by another test. If the {@link WebBrowserPool} is
+     * enabled, only unused browsers of the pool are delivered, otherwise it's
+     * the same as {@link #getNewSession(boolean)}.
+     *
+     * @param setAsCurrent set to true if the new session should become the
+     *            current session for this SessionManager
+     * @return A new WebBrowser session
+     * @throws Exception
+     */
+    public WebBrowser getFreshSession(boolean setAsCurrent) throws Exception {
+        if (WebBrowserPool.isEnabled()) {
+            return getPooledSession(setAsCurrent, true);
+        }
+        return getNewSession(setAsCurrent);
+    }
+
     /**
      * Create and return a new WebBrowser instance. The instance is constructed
      * with default options, with the provided key/value pair overriding the
@@ -397,45 +456,247 @@ public class SessionManager {
             boolean setAsCurrent) throws Exception {
 
         final Map<String, String> localOptions = new HashMap<>(options);
-
-        final String baseUrl;
-        if (localOptions.containsKey(BASE_URL_KEY)) {
-            baseUrl = localOptions.get(BASE_URL_KEY);
-            localOptions.remove(BASE_URL_KEY);
-        } else {
-            baseUrl = defaultBaseUrl;
-        }
+        final String baseUrl = removeBaseUrl(localOptions);
 
         if (doCleanup) {
             webDriverFactory.get().cleanup(localOptions);
             doCleanup = false;
         }
 
+        final WebBrowser webBrowser =
+                createBrowser(webDriverFactory.get(), localOptions, baseUrl,
+                        getNextCustomSessionId());
+        registerSession(webBrowser, setAsCurrent, "getNewSessionDo");
+        return webBrowser;
+    }
+
+    /**
+     * Removes the base-url from the options.
+     *
+     * @param options the options.
+     * @return the base-url of the options or the default base-url.
+     */
+    private String removeBaseUrl(Map<String, String> options) {
+        if (options.containsKey(BASE_URL_KEY)) {
+            return options.remove(BASE_URL_KEY);
+        }
+        return defaultBaseUrl;
+    }
+
+    /**
+     * Starts a new browser, this could be done in any thread.
+     *
+     * @param factory the factory of the webdriver.
+     * @param options the options without base-url.
+     * @param baseUrl the base-url.
+     * @param sessionIdSuffix the suffix of the session-id.
+     * @return the browser.
+     * @throws Exception if the browser can't be started.
+     */
+    private static WebBrowser createBrowser(WebDriverFactory factory,
+            Map<String, String> options, String baseUrl,
+            String sessionIdSuffix) throws Exception {
         // Get capabilities
-        DesiredCapabilities dc =
-                webDriverFactory.get().createCapabilities(localOptions);
+        DesiredCapabilities dc = factory.createCapabilities(options);
 
         // Get driver instance
-        WebDriver innerDriver =
-                webDriverFactory.get().createWebDriver(localOptions, dc);
+        WebDriver innerDriver = factory.createWebDriver(options, dc);
 
-        final String sessionId =
-                innerDriver.toString() + getNextCustomSessionId();
+        return new WebBrowserImpl(innerDriver, innerDriver.toString()
+                + sessionIdSuffix, baseUrl);
+    }
+
+    /**
+     * Stores the browser as session.
+     *
+     * @param webBrowser the browser.
+     * @param setAsCurrent set to true if the new session should become the
+     *            current session for this SessionManager
+     * @param item the item of the event.
+     */
+    private void registerSession(WebBrowser webBrowser, boolean setAsCurrent,
+            String item) {
+        final String sessionId = webBrowser.getSessionId();
         if (setAsCurrent) {
             currentSessionId = sessionId;
         }
-
-        final WebBrowser webBrowser =
-                new WebBrowserImpl(innerDriver, sessionId, baseUrl);
         // Store the session in sessions Map
         sessions.put(sessionId, webBrowser);
 
-        EVENT_LOGGER_FACTORY.onDebug("SessionManager", "getNewSessionDo").log(
-                EventActions.WEBDRIVER_CREATE_INSTANCE,
-                "webdriver.create_instance", sessionId);
+        final EventLogger eventLogger =
+                EVENT_LOGGER_FACTORY.onDebug("SessionManager", item);
+        if (eventLogger.willLogged()) {
+            eventLogger.log(EventActions.WEBDRIVER_CREATE_INSTANCE,
+                    "webdriver.create_instance", sessionId);
+        }
+    }
+
+    /**
+     * Starts a browser with the default options in the background, which
+     * replaces the current session at
+     * {@link #swapToReplacementSession()}. Calling it again before the swap
+     * has no effect.
+     */
+    public void prepareReplacementSession() {
+        if (replacementSession != null) {
+            return;
+        }
+        final WebDriverFactory factory = webDriverFactory.get();
+        final Map<String, String> options =
+                new HashMap<>(factory.createDefaultOptions());
+        final String baseUrl = removeBaseUrl(options);
+        final String sessionIdSuffix = getNextCustomSessionId();
+        replacementSession =
+                BACKGROUND_EXECUTOR.submit(new Callable<WebBrowser>() {
+                    @Override
+                    public WebBrowser call() throws Exception {
+                        return createBrowser(factory, options, baseUrl,
+                                sessionIdSuffix);
+                    }
+                });
+    }
+
+    /**
+     * Replaces the current session by the browser of
+     * {@link #prepareReplacementSession()}, if none is prepared a new browser
+     * is started. The old browser is quit in the background.
+     *
+     * @return the new current session.
+     */
+    public WebBrowser swapToReplacementSession() {
+        final WebBrowser oldBrowser = getCurrentSession(false);
+        WebBrowser newBrowser = null;
+        if (replacementSession != null) {
+            try {
+                newBrowser = replacementSession.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                LOG.warn("Problem to start the replacement browser.",
+                        e.getCause());
+            } finally {
+                replacementSession = null;
+            }
+        }
+        if (oldBrowser != null) {
+            removeSession(oldBrowser);
+            BACKGROUND_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        oldBrowser.quit();
+                    } catch (RuntimeException e) {
+                        LOG.debug("Problem to quit the browser "
+                                + oldBrowser.getSessionId(), e);
+                    }
+                }
+            });
+        }
+        if (newBrowser == null) {
+            return getCurrentSession(true);
+        }
+        registerSession(newBrowser, true, "swapToReplacementSession");
+        return newBrowser;
+    }
+
+    /**
+     * Discards the browser of {@link #prepareReplacementSession()}, it's quit
+     * in the background as soon as it's started. The start isn't cancelled,
+     * because a running start would leave an orphaned browser.
+     */
+    private void discardReplacementSession() {
+        final Future<WebBrowser> pending = replacementSession;
+        if (pending == null) {
+            return;
+        }
+        replacementSession = null;
+        BACKGROUND_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    pending.get().quit();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException | RuntimeException e) {
+                    LOG.debug("Problem to quit the replacement browser.", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Checks out a browser of the {@link WebBrowserPool} of the current
+     * factory and registers it as session. The base-url of the factory is
+     * kept, the default base-url is only used if the factory defines none.
+     *
+     * @param setAsCurrent set to true if the new session should become the
+     *            current session for this SessionManager
+     * @param fresh true if the browser mustn't be used by another test.
+     * @return the browser of the pool.
+     */
+    private WebBrowser getPooledSession(boolean setAsCurrent, boolean fresh) {
+        final WebBrowserPool pool =
+                WebBrowserPool.getInstance(webDriverFactory.get());
+        final WebBrowser webBrowser =
+                fresh ? pool.checkoutFresh() : pool.checkout();
+        if (webBrowser.getBaseUrl() == null) {
+            ((WebBrowserImpl) webBrowser).setBaseUrl(defaultBaseUrl);
+        }
+        registerSession(webBrowser, setAsCurrent, "getPooledSession");
         return webBrowser;
     }
 
+    /**
+     * Removes the session and returns the browser to the
+     * {@link WebBrowserPool}. Browsers which don't belong to the pool are quit.
+     *
+     * @param session the WebBrowser session to be returned.
+     * @param cost the costs of the usage, see
+     *            {@link WebBrowserPool#release(WebBrowser, long)}.
+     */
+    public void releaseSession(WebBrowser session, long cost) {
+        removeSession(session);
+        final WebBrowserPool pool = getPoolOf(session);
+        if (pool != null) {
+            pool.release(session, cost);
+        } else {
+            session.quit();
+        }
+    }
+
+    /**
+     * Removes the session and quits the browser, a browser of the
+     * {@link WebBrowserPool} is removed from the pool. If it's the current
+     * session, a prepared replacement is quit too.
+     *
+     * @param session the WebBrowser session to be quit.
+     */
+    public void quitSession(WebBrowser session) {
+        if (session.getSessionId().equals(currentSessionId)) {
+            discardReplacementSession();
+        }
+        removeSession(session);
+        final WebBrowserPool pool = getPoolOf(session);
+        if (pool != null) {
+            pool.discard(session);
+        } else {
+            session.quit();
+        }
+    }
+
+    /**
+     * Delivers the pool the browser belongs to.
+     *
+     * @param session the browser.
+     * @return the pool or <code>null</code> if the browser isn't pooled.
+     */
+    private static WebBrowserPool getPoolOf(WebBrowser session) {
+        if (!WebBrowserPool.isEnabled()) {
+            return null;
+        }
+        return WebBrowserPool.getPoolOf(session);
+    }
+
     /**
      *
      * @return String of the next session Id
@@ -446,9 +707,13 @@ public class SessionManager {
         return id;
     }
 
+    /**
+     * Quits all sessions of this thread and a prepared replacement browser.
+     */
     public void quitAllSessions() {
-        for (WebBrowser webBrowser : getSessions().values()) {
-            webBrowser.quit();
+        discardReplacementSession();
+        for (WebBrowser webBrowser : new ArrayList<>(getSessions().values())) {
+            quitSession(webBrowser);
         }
         getSessions().clear();
     }
@@ -0,0 +1,306 @@
+package de.ppi.selenium.browser;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Deletes old temporary folders of the browsers in the background. The
+ * folder is scanned with a {@link DirectoryStream}, the names are matched
+ * against one compiled pattern and the matching folders are deleted by
+ * several threads. The number of folders which are deleted per second is
+ * limited, so the disk isn't saturated. When the time budget is exhausted the
+ * deletion stops, even in the middle of a folder, the rest is deleted by the
+ * next run.
+ *
+ * The janitor could be configured by the system-properties:
+ * <ul>
+ * <li><code>webtest.tempCleanup.threads</code> - number of threads which
+ * delete the folders, default is 2.</li>
+ * <li><code>webtest.tempCleanup.maxSeconds</code> - time budget of a run in
+ * seconds, default is 60.</li>
+ * <li><code>webtest.tempCleanup.maxFoldersPerSecond</code> - maximal number of
+ * folders which are deleted per second, default is 50, 0 means unlimited.</li>
+ * </ul>
+ */
+public final class TempFolderJanitor {
+
+    /**
+     * The Logger.
+     */
+    private static final Logger LOG = LoggerFactory
+            .getLogger(TempFolderJanitor.class);
+
+    /** Number of threads which delete the folders. */
+    private static final int NR_OF_THREADS = Integer.getInteger(
+            "webtest.tempCleanup.threads", 2).intValue();
+
+    /** Time budget of a run in milliseconds. */
+    private static final long TIME_BUDGET = TimeUnit.SECONDS.toMillis(Long
+            .getLong("webtest.tempCleanup.maxSeconds", 60L).longValue());
+
+    /** Maximal number of folders per second, 0 means unlimited. */
+    private static final int MAX_FOLDERS_PER_SECOND = Integer.getInteger(
+            "webtest.tempCleanup.maxFoldersPerSecond", 50).intValue();
+
+    /** Creates the daemon-threads of the janitor. */
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
+        private final AtomicInteger threadNr = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread =
+                    new Thread(runnable, "webtest-temp-cleanup-"
+                            + threadNr.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    /** The thread which scans the folder. */
+    private static final ExecutorService EXECUTOR = Executors
+            .newSingleThreadExecutor(THREAD_FACTORY);
+
+    /** The running cleanup, <code>null</code> if none is running. */
+    private static Future<Long> running;
+
+    /**
+     * Initiates an object of type TempFolderJanitor.
+     */
+    private TempFolderJanitor() {
+        super();
+    }
+
+    /**
+     * Starts the deletion of the sub-folders, whose name contains one of the
+     * templates and which are older than the given number of days. If a
+     * cleanup is still running, no new one is started.
+     *
+     * @param folder the folder, usually <code>java.io.tmpdir</code>.
+     * @param folderTemplates parts of the names of the folders.
+     * @param numberOfDaysToKeep how long the folders are kept.
+     * @return the number of reclaimed bytes.
+     */
+    public static synchronized Future<Long> start(final Path folder,
+            Collection<String> folderTemplates, int numberOfDaysToKeep) {
+        if (running != null && !running.isDone()) {
+            return running;
+        }
+        final Pattern pattern = compile(folderTemplates);
+        final long keepAfter =
+                System.currentTimeMillis()
+                        - TimeUnit.DAYS.toMillis(numberOfDaysToKeep);
+        running = EXECUTOR.submit(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                return Long.valueOf(clean(folder, pattern, keepAfter,
+                        System.currentTimeMillis() + TIME_BUDGET));
+            }
+        });
+        return running;
+    }
+
+    /**
+     * Compiles the templates to one pattern which finds any of them.
+     *
+     * @param folderTemplates parts of the names of the folders.
+     * @return the pattern.
+     */
+    static Pattern compile(Collection<String> folderTemplates) {
+        final StringBuilder regexp = new StringBuilder();
+        for (String template : folderTemplates) {
+            if (template.isEmpty()) {
+                continue;
+            }
+            if (regexp.length() > 0) {
+                regexp.append('|');
+            }
+            regexp.append(Pattern.quote(template));
+        }
+        return Pattern.compile(regexp.length() == 0 ? "(?!)" : regexp
+                .toString());
+    }
+
+    /**
+     * Deletes the matching folders with the configured rate.
+     *
+     * @param folder the folder.
+     * @param pattern the pattern for the names.
+     * @param keepAfter folders modified after this timestamp are kept.
+     * @param deadline the end of the time budget.
+     * @return the number of reclaimed bytes.
+     * @throws Exception if the folder can't be read.
+     */
+    static long clean(Path folder, Pattern pattern, long keepAfter,
+            long deadline) throws Exception {
+        return clean(folder, pattern, keepAfter, deadline,
+                MAX_FOLDERS_PER_SECOND);
+    }
+
+    /**
+     * Deletes the matching folders. Each deletion checks the deadline before
+     * it starts and before each file, deletions which haven't finished at
+     * the deadline are cancelled.
+     *
+     * @param folder the folder.
+     * @param pattern the pattern for the names.
+     * @param keepAfter folders modified after this timestamp are kept.
+     * @param deadline the end of the time budget.
+     * @param maxFoldersPerSecond maximal number of folders per second, 0
+     *            means unlimited.
+     * @return the number of reclaimed bytes.
+     * @throws Exception if the folder can't be read.
+     */
+    static long clean(Path folder, final Pattern pattern,
+            final long keepAfter, final long deadline,
+            int maxFoldersPerSecond) throws Exception {
+        final long start = System.currentTimeMillis();
+        final AtomicLong reclaimed = new AtomicLong();
+        final AtomicInteger deletedFolders = new AtomicInteger();
+        final List<Future<?>> deletions = new ArrayList<Future<?>>();
+        final DirectoryStream.Filter<Path> filter =
+                new DirectoryStream.Filter<Path>() {
+                    @Override
+                    public boolean accept(Path entry) throws IOException {
+                        return pattern.matcher(entry.getFileName().toString())
+                                .find()
+                                && Files.isDirectory(entry)
+                                && Files.getLastModifiedTime(entry)
+                                        .toMillis() < keepAfter;
+                    }
+                };
+        final ExecutorService deleters =
+                Executors.newFixedThreadPool(NR_OF_THREADS, THREAD_FACTORY);
+        try (DirectoryStream<Path> candidates =
+                Files.newDirectoryStream(folder, filter)) {
+            for (final Path candidate : candidates) {
+                if (maxFoldersPerSecond > 0) {
+                    final long due =
+                            start + TimeUnit.SECONDS.toMillis(deletions.size())
+                                    / maxFoldersPerSecond;
+                    final long wait = due - System.currentTimeMillis();
+                    if (due > deadline) {
+                        break;
+                    } else if (wait > 0) {
+                        Thread.sleep(wait);
+                    }
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    break;
+                }
+                deletions.add(deleters.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            if (delete(candidate, deadline, reclaimed)) {
+                                deletedFolders.incrementAndGet();
+                            }
+                        } catch (IOException e) {
+                            LOG.debug("Folder " + candidate
+                                    + " couldn't be deleted.", e);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> deletion : deletions) {
+                final long remaining = deadline - System.currentTimeMillis();
+                try {
+                    deletion.get(Math.max(remaining, 0),
+                            TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    break;
+                }
+            }
+        } finally {
+            for (Future<?> deletion : deletions) {
+                deletion.cancel(true);
+            }
+            deleters.shutdownNow();
+        }
+        LOG.info("Temp-cleanup of {} reclaimed {} bytes in {} folders in {} "
+                + "ms.", folder, Long.valueOf(reclaimed.get()),
+                Integer.valueOf(deletedFolders.get()),
+                Long.valueOf(System.currentTimeMillis() - start));
+        return reclaimed.get();
+    }
+
+    /**
+     * Deletes the folder recursively until the deadline.
+     *
+     * @param folder the folder.
+     * @param deadline the end of the time budget.
+     * @param reclaimed counter of the deleted bytes.
+     * @return true if the folder is deleted completely.
+     * @throws IOException if a file can't be deleted.
+     */
+    private static boolean delete(Path folder, final long deadline,
+            final AtomicLong reclaimed) throws IOException {
+        final AtomicBoolean complete = new AtomicBoolean(true);
+        Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir,
+                    BasicFileAttributes attrs) {
+                return checkDeadline();
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file,
+                    BasicFileAttributes attrs) throws IOException {
+                if (checkDeadline() == FileVisitResult.TERMINATE) {
+                    return FileVisitResult.TERMINATE;
+                }
+                Files.delete(file);
+                reclaimed.addAndGet(attrs.size());
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir,
+                    IOException exc) throws IOException {
+                if (exc != null) {
+                    throw exc;
+                }
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            /**
+             * Stops the deletion if the deadline is passed or the task is
+             * cancelled.
+             *
+             * @return {@link FileVisitResult#TERMINATE} if the deletion must
+             *         stop.
+             */
+            private FileVisitResult checkDeadline() {
+                if (System.currentTimeMillis() > deadline
+                        || Thread.currentThread().isInterrupted()) {
+                    complete.set(false);
+                    return FileVisitResult.TERMINATE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return complete.get();
+    }
+}
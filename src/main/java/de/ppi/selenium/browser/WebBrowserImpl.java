@@ -6,6 +6,7 @@ package de.ppi.selenium.browser;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
@@ -31,6 +32,11 @@ public class WebBrowserImpl implements WebBrowser {
     public static final Logger LOG = LoggerFactory
             .getLogger(WebBrowserImpl.class);
 
+    /**
+     * Group of the events.
+     */
+    private static final String GROUP = WebBrowserImpl.class.getSimpleName();
+
     /**
      * EventLogger for after events.
      */
@@ -43,7 +49,8 @@ public class WebBrowserImpl implements WebBrowser {
     private static final EventLoggerFactory BEFORE_EVENTLOGGER =
             EventLoggerFactory.getInstance(EventSource.WEBDRIVER_BEFORE);
 
-    private static final List<WebBrowser> ALL_INSTANCES = new ArrayList<>();
+    private static final List<WebBrowser> ALL_INSTANCES =
+            new CopyOnWriteArrayList<>();
 
     private final WebDriver webdriver;
 
@@ -117,17 +124,17 @@ public class WebBrowserImpl implements WebBrowser {
      */
     @Override
     public void get(String url) {
-        BEFORE_EVENTLOGGER.onDebug(WebBrowserImpl.class.getSimpleName(), "get")
+        BEFORE_EVENTLOGGER.onDebug(GROUP, "get")
                 .withScreenshot(Priority.DEBUG, webdriver)
                 .log(EventActions.WEBDRIVER_GET, "webdriver.get", url);
         try {
             webdriver.get(url);
         } catch (RuntimeException re) {
-            AFTER_EVENTLOGGER.onException(WebBrowserImpl.class.getSimpleName(),
+            AFTER_EVENTLOGGER.onException(GROUP,
                     "get").logThrowable(re);
             throw re;
         }
-        AFTER_EVENTLOGGER.onDebug(WebBrowserImpl.class.getSimpleName(), "get")
+        AFTER_EVENTLOGGER.onDebug(GROUP, "get")
                 .withScreenshot(Priority.DEBUG, webdriver)
                 .log(EventActions.WEBDRIVER_GET, "webdriver.get", url);
     }
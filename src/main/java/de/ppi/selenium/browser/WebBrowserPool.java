@@ -0,0 +1,517 @@
+package de.ppi.selenium.browser;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of {@link WebBrowser}s which is shared by all threads using the same
+ * {@link WebDriverFactory}, each factory gets its own pool. Spare browsers
+ * are started in the background, so a test doesn't have to wait for the
+ * start of a browser. A browser is checked with a cheap request before it's
+ * delivered and reset when it's returned: all windows except the first are
+ * closed, the cookies, the local- and the session-storage of the current page
+ * are deleted, about:blank is loaded and the base-url of the factory is
+ * restored.
+ *
+ * The pool could be configured by the system-properties:
+ * <ul>
+ * <li><code>webtest.browserPool.maxSize</code> - maximal number of browsers,
+ * default is 0 which means the pool is disabled.</li>
+ * <li><code>webtest.browserPool.minSize</code> - number of browsers which are
+ * started at the beginning and kept alive, default is 0.</li>
+ * <li><code>webtest.browserPool.spares</code> - number of idle browsers which
+ * are kept ready, default is 1.</li>
+ * <li><code>webtest.browserPool.timeout</code> - seconds to wait for a browser
+ * if the pool is exhausted, default is 300.</li>
+ * <li><code>webtest.maxNrOfBrowserReuse</code> - costs after which a browser
+ * is quit instead of reused, default is 100.</li>
+ * </ul>
+ */
+public final class WebBrowserPool {
+
+    /**
+     * The Logger.
+     */
+    private static final Logger LOG = LoggerFactory
+            .getLogger(WebBrowserPool.class);
+
+    /** Maximal number of browsers, 0 means the pool is disabled. */
+    private static final int MAX_SIZE = Integer.getInteger(
+            "webtest.browserPool.maxSize", 0).intValue();
+
+    /** The pools per factory. */
+    private static final ConcurrentMap<WebDriverFactory, WebBrowserPool> POOLS =
+            new ConcurrentHashMap<WebDriverFactory, WebBrowserPool>();
+
+    /** Script which clears the local- and session-storage. */
+    private static final String CLEAR_STORAGE_SCRIPT =
+            "try { window.localStorage.clear(); "
+                    + "window.sessionStorage.clear(); } catch (e) {}";
+
+    /** The url which is loaded when a browser is returned. */
+    private static final String BLANK_PAGE = "about:blank";
+
+    /** Maximal number of browsers. */
+    private final int maxSize;
+
+    /** Number of browsers which are kept alive. */
+    private final int minSize;
+
+    /** Number of idle browsers which are kept ready. */
+    private final int spares;
+
+    /** Milliseconds to wait for a browser if the pool is exhausted. */
+    private final long timeout;
+
+    /** Costs after which a browser is quit instead of reused. */
+    private final long maxReuse;
+
+    /** Factory for the browsers. */
+    private final WebDriverFactory webDriverFactory;
+
+    /** The idle browsers, the last returned first. */
+    private final BlockingDeque<WebBrowser> idle =
+            new LinkedBlockingDeque<WebBrowser>();
+
+    /** The usage of the browsers which belong to the pool. */
+    private final ConcurrentMap<WebBrowser, Usage> usages =
+            new ConcurrentHashMap<WebBrowser, Usage>();
+
+    /** Number of browsers which are started, idle or in use. */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /** Number of browsers which are currently started. */
+    private final AtomicInteger starting = new AtomicInteger();
+
+    /** Number of the next session. */
+    private final AtomicInteger nextSessionNr = new AtomicInteger();
+
+    /** Threads which start and quit browsers. */
+    private final ExecutorService executor;
+
+    /**
+     * Initiates an object of type WebBrowserPool, which is configured by the
+     * system-properties.
+     *
+     * @param webDriverFactory factory for the browsers.
+     */
+    private WebBrowserPool(WebDriverFactory webDriverFactory) {
+        this(webDriverFactory, MAX_SIZE, Integer.getInteger(
+                "webtest.browserPool.minSize", 0).intValue(), Integer
+                .getInteger("webtest.browserPool.spares", 1).intValue(),
+                TimeUnit.SECONDS.toMillis(Long.getLong(
+                        "webtest.browserPool.timeout", 300L).longValue()),
+                Long.parseLong(System.getProperty(
+                        "webtest.maxNrOfBrowserReuse", "100")));
+    }
+
+    /**
+     * Initiates an object of type WebBrowserPool.
+     *
+     * @param webDriverFactory factory for the browsers.
+     * @param maxSize maximal number of browsers.
+     * @param minSize number of browsers which are kept alive.
+     * @param spares number of idle browsers which are kept ready.
+     * @param timeout milliseconds to wait for a browser if the pool is
+     *            exhausted.
+     * @param maxReuse costs after which a browser is quit instead of reused.
+     */
+    WebBrowserPool(WebDriverFactory webDriverFactory, int maxSize,
+            int minSize, int spares, long timeout, long maxReuse) {
+        super();
+        this.webDriverFactory = webDriverFactory;
+        this.maxSize = maxSize;
+        this.minSize = Math.min(maxSize, minSize);
+        this.spares = spares;
+        this.timeout = timeout;
+        this.maxReuse = maxReuse;
+        final AtomicInteger threadNr = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread =
+                        new Thread(runnable, "webtest-browser-pool-"
+                                + threadNr.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        ensureSpares();
+    }
+
+    /**
+     * Checks if the pool is enabled by
+     * <code>webtest.browserPool.maxSize</code>.
+     *
+     * @return true if the pool is enabled.
+     */
+    public static boolean isEnabled() {
+        return MAX_SIZE > 0;
+    }
+
+    /**
+     * Delivers the pool of the factory, it's created when it's used the first
+     * time.
+     *
+     * @param factory the factory of the browsers.
+     * @return the pool.
+     */
+    public static WebBrowserPool getInstance(WebDriverFactory factory) {
+        if (!isEnabled()) {
+            throw new IllegalStateException("The browser pool is disabled, "
+                    + "set webtest.browserPool.maxSize.");
+        }
+        WebBrowserPool pool = POOLS.get(factory);
+        if (pool == null) {
+            synchronized (POOLS) {
+                pool = POOLS.get(factory);
+                if (pool == null) {
+                    pool = new WebBrowserPool(factory);
+                    POOLS.put(factory, pool);
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Delivers the pool the browser belongs to.
+     *
+     * @param browser the browser.
+     * @return the pool or <code>null</code> if the browser isn't pooled.
+     */
+    public static WebBrowserPool getPoolOf(WebBrowser browser) {
+        for (WebBrowserPool pool : POOLS.values()) {
+            if (pool.isPooled(browser)) {
+                return pool;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Delivers a living browser. If no browser is idle and the pool isn't
+     * exhausted a new browser is started, otherwise it waits until a browser
+     * is returned.
+     *
+     * @return the browser.
+     */
+    public WebBrowser checkout() {
+        return checkout(false);
+    }
+
+    /**
+     * Delivers a living browser which was never used by a test before, for
+     * tests which need a fresh browser. Idle browsers which were used are
+     * quit, if the pool is exhausted.
+     *
+     * @return the browser.
+     */
+    public WebBrowser checkoutFresh() {
+        return checkout(true);
+    }
+
+    /**
+     * Delivers a living browser.
+     *
+     * @param fresh true if the browser mustn't be used before.
+     * @return the browser.
+     */
+    private WebBrowser checkout(boolean fresh) {
+        final long deadline = System.currentTimeMillis() + timeout;
+        while (true) {
+            WebBrowser browser = fresh ? pollUnused() : idle.pollFirst();
+            if (browser == null && fresh && size.get() >= maxSize) {
+                // Make room for a new browser.
+                final WebBrowser used = idle.pollLast();
+                if (used != null) {
+                    discard(used);
+                }
+            }
+            if (browser == null) {
+                if (reserve()) {
+                    try {
+                        browser = createBrowser();
+                    } catch (RuntimeException e) {
+                        size.decrementAndGet();
+                        throw e;
+                    }
+                } else {
+                    browser = waitForBrowser(deadline);
+                }
+            }
+            if (fresh && usages.get(browser).used) {
+                discard(browser);
+            } else if (isAlive(browser)) {
+                ensureSpares();
+                return browser;
+            } else {
+                discard(browser);
+            }
+        }
+    }
+
+    /**
+     * Removes an idle browser which was never used.
+     *
+     * @return the browser or <code>null</code> if there is none.
+     */
+    private WebBrowser pollUnused() {
+        final Iterator<WebBrowser> browsers = idle.iterator();
+        while (browsers.hasNext()) {
+            final WebBrowser browser = browsers.next();
+            final Usage usage = usages.get(browser);
+            if (usage != null && !usage.used && idle.remove(browser)) {
+                return browser;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if the browser belongs to the pool.
+     *
+     * @param browser the browser.
+     * @return true if the browser belongs to the pool.
+     */
+    public boolean isPooled(WebBrowser browser) {
+        return usages.containsKey(browser);
+    }
+
+    /**
+     * Delivers the number of browsers which are started, idle or in use.
+     *
+     * @return the size of the pool.
+     */
+    public int getSize() {
+        return size.get();
+    }
+
+    /**
+     * Returns the browser to the pool. If the browser has reached the maximal
+     * costs or couldn't be reset it's quit.
+     *
+     * @param browser the browser.
+     * @param cost the costs of the usage.
+     */
+    public void release(WebBrowser browser, long cost) {
+        final Usage usage = usages.get(browser);
+        if (usage == null) {
+            throw new IllegalArgumentException(browser.getSessionId()
+                    + " doesn't belong to the pool.");
+        }
+        usage.used = true;
+        if (usage.costs.addAndGet(cost) > maxReuse
+                || !reset(browser, usage.baseUrl)) {
+            discard(browser);
+        } else {
+            idle.offerFirst(browser);
+        }
+    }
+
+    /**
+     * Removes the browser from the pool and quits it in the background.
+     *
+     * @param browser the browser.
+     */
+    public void discard(final WebBrowser browser) {
+        if (usages.remove(browser) == null) {
+            return;
+        }
+        size.decrementAndGet();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    browser.quit();
+                } catch (RuntimeException e) {
+                    LOG.debug("Problem to quit the browser "
+                            + browser.getSessionId(), e);
+                }
+            }
+        });
+        ensureSpares();
+    }
+
+    /**
+     * Waits for a returned or started browser.
+     *
+     * @param deadline the end of the waiting in milliseconds.
+     * @return the browser.
+     */
+    private WebBrowser waitForBrowser(long deadline) {
+        try {
+            final WebBrowser browser =
+                    idle.pollFirst(deadline - System.currentTimeMillis(),
+                            TimeUnit.MILLISECONDS);
+            if (browser == null) {
+                throw new IllegalStateException("No browser available after "
+                        + timeout + " ms.");
+            }
+            return browser;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(
+                    "Interrupted while waiting for a browser.", e);
+        }
+    }
+
+    /**
+     * Reserves a place for a new browser.
+     *
+     * @return true if the pool isn't exhausted.
+     */
+    private boolean reserve() {
+        while (true) {
+            final int current = size.get();
+            if (current >= maxSize) {
+                return false;
+            }
+            if (size.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Starts browsers in the background until enough spare browsers are idle
+     * and the minimal size is reached.
+     */
+    private void ensureSpares() {
+        while ((idle.size() + starting.get() < spares || size.get() < minSize)
+                && reserve()) {
+            starting.incrementAndGet();
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        idle.offerLast(createBrowser());
+                    } catch (RuntimeException e) {
+                        size.decrementAndGet();
+                        LOG.warn("Problem to start a spare browser.", e);
+                    } finally {
+                        starting.decrementAndGet();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Starts a new browser with the default options of the factory, the
+     * browser gets the base-url of the options.
+     *
+     * @return the browser.
+     */
+    private WebBrowser createBrowser() {
+        try {
+            final Map<String, String> options =
+                    new HashMap<String, String>(
+                            webDriverFactory.createDefaultOptions());
+            final String baseUrl = options.remove(SessionManager.BASE_URL_KEY);
+            final DesiredCapabilities capabilities =
+                    webDriverFactory.createCapabilities(options);
+            final WebDriver driver =
+                    webDriverFactory.createWebDriver(options, capabilities);
+            final WebBrowser browser =
+                    new WebBrowserImpl(driver, driver.toString() + "pooled_"
+                            + nextSessionNr.incrementAndGet(), baseUrl);
+            usages.put(browser, new Usage(baseUrl));
+            return browser;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Problem to create a browser: "
+                    + e.getLocalizedMessage(), e);
+        }
+    }
+
+    /**
+     * Checks if the browser still answers.
+     *
+     * @param browser the browser.
+     * @return true if the browser answers.
+     */
+    private boolean isAlive(WebBrowser browser) {
+        try {
+            return !browser.getWrappedDriver().getWindowHandles().isEmpty();
+        } catch (RuntimeException e) {
+            LOG.info("Browser " + browser.getSessionId() + " is dead.", e);
+            return false;
+        }
+    }
+
+    /**
+     * Resets the state of the browser, so the next test isn't influenced.
+     *
+     * @param browser the browser.
+     * @param baseUrl the base-url of the factory.
+     * @return true if the browser could be reset.
+     */
+    private boolean reset(WebBrowser browser, String baseUrl) {
+        final WebDriver driver = browser.getWrappedDriver();
+        try {
+            final Iterator<String> handles =
+                    driver.getWindowHandles().iterator();
+            final String firstWindow = handles.next();
+            while (handles.hasNext()) {
+                driver.switchTo().window(handles.next());
+                driver.close();
+            }
+            driver.switchTo().window(firstWindow);
+            driver.manage().deleteAllCookies();
+            if (driver instanceof JavascriptExecutor) {
+                ((JavascriptExecutor) driver)
+                        .executeScript(CLEAR_STORAGE_SCRIPT);
+            }
+            driver.get(BLANK_PAGE);
+            ((WebBrowserImpl) browser).setBaseUrl(baseUrl);
+            return true;
+        } catch (RuntimeException e) {
+            LOG.info("Browser " + browser.getSessionId()
+                    + " couldn't be reset.", e);
+            return false;
+        }
+    }
+
+    /**
+     * The usage of a pooled browser.
+     */
+    private static final class Usage {
+
+        /** The accumulated costs. */
+        private final AtomicLong costs = new AtomicLong();
+
+        /** The base-url of the factory. */
+        private final String baseUrl;
+
+        /** True if the browser was returned by a test. */
+        private volatile boolean used;
+
+        /**
+         * Initiates an object of type Usage.
+         *
+         * @param baseUrl the base-url of the factory.
+         */
+        private Usage(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+    }
+}
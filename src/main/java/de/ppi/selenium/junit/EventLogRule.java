@@ -17,6 +17,7 @@ import de.ppi.selenium.logevent.api.EventLogger;
 import de.ppi.selenium.logevent.api.EventLoggerFactory;
 import de.ppi.selenium.logevent.api.EventSource;
 import de.ppi.selenium.logevent.api.EventStorage;
+import de.ppi.selenium.logevent.report.IncrementalLogReporter;
 import de.ppi.selenium.logevent.report.LogReporter;
 
 /**
@@ -38,6 +39,9 @@ public class EventLogRule implements TestRule {
     /** The storage system. */
     private final EventStorage eventStorage;
 
+    /** The reporters. */
+    private final LogReporter[] reporters;
+
     /**
      * Initiates an object of type EventLogRule.
      *
@@ -48,6 +52,7 @@ public class EventLogRule implements TestRule {
             final LogReporter... reporter) {
         EventLoggerFactory.setStorage(storage);
         this.eventStorage = storage;
+        this.reporters = reporter;
         Runtime.getRuntime().addShutdownHook(new Thread() {
             @Override
             public void run() {
@@ -57,8 +62,13 @@ public class EventLogRule implements TestRule {
                     LOG.error("Error closing the eventstorage.", sql2oException);
                 }
                 for (LogReporter logReporter : reporter) {
-                    logReporter.createReport(storage,
-                            EventLoggerFactory.getTestrunId());
+                    if (logReporter instanceof IncrementalLogReporter) {
+                        ((IncrementalLogReporter) logReporter).finishReport(
+                                storage, EventLoggerFactory.getTestrunId());
+                    } else {
+                        logReporter.createReport(storage,
+                                EventLoggerFactory.getTestrunId());
+                    }
                 }
             }
         });
@@ -119,10 +129,29 @@ public class EventLogRule implements TestRule {
                     }
                 } finally {
                     eventStorage.write();
+                    reportTest();
                 }
                 MultipleFailureException.assertEmpty(errors);
             }
 
         };
     }
+
+    /**
+     * Informs the {@link IncrementalLogReporter} that the test of the current
+     * thread is finished.
+     */
+    private void reportTest() {
+        for (LogReporter logReporter : reporters) {
+            if (logReporter instanceof IncrementalLogReporter) {
+                try {
+                    ((IncrementalLogReporter) logReporter).testFinished(
+                            eventStorage, EventLoggerFactory.getTestrunId(),
+                            Thread.currentThread().getId());
+                } catch (RuntimeException e) {
+                    LOG.error("Error reporting the test.", e);
+                }
+            }
+        }
+    }
 }
@@ -14,6 +14,7 @@ import org.openqa.selenium.remote.UnreachableBrowserException;
 
 import de.ppi.selenium.browser.SessionManager;
 import de.ppi.selenium.browser.WebBrowser;
+import de.ppi.selenium.browser.WebBrowserPool;
 
 /**
  * Junit-Rule which handle the WebDriver.
@@ -33,6 +34,20 @@ public class WebDriverRule extends TestWatcher {
     private static final long MAX_NR_OF_REUSE = Long.parseLong(
             System.getProperty("webtest.maxNrOfBrowserReuse", "100"));
 
+    /**
+     * True if the next browser should be started in the background, before
+     * the current browser reaches {@link #MAX_NR_OF_REUSE}.
+     */
+    private static final boolean PRESPAWN_BROWSER = Boolean
+            .getBoolean("webtest.prespawnBrowser");
+
+    /**
+     * Number of costs before {@link #MAX_NR_OF_REUSE} when the next browser
+     * is started in the background.
+     */
+    private static final long PRESPAWN_MARGIN = Long.parseLong(System
+            .getProperty("webtest.prespawnBrowserMargin", "10"));
+
     @Override
     protected void failed(Throwable e, Description description) {
         final List<Throwable> failures = new ArrayList<>();
@@ -65,8 +80,20 @@ public class WebDriverRule extends TestWatcher {
             forceRestart = browserInfo.forceRestart();
 
         }
+        if (WebBrowserPool.isEnabled()) {
+            startPooledBrowser(manager, forceRestart);
+            return;
+        }
         if (forceRestart || nrOfTests > MAX_NR_OF_REUSE) {
-            quitBrowser(manager);
+            if (PRESPAWN_BROWSER) {
+                nrOfTests = 0;
+                manager.swapToReplacementSession();
+            } else {
+                quitBrowser(manager);
+            }
+        } else if (PRESPAWN_BROWSER
+                && nrOfTests + PRESPAWN_MARGIN >= MAX_NR_OF_REUSE) {
+            manager.prepareReplacementSession();
         }
         final WebBrowser browser = manager.getCurrentSession(false);
         if (browser == null) {
@@ -75,6 +102,57 @@ public class WebDriverRule extends TestWatcher {
         nrOfTests = nrOfTests + cost;
     }
 
+    /**
+     * Returns the browser to the {@link WebBrowserPool} after each test, if the
+     * pool is enabled. The costs are accumulated by the pool, a browser of a
+     * test with {@link Browser#forceRestart()} is quit.
+     */
+    @Override
+    protected void finished(Description description) {
+        if (!WebBrowserPool.isEnabled()) {
+            return;
+        }
+        final SessionManager manager = SessionManager.getInstance();
+        final WebBrowser browser = manager.getCurrentSession(false);
+        if (browser == null) {
+            return;
+        }
+        final Browser browserInfo = description.getAnnotation(Browser.class);
+        if (browserInfo == null) {
+            manager.releaseSession(browser, 1);
+        } else if (browserInfo.forceRestart()) {
+            manager.quitSession(browser);
+        } else {
+            manager.releaseSession(browser, browserInfo.cost());
+        }
+    }
+
+    /**
+     * Checks out a browser of the {@link WebBrowserPool}. If the test forces a
+     * restart, the current browser is quit and a browser which was never used
+     * by another test is checked out.
+     *
+     * @param manager the {@link SessionManager}.
+     * @param forceRestart true if the test needs a fresh browser.
+     */
+    private void startPooledBrowser(final SessionManager manager,
+            boolean forceRestart) {
+        if (!forceRestart) {
+            manager.getCurrentSession(true);
+            return;
+        }
+        final WebBrowser browser = manager.getCurrentSession(false);
+        if (browser != null) {
+            manager.quitSession(browser);
+        }
+        try {
+            manager.getFreshSession(true);
+        } catch (Exception e) {
+            throw new IllegalStateException(
+                    "Problem to start a fresh browser.", e);
+        }
+    }
+
     /**
      * Quits the browser.
      *
@@ -84,8 +162,7 @@ public class WebDriverRule extends TestWatcher {
         final WebBrowser browser = manager.getCurrentSession(false);
         if (browser != null) {
             nrOfTests = 0;
-            manager.removeSession(browser);
-            browser.quit();
+            manager.quitSession(browser);
         }
     }
 
@@ -0,0 +1,94 @@
+package de.ppi.selenium.logevent.api;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Base class for {@link EventStorage}s which can't filter by themselves.
+ * {@link #getEvents(String, EventQuery)} reads all events of the testrun and
+ * filters them with {@link EventQuery#matches(EventData)}, so existing
+ * storages only have to extend this class instead of implementing the new
+ * method.
+ *
+ */
+public abstract class AbstractEventStorage implements EventStorage {
+
+    /**
+     * {@inheritDoc} The events are read by {@link #getAllEvents(String)} and
+     * filtered in memory.
+     */
+    @Override
+    public ClosableIterable<EventData> getEvents(String testrunId,
+            final EventQuery query) {
+        final ClosableIterable<EventData> allEvents = getAllEvents(testrunId);
+        return new ClosableIterable<EventData>() {
+
+            @Override
+            public Iterator<EventData> iterator() {
+                return new FilterIterator(allEvents.iterator(), query);
+            }
+
+            @Override
+            public void close() throws Exception {
+                allEvents.close();
+            }
+        };
+    }
+
+    /**
+     * Iterator which delivers only the events which match the query.
+     */
+    private static final class FilterIterator implements Iterator<EventData> {
+
+        /** The iterator of all events. */
+        private final Iterator<EventData> events;
+
+        /** The query. */
+        private final EventQuery query;
+
+        /** The next matching event, <code>null</code> if not read yet. */
+        private EventData next;
+
+        /**
+         * Initiates an object of type FilterIterator.
+         *
+         * @param events the iterator of all events.
+         * @param query the query.
+         */
+        private FilterIterator(Iterator<EventData> events, EventQuery query) {
+            this.events = events;
+            this.query = query;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && events.hasNext()) {
+                final EventData event = events.next();
+                if (query.matches(event)) {
+                    next = event;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public EventData next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final EventData event = next;
+            next = null;
+            if (!query.isScreenshots() && event.getScreenShotType() != null) {
+                return EventData.builder(event)
+                        .screenshot(event.getScreenShotType(), (byte[]) null)
+                        .build();
+            }
+            return event;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -8,6 +8,11 @@ import org.openqa.selenium.WebDriver;
  */
 public class EmptyLogger implements EventLogger {
 
+    /**
+     * Shared instance, the logger has no state.
+     */
+    public static final EmptyLogger INSTANCE = new EmptyLogger();
+
     /**
      * {@inheritDoc}
      */
@@ -1,37 +1,51 @@
 package de.ppi.selenium.logevent.api;
 
 import java.sql.Timestamp;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RunnableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * A data-container with event-data.
+ * A data-container with event-data. An instance is created by the
+ * {@link Builder} and is immutable, so it could be handed over to other
+ * threads. Only a pending screenshot is resolved once by
+ * {@link #getScreenshot()}.
  *
  */
 public class EventData {
 
+    /**
+     * The Logger.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(EventData.class);
+
     /**
      * Technical unique-id.
      */
-    private Long id;
+    private final Long id;
 
     /**
      * when this event occurs.
      */
-    private Timestamp ts;
+    private final Timestamp ts;
 
     /**
      * The id of a testrun.
      */
-    private String testrunId;
+    private final String testrunId;
 
     /**
      * The id of the thread @see {@link Thread#getId()}.
      */
-    private long threadId;
+    private final long threadId;
 
     /**
      * The source of the event.
      */
-    private EventSource source;
+    private final EventSource source;
 
     /**
      * Identifier which defines a group of items for the given source, i.e.:
@@ -41,97 +55,122 @@ public class EventData {
      * </ul>
      * If no group exists insert the item.
      */
-    private String groupId;
+    private final String groupId;
 
     /**
      * The item which sends the event.
      */
-    private String item;
+    private final String item;
 
     /**
      * The action, so what has happens.
      */
-    private String action;
+    private final String action;
 
     /**
      * The Priority.
      */
-    private Priority priority;
+    private final Priority priority;
 
     /** A description of what has happens. */
-    private String description;
+    private final String description;
 
     /**
      * 1. possible argument for the description.
      */
-    private Object argument1;
+    private final Object argument1;
 
     /**
      * 2. possible argument for the description.
      *
      */
-    private Object argument2;
+    private final Object argument2;
 
     /**
      * 3. possible argument for the description.
      */
-    private Object argument3;
+    private final Object argument3;
 
     /**
      * 4. possible argument for the description.
      */
-    private Object argument4;
+    private final Object argument4;
 
     /**
      * Screenshottype png or html.
      */
-    private String screenShotType;
+    private final String screenShotType;
 
     /**
-     * A screenshot as byte-array.
+     * A screenshot as byte-array, guarded by <code>this</code> because it's
+     * set when the pending screenshot is resolved.
      */
     private byte[] screenshot;
 
     /**
-     * @return the id
+     * A screenshot which is still encoded by the {@link ScreenshotPipeline},
+     * guarded by <code>this</code>.
      */
-    public Long getId() {
-        return id;
-    }
+    private Future<byte[]> pendingScreenshot;
 
     /**
-     * @param id the id to set
+     * Hash of the screenshot, if the screenshot is stored outside of the
+     * event-data.
      */
-    public void setId(Long id) {
-        this.id = id;
-    }
+    private final String screenshotHash;
 
     /**
-     * @return the ts
+     * Size of the screenshot in bytes.
      */
-    public Timestamp getTs() {
-        return ts;
+    private final Integer screenshotSize;
+
+    /**
+     * Initiates an object of type EventData with the values of the builder.
+     *
+     * @param builder the builder.
+     */
+    private EventData(Builder builder) {
+        super();
+        this.id = builder.id;
+        this.ts = builder.ts;
+        this.testrunId = builder.testrunId;
+        this.threadId = builder.threadId;
+        this.source = builder.source;
+        this.groupId = builder.groupId;
+        this.item = builder.item;
+        this.action = builder.action;
+        this.priority = builder.priority;
+        this.description = builder.description;
+        this.argument1 = builder.argument1;
+        this.argument2 = builder.argument2;
+        this.argument3 = builder.argument3;
+        this.argument4 = builder.argument4;
+        this.screenShotType = builder.screenShotType;
+        this.screenshot = builder.screenshot;
+        this.pendingScreenshot = builder.pendingScreenshot;
+        this.screenshotHash = builder.screenshotHash;
+        this.screenshotSize = builder.screenshotSize;
     }
 
     /**
-     * @param ts the ts to set
+     * @return the id
      */
-    public void setTs(Timestamp ts) {
-        this.ts = ts;
+    public Long getId() {
+        return id;
     }
 
     /**
-     * @return the testrunId
+     * @return the ts
      */
-    public String getTestrunId() {
-        return testrunId;
+    public Timestamp getTs() {
+        return ts;
     }
 
     /**
-     * @param testrunId the testrunId to set
+     * @return the testrunId
      */
-    public void setTestrunId(String testrunId) {
-        this.testrunId = testrunId;
+    public String getTestrunId() {
+        return testrunId;
     }
 
     /**
@@ -141,13 +180,6 @@ public class EventData {
         return source;
     }
 
-    /**
-     * @param source the source to set
-     */
-    public void setSource(EventSource source) {
-        this.source = source;
-    }
-
     /**
      * @return the group
      */
@@ -155,13 +187,6 @@ public class EventData {
         return groupId;
     }
 
-    /**
-     * @param group the group to set
-     */
-    public void setGroupId(String group) {
-        this.groupId = group;
-    }
-
     /**
      * @return the item
      */
@@ -169,13 +194,6 @@ public class EventData {
         return item;
     }
 
-    /**
-     * @param item the item to set
-     */
-    public void setItem(String item) {
-        this.item = item;
-    }
-
     /**
      * @return the action
      */
@@ -183,13 +201,6 @@ public class EventData {
         return action;
     }
 
-    /**
-     * @param action the action to set
-     */
-    public void setAction(String action) {
-        this.action = action;
-    }
-
     /**
      * @return the priority
      */
@@ -197,13 +208,6 @@ public class EventData {
         return priority;
     }
 
-    /**
-     * @param priority the priority to set
-     */
-    public void setPriority(Priority priority) {
-        this.priority = priority;
-    }
-
     /**
      * @return the description
      */
@@ -212,24 +216,40 @@ public class EventData {
     }
 
     /**
-     * @param description the description to set
-     */
-    public void setDescription(String description) {
-        this.description = description;
-    }
-
-    /**
+     * Delivers the screenshot. If the screenshot is still pending, this method
+     * waits until it is encoded.
+     *
      * @return the screenshot
      */
-    public byte[] getScreenshot() {
+    public synchronized byte[] getScreenshot() {
+        if (screenshot == null && pendingScreenshot != null) {
+            screenshot = resolve(pendingScreenshot);
+            pendingScreenshot = null;
+        }
         return screenshot;
     }
 
     /**
-     * @param screenshot the screenshot to set
-     */
-    public void setScreenshot(byte[] screenshot) {
-        this.screenshot = screenshot;
+     * Waits for the pending screenshot. If the encoding hasn't started yet,
+     * it's done in the current thread instead of waiting for a worker.
+     *
+     * @param pending the pending screenshot.
+     * @return the screenshot or <code>null</code> if the encoding fails.
+     */
+    private static byte[] resolve(Future<byte[]> pending) {
+        if (!pending.isDone() && pending instanceof RunnableFuture) {
+            ((RunnableFuture<byte[]>) pending).run();
+        }
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn("Interrupted while waiting for the screenshot.");
+            return null;
+        } catch (ExecutionException e) {
+            LOG.error("Error during creating of the screenshot ", e.getCause());
+            return null;
+        }
     }
 
     /**
@@ -239,13 +259,6 @@ public class EventData {
         return threadId;
     }
 
-    /**
-     * @param threadId the threadId to set
-     */
-    public void setThreadId(long threadId) {
-        this.threadId = threadId;
-    }
-
     /**
      * @return the type
      */
@@ -253,13 +266,6 @@ public class EventData {
         return screenShotType;
     }
 
-    /**
-     * @param type the type to set
-     */
-    public void setScreenShotType(String type) {
-        this.screenShotType = type;
-    }
-
     /**
      * @return the argument1
      */
@@ -268,52 +274,305 @@ public class EventData {
     }
 
     /**
-     * @param argument1 the argument1 to set
+     * @return the argument2
      */
-    public void setArgument1(Object argument1) {
-        this.argument1 = argument1;
+    public Object getArgument2() {
+        return argument2;
     }
 
     /**
-     * @return the argument2
+     * @return the argument3
      */
-    public Object getArgument2() {
-        return argument2;
+    public Object getArgument3() {
+        return argument3;
     }
 
     /**
-     * @param argument2 the argument2 to set
+     * @return the argument4
      */
-    public void setArgument2(Object argument2) {
-        this.argument2 = argument2;
+    public Object getArgument4() {
+        return argument4;
     }
 
     /**
-     * @return the argument3
+     * @return the screenshotHash
      */
-    public Object getArgument3() {
-        return argument3;
+    public String getScreenshotHash() {
+        return screenshotHash;
     }
 
     /**
-     * @param argument3 the argument3 to set
+     * @return the screenshotSize
      */
-    public void setArgument3(Object argument3) {
-        this.argument3 = argument3;
+    public Integer getScreenshotSize() {
+        return screenshotSize;
     }
 
     /**
-     * @return the argument4
+     * Creates a new {@link Builder}.
+     *
+     * @return the builder.
      */
-    public Object getArgument4() {
-        return argument4;
+    public static Builder builder() {
+        return new Builder();
     }
 
     /**
-     * @param argument4 the argument4 to set
+     * Creates a new {@link Builder} with the values of the event, to create a
+     * modified copy of it.
+     *
+     * @param event the event.
+     * @return the builder.
      */
-    public void setArgument4(Object argument4) {
-        this.argument4 = argument4;
+    public static Builder builder(EventData event) {
+        final Builder builder = new Builder().id(event.id).ts(event.ts)
+                .testrunId(event.testrunId).threadId(event.threadId)
+                .source(event.source).groupId(event.groupId).item(event.item)
+                .action(event.action).priority(event.priority)
+                .description(event.description)
+                .arguments(event.argument1, event.argument2,
+                        event.argument3, event.argument4)
+                .screenshotHash(event.screenshotHash)
+                .screenshotSize(event.screenshotSize);
+        synchronized (event) {
+            if (event.pendingScreenshot != null) {
+                builder.screenshot(event.screenShotType,
+                        event.pendingScreenshot);
+            } else {
+                builder.screenshot(event.screenShotType, event.screenshot);
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * Builder for {@link EventData}. Each call of {@link #build()} delivers a
+     * new event, which isn't affected by later changes of the builder.
+     */
+    public static final class Builder {
+
+        /** Technical unique-id. */
+        private Long id;
+
+        /** When the event occurs. */
+        private Timestamp ts;
+
+        /** The id of the testrun. */
+        private String testrunId;
+
+        /** The id of the thread. */
+        private long threadId;
+
+        /** The source of the event. */
+        private EventSource source;
+
+        /** The group of the item. */
+        private String groupId;
+
+        /** The item which sends the event. */
+        private String item;
+
+        /** The action. */
+        private String action;
+
+        /** The priority. */
+        private Priority priority;
+
+        /** The description. */
+        private String description;
+
+        /** 1. argument for the description. */
+        private Object argument1;
+
+        /** 2. argument for the description. */
+        private Object argument2;
+
+        /** 3. argument for the description. */
+        private Object argument3;
+
+        /** 4. argument for the description. */
+        private Object argument4;
+
+        /** Type of the screenshot. */
+        private String screenShotType;
+
+        /** The screenshot. */
+        private byte[] screenshot;
+
+        /** The screenshot which is still encoded. */
+        private Future<byte[]> pendingScreenshot;
+
+        /** Hash of the screenshot. */
+        private String screenshotHash;
+
+        /** Size of the screenshot in bytes. */
+        private Integer screenshotSize;
+
+        /**
+         * Initiates an object of type Builder.
+         */
+        private Builder() {
+            super();
+        }
+
+        /**
+         * @param id the id to set
+         * @return this.
+         */
+        public Builder id(Long id) {
+            this.id = id;
+            return this;
+        }
+
+        /**
+         * @param ts the ts to set
+         * @return this.
+         */
+        public Builder ts(Timestamp ts) {
+            this.ts = ts;
+            return this;
+        }
+
+        /**
+         * @param testrunId the testrunId to set
+         * @return this.
+         */
+        public Builder testrunId(String testrunId) {
+            this.testrunId = testrunId;
+            return this;
+        }
+
+        /**
+         * @param threadId the threadId to set
+         * @return this.
+         */
+        public Builder threadId(long threadId) {
+            this.threadId = threadId;
+            return this;
+        }
+
+        /**
+         * @param source the source to set
+         * @return this.
+         */
+        public Builder source(EventSource source) {
+            this.source = source;
+            return this;
+        }
+
+        /**
+         * @param groupId the groupId to set
+         * @return this.
+         */
+        public Builder groupId(String groupId) {
+            this.groupId = groupId;
+            return this;
+        }
+
+        /**
+         * @param item the item to set
+         * @return this.
+         */
+        public Builder item(String item) {
+            this.item = item;
+            return this;
+        }
+
+        /**
+         * @param action the action to set
+         * @return this.
+         */
+        public Builder action(String action) {
+            this.action = action;
+            return this;
+        }
+
+        /**
+         * @param priority the priority to set
+         * @return this.
+         */
+        public Builder priority(Priority priority) {
+            this.priority = priority;
+            return this;
+        }
+
+        /**
+         * @param description the description to set
+         * @return this.
+         */
+        public Builder description(String description) {
+            this.description = description;
+            return this;
+        }
+
+        /**
+         * @param argument1 the 1. argument.
+         * @param argument2 the 2. argument.
+         * @param argument3 the 3. argument.
+         * @param argument4 the 4. argument.
+         * @return this.
+         */
+        public Builder arguments(Object argument1, Object argument2,
+                Object argument3, Object argument4) {
+            this.argument1 = argument1;
+            this.argument2 = argument2;
+            this.argument3 = argument3;
+            this.argument4 = argument4;
+            return this;
+        }
+
+        /**
+         * @param screenShotType the type of the screenshot.
+         * @param screenshot the screenshot.
+         * @return this.
+         */
+        public Builder screenshot(String screenShotType, byte[] screenshot) {
+            this.screenShotType = screenShotType;
+            this.screenshot = screenshot;
+            this.pendingScreenshot = null;
+            return this;
+        }
+
+        /**
+         * @param screenShotType the type of the screenshot.
+         * @param pendingScreenshot the future of the screenshot, it's
+         *            resolved by {@link EventData#getScreenshot()}.
+         * @return this.
+         */
+        public Builder screenshot(String screenShotType,
+                Future<byte[]> pendingScreenshot) {
+            this.screenShotType = screenShotType;
+            this.screenshot = null;
+            this.pendingScreenshot = pendingScreenshot;
+            return this;
+        }
+
+        /**
+         * @param screenshotHash the screenshotHash to set
+         * @return this.
+         */
+        public Builder screenshotHash(String screenshotHash) {
+            this.screenshotHash = screenshotHash;
+            return this;
+        }
+
+        /**
+         * @param screenshotSize the screenshotSize to set
+         * @return this.
+         */
+        public Builder screenshotSize(Integer screenshotSize) {
+            this.screenshotSize = screenshotSize;
+            return this;
+        }
+
+        /**
+         * Delivers a new event with the current values.
+         *
+         * @return the event.
+         */
+        public EventData build() {
+            return new EventData(this);
+        }
     }
 
 }
@@ -26,11 +26,12 @@ public interface EventLogger {
 
     /**
      * Define that the log should be done with screenshot if priority higher
-     * then the threshold.
+     * then the threshold. The screenshot belongs only to the returned
+     * EventLogger, this logger is unchanged.
      *
      * @param prio priority for the screenshot.
      * @param webDriver the webdriver.
-     * @return the EventLogger.
+     * @return the EventLogger, which logs the screenshot.
      */
     EventLogger withScreenshot(Priority prio, WebDriver webDriver);
 
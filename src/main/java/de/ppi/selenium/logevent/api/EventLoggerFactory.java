@@ -2,8 +2,6 @@ package de.ppi.selenium.logevent.api;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Factory to create {@link EventLogger}.
@@ -12,20 +10,20 @@ import java.util.Map;
 public final class EventLoggerFactory {
 
     /**
-     * Map which defines priorities on which the event should be logged. If the
-     * logevent has a priotity higher or equal then the defined priority, the
-     * event will be logged.
+     * Table which defines priorities on which the event should be logged. If
+     * the logevent has a priotity higher or equal then the defined priority,
+     * the event will be logged. The table is immutable and replaced on change.
      */
-    private static final Map<String, Priority> PRIORITIES =
-            new HashMap<String, Priority>();
+    private static volatile PriorityTable priorities = PriorityTable.EMPTY;
 
     /**
-     * Map which defines priorities on which a screenshot should be created. If
-     * the logevent has a priotity higher or equal then the defined priority, a
-     * screenshot will maked.
+     * Table which defines priorities on which a screenshot should be created.
+     * If the logevent has a priotity higher or equal then the defined
+     * priority, a screenshot will maked. The table is immutable and replaced
+     * on change.
      */
-    private static final Map<String, Priority> SCREENSHOT_PRIORITIES =
-            new HashMap<String, Priority>();
+    private static volatile PriorityTable screenshotPriorities =
+            PriorityTable.EMPTY;
 
     /** The storage system. */
     private static EventStorage storage;
@@ -106,64 +104,43 @@ public final class EventLoggerFactory {
      * @return a {@link EventLogger}.
      */
     public EventLogger on(Priority priority, String group, String item) {
-        if (priority.isMoreImportantThan(getPriority(PRIORITIES, eventSource,
-                group, item))) {
-            return new EventLoggerImpl(
-                    storage,
-                    testrunId,
-                    priority,
-                    getPriority(SCREENSHOT_PRIORITIES, eventSource, group, item),
+        if (priority.isMoreImportantThan(priorities.get(eventSource, group,
+                item))) {
+            return new EventLoggerImpl(storage, testrunId, priority,
+                    screenshotPriorities.get(eventSource, group, item),
                     eventSource, group, item);
         } else {
-            return new EmptyLogger();
+            return EmptyLogger.INSTANCE;
         }
     }
 
     /**
-     * Gets the priority from the map.
+     * Checks if an event with the given priority would be logged. Use it to
+     * avoid the creation of arguments for events which are discarded.
      *
-     * @param map the map with priorities.
-     * @param eventSource the event source.
-     * @param group the name of the group.
-     * @param item the item of the group.
-     * @return the priority.
+     * @param priority the priority of the event.
+     * @param group the group of the event.
+     * @param item the item of the event.
+     * @return <code>true</code> if the event would be logged.
      */
-    private Priority getPriority(Map<String, Priority> map,
-            EventSource eventSource, String group, String item) {
-        final String key1 = createKey(eventSource, group, item);
-        Priority priority = map.get(key1);
-        if (priority == null) {
-            synchronized (map) {
-                final String key2 = createKey(eventSource, null, null);
-                priority = map.get(key2);
-                if (priority == null) {
-                    priority = map.get(eventSource.name());
-                    map.put(key2, priority);
-                }
-                map.put(key1, priority);
-            }
-        }
-        return priority;
+    public boolean isEnabled(Priority priority, String group, String item) {
+        return isEnabled(priority, eventSource, group, item);
     }
 
     /**
-     * Creates a key for the given data.
+     * Checks if an event with the given priority would be logged. Use it to
+     * avoid the creation of arguments for events which are discarded.
      *
-     * @param eventSource the event source.
-     * @param group the name of the group.
-     * @param item the item of the group.
-     * @return the key.
+     * @param priority the priority of the event.
+     * @param eventSource the source of the event.
+     * @param group the group of the event.
+     * @param item the item of the event.
+     * @return <code>true</code> if the event would be logged.
      */
-    private static String createKey(EventSource eventSource, String group,
-            String item) {
-        final StringBuilder keyBuilder = new StringBuilder(eventSource.name());
-        if (group != null) {
-            keyBuilder.append('.').append(group);
-            if (item != null) {
-                keyBuilder.append('.').append(item);
-            }
-        }
-        return keyBuilder.toString();
+    public static boolean isEnabled(Priority priority,
+            EventSource eventSource, String group, String item) {
+        return priority.isMoreImportantThan(priorities.get(eventSource, group,
+                item));
     }
 
     /**
@@ -188,14 +165,10 @@ public final class EventLoggerFactory {
      *
      * @param priority the default priority.
      */
-    public static void setDefaultPriority(Priority priority) {
-        for (EventSource source : EventSource.values()) {
-            PRIORITIES.put(source.name(), priority);
-        }
-        if (SCREENSHOT_PRIORITIES.isEmpty()) {
-            for (EventSource source : EventSource.values()) {
-                SCREENSHOT_PRIORITIES.put(source.name(), priority);
-            }
+    public static synchronized void setDefaultPriority(Priority priority) {
+        priorities = priorities.withDefault(priority);
+        if (screenshotPriorities.isEmpty()) {
+            screenshotPriorities = screenshotPriorities.withDefault(priority);
         }
     }
 
@@ -208,12 +181,13 @@ public final class EventLoggerFactory {
      * @param group the name of the group.
      * @param item the item of the group.
      */
-    public static void setPriority(Priority priority, EventSource eventSource,
-            String group, String item) {
-        final String key = createKey(eventSource, group, item);
-        PRIORITIES.put(key, priority);
-        if (!SCREENSHOT_PRIORITIES.containsKey(key)) {
-            SCREENSHOT_PRIORITIES.put(key, priority);
+    public static synchronized void setPriority(Priority priority,
+            EventSource eventSource, String group, String item) {
+        priorities = priorities.with(priority, eventSource, group, item);
+        if (!screenshotPriorities.isDefined(eventSource, group, item)) {
+            screenshotPriorities =
+                    screenshotPriorities.with(priority, eventSource, group,
+                            item);
         }
     }
 
@@ -222,10 +196,9 @@ public final class EventLoggerFactory {
      *
      * @param priority the default priority for screenshots.
      */
-    public static void setDefaultScreenPriority(Priority priority) {
-        for (EventSource source : EventSource.values()) {
-            SCREENSHOT_PRIORITIES.put(source.name(), priority);
-        }
+    public static synchronized void setDefaultScreenPriority(
+            Priority priority) {
+        screenshotPriorities = screenshotPriorities.withDefault(priority);
     }
 
     /**
@@ -237,10 +210,11 @@ public final class EventLoggerFactory {
      * @param group the name of the group.
      * @param item the item of the group.
      */
-    public static void setScreenshotPriority(Priority priority,
-            EventSource eventSource, String group, String item) {
-        final String key = createKey(eventSource, group, item);
-        SCREENSHOT_PRIORITIES.put(key, priority);
+    public static synchronized void setScreenshotPriority(
+            Priority priority, EventSource eventSource, String group,
+            String item) {
+        screenshotPriorities =
+                screenshotPriorities.with(priority, eventSource, group, item);
     }
 
     /**
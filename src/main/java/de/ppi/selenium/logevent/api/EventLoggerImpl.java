@@ -1,11 +1,17 @@
 package de.ppi.selenium.logevent.api;
 
-import java.io.IOException;
 import java.sql.Timestamp;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.openqa.selenium.OutputType;
 import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebDriver;
@@ -34,21 +40,65 @@ public class EventLoggerImpl implements EventLogger {
     private static final Set<Throwable> LOGGED_ERRORS = Collections
             .synchronizedSet(new HashSet<Throwable>());
 
+    /**
+     * Number of characters of the raw output which are sampled for the cheap
+     * check if the page has changed.
+     */
+    private static final int SAMPLES = 256;
+
+    /**
+     * The last capture of each driver, so an unchanged page is only encoded
+     * once. Only a sample and the digest of the raw output are kept, and the
+     * lock is only held to look up and replace the capture.
+     */
+    private static final Map<WebDriver, Capture> LAST_CAPTURES = Collections
+            .synchronizedMap(new WeakHashMap<WebDriver, Capture>());
+
     /**
      * System to store the events.
      */
     private final EventStorage eventStorage;
 
     /**
-     * Container for the event-data.
+     * The id of the test run.
      */
-    private final EventData eventData = new EventData();
+    private final String testrunId;
+
+    /**
+     * The priority of the events.
+     */
+    private final Priority priority;
 
     /**
      * The priority for the screenshot if it lower than the normal priority.
      */
     private final Priority screenshotPriorityLevel;
 
+    /**
+     * The source of the events.
+     */
+    private final EventSource source;
+
+    /**
+     * The group of the events.
+     */
+    private final String group;
+
+    /**
+     * The item of the events.
+     */
+    private final String item;
+
+    /**
+     * Type of the screenshot, only set if the logger carries a screenshot.
+     */
+    private final String screenShotType;
+
+    /**
+     * The screenshot for the next event, <code>null</code> if there is none.
+     */
+    private final Future<byte[]> screenshot;
+
     /**
      * Initiates an object of type EventLoggerImpl.
      *
@@ -69,12 +119,36 @@ public class EventLoggerImpl implements EventLogger {
             throw new IllegalStateException("EventStorage can't be null.");
         }
         this.eventStorage = eventStorage;
-        eventData.setTestrunId(testrunId);
-        eventData.setSource(source);
-        eventData.setGroupId(group);
-        eventData.setItem(item);
-        eventData.setPriority(priority);
+        this.testrunId = testrunId;
+        this.priority = priority;
         this.screenshotPriorityLevel = screenshotPriorityLevel;
+        this.source = source;
+        this.group = group;
+        this.item = item;
+        this.screenShotType = null;
+        this.screenshot = null;
+    }
+
+    /**
+     * Initiates an object of type EventLoggerImpl as copy of the given logger
+     * with a screenshot.
+     *
+     * @param other the logger to copy.
+     * @param screenShotType the type of the screenshot.
+     * @param screenshot the screenshot.
+     */
+    private EventLoggerImpl(EventLoggerImpl other, String screenShotType,
+            Future<byte[]> screenshot) {
+        super();
+        this.eventStorage = other.eventStorage;
+        this.testrunId = other.testrunId;
+        this.priority = other.priority;
+        this.screenshotPriorityLevel = other.screenshotPriorityLevel;
+        this.source = other.source;
+        this.group = other.group;
+        this.item = other.item;
+        this.screenShotType = screenShotType;
+        this.screenshot = screenshot;
     }
 
     /**
@@ -83,31 +157,104 @@ public class EventLoggerImpl implements EventLogger {
     @Override
     public EventLogger withScreenshot(Priority prio, WebDriver webDriver) {
         if (prio.isMoreImportantThan(screenshotPriorityLevel)) {
-            try {
-                WebDriver wrappedDriver = webDriver;
-                while (wrappedDriver instanceof WrapsDriver) {
-                    wrappedDriver =
-                            ((WrapsDriver) wrappedDriver).getWrappedDriver();
-                }
-                if (wrappedDriver instanceof TakesScreenshot) {
-                    eventData.setScreenshot(((TakesScreenshot) wrappedDriver)
-                            .getScreenshotAs(OutputType.BYTES));
-                    eventData.setScreenShotType("png");
-                } else if (wrappedDriver instanceof HtmlUnitDriver) {
-                    eventData.setScreenShotType("html");
-                    eventData.setScreenshot(wrappedDriver.getPageSource()
-                            .getBytes("UTF-8"));
-                } else {
-                    LOG.warn("The current driver doesn't make screenshots");
-                }
-            } catch (IOException e) {
-                LOG.error("IO-Error during creating of the screenshot ", e);
+            WebDriver wrappedDriver = webDriver;
+            while (wrappedDriver instanceof WrapsDriver) {
+                wrappedDriver =
+                        ((WrapsDriver) wrappedDriver).getWrappedDriver();
+            }
+            // Only the raw output is grabbed here, the encoding is done
+            // by the ScreenshotPipeline.
+            if (wrappedDriver instanceof TakesScreenshot) {
+                return new EventLoggerImpl(this, "png", submit(wrappedDriver,
+                        "png", ((TakesScreenshot) wrappedDriver)
+                                .getScreenshotAs(OutputType.BASE64)));
+            } else if (wrappedDriver instanceof HtmlUnitDriver) {
+                return new EventLoggerImpl(this, "html", submit(wrappedDriver,
+                        "html", wrappedDriver.getPageSource()));
+            } else {
+                LOG.warn("The current driver doesn't make screenshots");
             }
-
         }
         return this;
     }
 
+    /**
+     * Submits the raw output of the driver to the {@link ScreenshotPipeline}.
+     * The test-thread only compares the length and a sample of the output
+     * with the last output of the driver. If they are equal, the pipeline
+     * compares the SHA-1 of the outputs and delivers the same screenshot as
+     * the previous event if the page hasn't changed.
+     *
+     * @param driver the driver.
+     * @param screenShotType the type of the screenshot, png or html.
+     * @param rawOutput the base64-png or the page-source.
+     * @return the future of the screenshot.
+     */
+    private static Future<byte[]> submit(WebDriver driver,
+            final String screenShotType, final String rawOutput) {
+        final int sample = sample(rawOutput);
+        final Capture last = LAST_CAPTURES.get(driver);
+        final Capture capture =
+                new Capture(screenShotType, rawOutput.length(), sample);
+        final boolean probablyUnchanged =
+                last != null && last.screenShotType.equals(screenShotType)
+                        && last.length == capture.length
+                        && last.sample == sample;
+        capture.screenshot =
+                ScreenshotPipeline.submit(new Callable<byte[]>() {
+                    @Override
+                    public byte[] call() throws Exception {
+                        capture.digest = DigestUtils.sha1(rawOutput);
+                        if (probablyUnchanged) {
+                            final byte[] previous = resolve(last);
+                            if (previous != null
+                                    && Arrays.equals(last.digest,
+                                            capture.digest)) {
+                                return previous;
+                            }
+                        }
+                        return ScreenshotPipeline.encode(screenShotType,
+                                rawOutput);
+                    }
+                });
+        LAST_CAPTURES.put(driver, capture);
+        return capture.screenshot;
+    }
+
+    /**
+     * Calculates a cheap hash of the length and some characters of the raw
+     * output.
+     *
+     * @param rawOutput the base64-png or the page-source.
+     * @return the hash.
+     */
+    private static int sample(String rawOutput) {
+        final int length = rawOutput.length();
+        final int step = Math.max(1, length / SAMPLES);
+        int hash = length;
+        for (int i = 0; i < length; i += step) {
+            hash = 31 * hash + rawOutput.charAt(i);
+        }
+        return hash;
+    }
+
+    /**
+     * Waits for the screenshot of the previous capture.
+     *
+     * @param capture the previous capture.
+     * @return the screenshot or <code>null</code> if it couldn't be encoded.
+     */
+    private static byte[] resolve(Capture capture) {
+        try {
+            return capture.screenshot.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -148,15 +295,19 @@ public class EventLoggerImpl implements EventLogger {
     @Override
     public void log(String action, String message, Object argument1,
             Object argument2, Object argument3, Object argument4) {
-        eventData.setTs(new Timestamp(System.currentTimeMillis()));
-        eventData.setThreadId(Thread.currentThread().getId());
-        eventData.setAction(action);
-        eventData.setDescription(message);
-        eventData.setArgument1(argument1);
-        eventData.setArgument2(argument2);
-        eventData.setArgument3(argument3);
-        eventData.setArgument4(argument4);
-        eventStorage.insert(eventData);
+        final EventData.Builder builder =
+                EventData.builder()
+                        .ts(new Timestamp(System.currentTimeMillis()))
+                        .testrunId(testrunId)
+                        .threadId(Thread.currentThread().getId())
+                        .source(source).groupId(group).item(item)
+                        .priority(priority).action(action)
+                        .description(message)
+                        .arguments(argument1, argument2, argument3, argument4);
+        if (screenshot != null) {
+            builder.screenshot(screenShotType, screenshot);
+        }
+        eventStorage.insert(builder.build());
     }
 
     /**
@@ -206,4 +357,41 @@ public class EventLoggerImpl implements EventLogger {
         return priority.isMoreImportantThan(screenshotPriorityLevel);
     }
 
+    /**
+     * The fingerprint of the raw output of a driver and its encoded
+     * screenshot.
+     */
+    private static final class Capture {
+
+        /** Type of the screenshot, png or html. */
+        private final String screenShotType;
+
+        /** Length of the base64-png or the page-source. */
+        private final int length;
+
+        /** Hash of a sample of the base64-png or the page-source. */
+        private final int sample;
+
+        /**
+         * SHA-1 of the base64-png or the page-source, calculated by the
+         * pipeline before the screenshot is delivered.
+         */
+        private volatile byte[] digest;
+
+        /** The future of the screenshot. */
+        private volatile Future<byte[]> screenshot;
+
+        /**
+         * Initiates an object of type Capture.
+         *
+         * @param screenShotType type of the screenshot, png or html.
+         * @param length length of the base64-png or the page-source.
+         * @param sample hash of a sample of the base64-png or the page-source.
+         */
+        private Capture(String screenShotType, int length, int sample) {
+            this.screenShotType = screenShotType;
+            this.length = length;
+            this.sample = sample;
+        }
+    }
 }
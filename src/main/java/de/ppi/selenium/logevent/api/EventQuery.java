@@ -0,0 +1,208 @@
+package de.ppi.selenium.logevent.api;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Defines which events of a testrun should be delivered by
+ * {@link EventStorage#getEvents(String, EventQuery)}. The query is immutable,
+ * each <code>with</code>-method returns a new query.
+ *
+ */
+public final class EventQuery {
+
+    /** Query which delivers all events with screenshots. */
+    public static final EventQuery ALL = new EventQuery(null,
+            Collections.<String> emptySet(), false, true, null, 0L);
+
+    /** Actions which mark the start and the end of a test. */
+    public static final Set<String> TEST_BOUNDARY_ACTIONS = Collections
+            .unmodifiableSet(new HashSet<String>(Arrays.asList(
+                    EventActions.TEST_START, EventActions.TEST_FINISHED,
+                    EventActions.TEST_SKIPPED,
+                    EventActions.TEST_FINISHED_WITH_EXCEPTION,
+                    EventActions.TEST_FINISHED_WITH_FAILURES)));
+
+    /** Minimal priority, <code>null</code> means all. */
+    private final Priority minPriority;
+
+    /** Allowed actions, empty means all. */
+    private final Set<String> actions;
+
+    /**
+     * True if the start- and finish-events are delivered independent of the
+     * priority.
+     */
+    private final boolean testBoundaries;
+
+    /** True if the screenshots should be loaded. */
+    private final boolean screenshots;
+
+    /** Id of the thread, <code>null</code> means all. */
+    private final Long threadId;
+
+    /** Only events with an id greater than this are delivered. */
+    private final long afterId;
+
+    /**
+     * Initiates an object of type EventQuery.
+     *
+     * @param minPriority the minimal priority.
+     * @param actions the allowed actions.
+     * @param testBoundaries true if the start- and finish-events are
+     *            delivered independent of the priority.
+     * @param screenshots true if the screenshots should be loaded.
+     * @param threadId the id of the thread.
+     * @param afterId only events with an id greater than this are delivered.
+     */
+    private EventQuery(Priority minPriority, Set<String> actions,
+            boolean testBoundaries, boolean screenshots, Long threadId,
+            long afterId) {
+        super();
+        this.minPriority = minPriority;
+        this.actions = actions;
+        this.testBoundaries = testBoundaries;
+        this.screenshots = screenshots;
+        this.threadId = threadId;
+        this.afterId = afterId;
+    }
+
+    /**
+     * Delivers only events with at least the given priority.
+     *
+     * @param priority the minimal priority, <code>null</code> means all.
+     * @return the new query.
+     */
+    public EventQuery withMinPriority(Priority priority) {
+        return new EventQuery(priority, actions, testBoundaries, screenshots,
+                threadId, afterId);
+    }
+
+    /**
+     * Delivers only events with one of the given actions.
+     *
+     * @param allowedActions the actions, no action means all.
+     * @return the new query.
+     */
+    public EventQuery withActions(String... allowedActions) {
+        return new EventQuery(minPriority, Collections.unmodifiableSet(
+                new HashSet<String>(Arrays.asList(allowedActions))),
+                testBoundaries, screenshots, threadId, afterId);
+    }
+
+    /**
+     * Delivers the start- and finish-events of the tests independent of the
+     * minimal priority, so a report could be structured by tests.
+     *
+     * @return the new query.
+     */
+    public EventQuery withTestBoundaries() {
+        return new EventQuery(minPriority, actions, true, screenshots,
+                threadId, afterId);
+    }
+
+    /**
+     * Defines if the screenshots should be loaded. If not,
+     * {@link EventData#getScreenshot()} is always <code>null</code>.
+     *
+     * @param loadScreenshots true if the screenshots should be loaded.
+     * @return the new query.
+     */
+    public EventQuery withScreenshots(boolean loadScreenshots) {
+        return new EventQuery(minPriority, actions, testBoundaries,
+                loadScreenshots, threadId, afterId);
+    }
+
+    /**
+     * Delivers only events of the given thread.
+     *
+     * @param id the id of the thread @see {@link Thread#getId()}.
+     * @return the new query.
+     */
+    public EventQuery withThreadId(long id) {
+        return new EventQuery(minPriority, actions, testBoundaries,
+                screenshots, Long.valueOf(id), afterId);
+    }
+
+    /**
+     * Delivers only events which are inserted after the event with the given
+     * id.
+     *
+     * @param id the id of an event.
+     * @return the new query.
+     */
+    public EventQuery withAfterId(long id) {
+        return new EventQuery(minPriority, actions, testBoundaries,
+                screenshots, threadId, id);
+    }
+
+    /**
+     * @return the minimal priority, <code>null</code> means all.
+     */
+    public Priority getMinPriority() {
+        return minPriority;
+    }
+
+    /**
+     * @return the allowed actions, empty means all.
+     */
+    public Set<String> getActions() {
+        return actions;
+    }
+
+    /**
+     * @return true if the start- and finish-events are delivered independent
+     *         of the priority.
+     */
+    public boolean isTestBoundaries() {
+        return testBoundaries;
+    }
+
+    /**
+     * @return true if the screenshots should be loaded.
+     */
+    public boolean isScreenshots() {
+        return screenshots;
+    }
+
+    /**
+     * @return the id of the thread, <code>null</code> means all.
+     */
+    public Long getThreadId() {
+        return threadId;
+    }
+
+    /**
+     * @return only events with an id greater than this are delivered.
+     */
+    public long getAfterId() {
+        return afterId;
+    }
+
+    /**
+     * Checks if the event matches the query, for storages which can't filter
+     * by themselves. An event without priority doesn't match a minimal
+     * priority.
+     *
+     * @param event the event.
+     * @return true if the event should be delivered.
+     */
+    public boolean matches(EventData event) {
+        if (!actions.isEmpty() && !actions.contains(event.getAction())) {
+            return false;
+        }
+        if (threadId != null && threadId.longValue() != event.getThreadId()) {
+            return false;
+        }
+        if (event.getId() != null && event.getId().longValue() <= afterId) {
+            return false;
+        }
+        return minPriority == null
+                || (event.getPriority() != null && event.getPriority()
+                        .isMoreImportantThan(minPriority))
+                || (testBoundaries && TEST_BOUNDARY_ACTIONS.contains(event
+                        .getAction()));
+    }
+}
@@ -10,24 +10,61 @@ public enum EventSource {
     /**
      * Event comes form a {@link WebElement}, before the action.
      */
-    WEBELEMENT_BEFORE,
+    WEBELEMENT_BEFORE(1),
     /**
      * Event comes form a {@link WebElement}, after the action.
      */
-    WEBELEMENT_AFTER,
+    WEBELEMENT_AFTER(2),
     /** Event comes from a widget. */
-    WIDGET,
+    WIDGET(3),
     /** Event comes from a fragment. */
-    FRAGMENT,
+    FRAGMENT(4),
     /** Event comes from a page. */
-    PAGE,
+    PAGE(5),
     /** Event comes from a webdriver or browser. */
-    WEBDRIVER_BEFORE,
+    WEBDRIVER_BEFORE(6),
     /** Event comes from a webdriver or browser. */
-    WEBDRIVER_AFTER,
+    WEBDRIVER_AFTER(7),
     /** Event comes from a assertion. */
-    ASSERTION,
+    ASSERTION(8),
     /** Event comes from a test. */
-    TEST;
+    TEST(9);
 
+    /**
+     * Code which is stored in databases.
+     */
+    private final int code;
+
+    /**
+     * Initiates an object of type EventSource.
+     *
+     * @param code the code which is stored in databases.
+     */
+    private EventSource(int code) {
+        this.code = code;
+    }
+
+    /**
+     * Delivers the code which is stored in databases.
+     *
+     * @return the code.
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Delivers the source with the given code.
+     *
+     * @param code the code.
+     * @return the source.
+     */
+    public static EventSource fromCode(int code) {
+        for (EventSource source : values()) {
+            if (source.code == code) {
+                return source;
+            }
+        }
+        throw new IllegalArgumentException("Unknown event source " + code);
+    }
 }
@@ -42,6 +42,17 @@ public interface EventStorage {
      */
     ClosableIterable<EventData> getAllEvents(String testrunId);
 
+    /**
+     * Delivers the events of a testrun which match the query as an Iterable,
+     * in the order they were inserted. Storages which can't filter by
+     * themselves could extend {@link AbstractEventStorage}.
+     *
+     * @param testrunId the id of the testrun.
+     * @param query the query.
+     * @return an Iterable of {@link EventData}.
+     */
+    ClosableIterable<EventData> getEvents(String testrunId, EventQuery query);
+
     /**
      * Delivers all Events which are a start or the end of a test as an
      * Iterable.
@@ -39,4 +39,28 @@ public enum Priority {
     public boolean isMoreImportantThan(Priority other) {
         return this.prio >= other.prio;
     }
+
+    /**
+     * Delivers the internal number, which is stored in databases.
+     *
+     * @return the internal number.
+     */
+    public int getValue() {
+        return prio;
+    }
+
+    /**
+     * Delivers the priority with the given internal number.
+     *
+     * @param value the internal number.
+     * @return the priority.
+     */
+    public static Priority fromValue(int value) {
+        for (Priority priority : values()) {
+            if (priority.prio == value) {
+                return priority;
+            }
+        }
+        throw new IllegalArgumentException("Unknown priority " + value);
+    }
 }
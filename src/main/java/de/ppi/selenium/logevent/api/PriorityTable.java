@@ -0,0 +1,213 @@
+package de.ppi.selenium.logevent.api;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable table of priorities per {@link EventSource}, group and item. The
+ * most specific definition wins: item before group before source. Changes
+ * create a new table, which shares the untouched parts with the old one, so
+ * the table could be read without any lock.
+ *
+ */
+final class PriorityTable {
+
+    /** Table without any definition. */
+    static final PriorityTable EMPTY = new PriorityTable(
+            new EnumMap<EventSource, SourcePriorities>(EventSource.class));
+
+    /** The priorities per source. */
+    private final Map<EventSource, SourcePriorities> sources;
+
+    /**
+     * Initiates an object of type PriorityTable.
+     *
+     * @param sources the priorities per source, mustn't be changed afterwards.
+     */
+    private PriorityTable(Map<EventSource, SourcePriorities> sources) {
+        super();
+        this.sources = sources;
+    }
+
+    /**
+     * Delivers the priority for the given item.
+     *
+     * @param eventSource the event source.
+     * @param group the name of the group.
+     * @param item the item of the group.
+     * @return the most specific priority or <code>null</code> if nothing is
+     *         defined for the source.
+     */
+    Priority get(EventSource eventSource, String group, String item) {
+        final SourcePriorities source = sources.get(eventSource);
+        if (source == null) {
+            return null;
+        }
+        if (group != null) {
+            final GroupPriorities groupPriorities = source.groups.get(group);
+            if (groupPriorities != null) {
+                if (item != null) {
+                    final Priority priority = groupPriorities.items.get(item);
+                    if (priority != null) {
+                        return priority;
+                    }
+                }
+                if (groupPriorities.priority != null) {
+                    return groupPriorities.priority;
+                }
+            }
+        }
+        return source.priority;
+    }
+
+    /**
+     * Checks if a priority is defined exactly for the given item.
+     *
+     * @param eventSource the event source.
+     * @param group the name of the group.
+     * @param item the item of the group.
+     * @return <code>true</code> if there is a definition.
+     */
+    boolean isDefined(EventSource eventSource, String group, String item) {
+        final SourcePriorities source = sources.get(eventSource);
+        if (source == null) {
+            return false;
+        }
+        if (group == null) {
+            return source.priority != null;
+        }
+        final GroupPriorities groupPriorities = source.groups.get(group);
+        if (groupPriorities == null) {
+            return false;
+        }
+        if (item == null) {
+            return groupPriorities.priority != null;
+        }
+        return groupPriorities.items.containsKey(item);
+    }
+
+    /**
+     * Checks if the table has no definitions.
+     *
+     * @return <code>true</code> if the table has no definitions.
+     */
+    boolean isEmpty() {
+        return sources.isEmpty();
+    }
+
+    /**
+     * Creates a new table with the given definition. If group is
+     * <code>null</code> the priority is defined for the source, if item is
+     * <code>null</code> it's defined for the group.
+     *
+     * @param priority the priority.
+     * @param eventSource the event source.
+     * @param group the name of the group.
+     * @param item the item of the group.
+     * @return the new table.
+     */
+    PriorityTable with(Priority priority, EventSource eventSource,
+            String group, String item) {
+        final Map<EventSource, SourcePriorities> newSources =
+                new EnumMap<EventSource, SourcePriorities>(sources);
+        final SourcePriorities source = newSources.get(eventSource);
+        if (group == null) {
+            newSources.put(eventSource, new SourcePriorities(priority,
+                    source == null ? Collections
+                            .<String, GroupPriorities> emptyMap()
+                            : source.groups));
+            return new PriorityTable(newSources);
+        }
+        final Map<String, GroupPriorities> newGroups =
+                new HashMap<String, GroupPriorities>();
+        Priority sourcePriority = null;
+        if (source != null) {
+            newGroups.putAll(source.groups);
+            sourcePriority = source.priority;
+        }
+        final GroupPriorities groupPriorities = newGroups.get(group);
+        if (item == null) {
+            newGroups.put(group, new GroupPriorities(priority,
+                    groupPriorities == null ? Collections
+                            .<String, Priority> emptyMap()
+                            : groupPriorities.items));
+        } else {
+            final Map<String, Priority> newItems =
+                    new HashMap<String, Priority>();
+            Priority groupPriority = null;
+            if (groupPriorities != null) {
+                newItems.putAll(groupPriorities.items);
+                groupPriority = groupPriorities.priority;
+            }
+            newItems.put(item, priority);
+            newGroups.put(group, new GroupPriorities(groupPriority, newItems));
+        }
+        newSources.put(eventSource, new SourcePriorities(sourcePriority,
+                newGroups));
+        return new PriorityTable(newSources);
+    }
+
+    /**
+     * Creates a new table where the given priority is defined for all
+     * sources. Definitions for groups and items are kept.
+     *
+     * @param priority the priority.
+     * @return the new table.
+     */
+    PriorityTable withDefault(Priority priority) {
+        PriorityTable result = this;
+        for (EventSource source : EventSource.values()) {
+            result = result.with(priority, source, null, null);
+        }
+        return result;
+    }
+
+    /**
+     * The priorities of one source.
+     */
+    private static final class SourcePriorities {
+
+        /** The priority of the source, could be <code>null</code>. */
+        private final Priority priority;
+
+        /** The priorities of the groups. */
+        private final Map<String, GroupPriorities> groups;
+
+        /**
+         * Initiates an object of type SourcePriorities.
+         *
+         * @param priority the priority of the source.
+         * @param groups the priorities of the groups.
+         */
+        private SourcePriorities(Priority priority,
+                Map<String, GroupPriorities> groups) {
+            this.priority = priority;
+            this.groups = groups;
+        }
+    }
+
+    /**
+     * The priorities of one group.
+     */
+    private static final class GroupPriorities {
+
+        /** The priority of the group, could be <code>null</code>. */
+        private final Priority priority;
+
+        /** The priorities of the items. */
+        private final Map<String, Priority> items;
+
+        /**
+         * Initiates an object of type GroupPriorities.
+         *
+         * @param priority the priority of the group.
+         * @param items the priorities of the items.
+         */
+        private GroupPriorities(Priority priority, Map<String, Priority> items) {
+            this.priority = priority;
+            this.items = items;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package de.ppi.selenium.logevent.api;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openqa.selenium.OutputType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.ppi.selenium.util.ImageUtils;
+
+/**
+ * Encodes the raw output of the driver to the bytes of a screenshot in
+ * background-threads. So the test-thread only has to grab the raw output. The
+ * result is a {@link Future} which is resolved by
+ * {@link EventData#getScreenshot()}.
+ *
+ * The pipeline could be configured by the system-properties:
+ * <ul>
+ * <li><code>webtest.screenshot.threads</code> - number of threads, default is
+ * the half of the processors.</li>
+ * <li><code>webtest.screenshot.maxWidth</code> - if greater than 0, png
+ * screenshots are scaled down to this width.</li>
+ * </ul>
+ */
+public final class ScreenshotPipeline {
+
+    /**
+     * The Logger.
+     */
+    private static final Logger LOG = LoggerFactory
+            .getLogger(ScreenshotPipeline.class);
+
+    /** Maximal number of screenshots which waits for encoding. */
+    private static final int QUEUE_SIZE = 64;
+
+    /** Encoding of html-screenshots. */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** Maximal width of png-screenshots, 0 means no scaling. */
+    private static final int MAX_WIDTH = Integer.getInteger(
+            "webtest.screenshot.maxWidth", 0).intValue();
+
+    /** The worker-threads. */
+    private static final ExecutorService EXECUTOR = createExecutor(Integer
+            .getInteger("webtest.screenshot.threads",
+                    Math.max(1, Runtime.getRuntime().availableProcessors() / 2))
+            .intValue());
+
+    /**
+     * Initiates an object of type ScreenshotPipeline.
+     */
+    private ScreenshotPipeline() {
+        super();
+    }
+
+    /**
+     * Creates the executor. If the queue is full the screenshot is encoded by
+     * the test-thread, so the memory is limited.
+     *
+     * @param nrOfThreads the number of threads.
+     * @return the executor.
+     */
+    private static ExecutorService createExecutor(int nrOfThreads) {
+        final AtomicInteger threadNr = new AtomicInteger();
+        final ThreadFactory threadFactory = new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread =
+                        new Thread(runnable, "webtest-screenshot-"
+                                + threadNr.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+        return new ThreadPoolExecutor(nrOfThreads, nrOfThreads, 0L,
+                TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(
+                        QUEUE_SIZE), threadFactory,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Submits a png-screenshot for encoding.
+     *
+     * @param base64Png the png as base64, like
+     *            {@link org.openqa.selenium.TakesScreenshot} delivers it.
+     * @return the future of the png-bytes.
+     */
+    public static Future<byte[]> submitPng(final String base64Png) {
+        return EXECUTOR.submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() {
+                return encodePng(base64Png, MAX_WIDTH);
+            }
+        });
+    }
+
+    /**
+     * Submits a html-screenshot for encoding.
+     *
+     * @param pageSource the source of the page.
+     * @return the future of the html-bytes.
+     */
+    public static Future<byte[]> submitHtml(final String pageSource) {
+        return EXECUTOR.submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() {
+                return encodeHtml(pageSource);
+            }
+        });
+    }
+
+    /**
+     * Submits a task which delivers a screenshot to the worker-threads.
+     *
+     * @param task the task.
+     * @return the future of the screenshot.
+     */
+    static Future<byte[]> submit(Callable<byte[]> task) {
+        return EXECUTOR.submit(task);
+    }
+
+    /**
+     * Encodes the raw output of the driver in the current thread.
+     *
+     * @param screenShotType the type of the screenshot, png or html.
+     * @param rawOutput the base64-png or the page-source.
+     * @return the bytes of the screenshot.
+     */
+    static byte[] encode(String screenShotType, String rawOutput) {
+        if ("png".equals(screenShotType)) {
+            return encodePng(rawOutput, MAX_WIDTH);
+        }
+        return encodeHtml(rawOutput);
+    }
+
+    /**
+     * Decodes the png and scales it down.
+     *
+     * @param base64Png the png as base64.
+     * @param maxWidth the maximal width, 0 means no scaling.
+     * @return the png-bytes.
+     */
+    static byte[] encodePng(String base64Png, int maxWidth) {
+        final byte[] png = OutputType.BYTES.convertFromBase64Png(base64Png);
+        if (maxWidth <= 0) {
+            return png;
+        }
+        return scale(png, maxWidth);
+    }
+
+    /**
+     * Encodes the page-source.
+     *
+     * @param pageSource the source of the page.
+     * @return the html-bytes.
+     */
+    static byte[] encodeHtml(String pageSource) {
+        return pageSource.getBytes(UTF8);
+    }
+
+    /**
+     * Scales the png down to the maximal width.
+     *
+     * @param png the png.
+     * @param maxWidth the maximal width.
+     * @return the scaled png or the original, if it can't be scaled.
+     */
+    private static byte[] scale(byte[] png, int maxWidth) {
+        try {
+            final BufferedImage image = ImageUtils.read(png);
+            if (image.getWidth() <= maxWidth) {
+                return png;
+            }
+            return ImageUtils.toPng(ImageUtils.scaleToWidth(image, maxWidth));
+        } catch (IOException e) {
+            LOG.warn("Screenshot can't be scaled.", e);
+            return png;
+        }
+    }
+}
@@ -0,0 +1,577 @@
+package de.ppi.selenium.logevent.backend;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.ppi.selenium.logevent.api.ClosableIterable;
+import de.ppi.selenium.logevent.api.EventData;
+import de.ppi.selenium.logevent.api.EventQuery;
+import de.ppi.selenium.logevent.api.EventStorage;
+import de.ppi.selenium.logevent.api.Priority;
+
+/**
+ * {@link EventStorage} which decouples the test-thread from the real storage.
+ * The events are put into a bounded queue, which is drained by a dedicated
+ * writer-thread. All calls to the wrapped storage happens at this thread, so
+ * it needn't to be thread-safe. {@link #write()} and {@link #close()} wait
+ * until all events before are handed over to the wrapped storage.
+ *
+ */
+public class AsyncEventStorage implements EventStorage {
+
+    /**
+     * Defines what happens if the queue is full.
+     */
+    public enum OverflowPolicy {
+        /** The test-thread waits until there is space. */
+        BLOCK,
+        /**
+         * Events with {@link Priority#DEBUG} are dropped, for more important
+         * events a queued debug-event is dropped or the test-thread waits.
+         */
+        DROP_DEBUG,
+        /**
+         * The events are appended to an overflow-list, until the queue is
+         * free. The writer-thread moves them to a temporary file, so the
+         * test-thread never waits for pending screenshots.
+         */
+        SPILL_TO_DISK
+    }
+
+    /** Default capacity of the queue. */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /** Logger instance. */
+    private static final Logger LOG = LoggerFactory
+            .getLogger(AsyncEventStorage.class);
+
+    /** Command to insert an event. */
+    private static final int INSERT = 0;
+
+    /** Command to hand over all queued events. */
+    private static final int DRAIN = 1;
+
+    /** Command to write the events. */
+    private static final int WRITE = 2;
+
+    /** Command to close the storage. */
+    private static final int CLOSE = 3;
+
+    /** Command to open the storage. */
+    private static final int OPEN = 4;
+
+    /** The real storage. */
+    private final EventStorage delegate;
+
+    /** The queue between test-threads and writer-thread. */
+    private final BlockingQueue<Entry> queue;
+
+    /** The policy if the queue is full. */
+    private final OverflowPolicy overflowPolicy;
+
+    /** Lock for the overflow-list and {@link #spilling}. */
+    private final Object spillLock = new Object();
+
+    /**
+     * Events which didn't fit into the queue and aren't spilled yet, guarded
+     * by {@link #spillLock}.
+     */
+    private final ArrayDeque<EventData> overflow = new ArrayDeque<EventData>();
+
+    /** Number of dropped events. */
+    private final AtomicLong droppedEvents = new AtomicLong();
+
+    /**
+     * File where events are spilled to, if the queue is full. Only used by
+     * the writer-thread.
+     */
+    private File spillFile;
+
+    /** Stream to the spill-file. Only used by the writer-thread. */
+    private DataOutputStream spillOut;
+
+    /** Number of events in the spill-file. Only used by the writer-thread. */
+    private int spillCount;
+
+    /**
+     * True if events are spilled, as long as this is true all events must be
+     * spilled to keep the order. Guarded by {@link #spillLock}.
+     */
+    private boolean spilling;
+
+    /** The writer-thread. */
+    private volatile Thread writer;
+
+    /**
+     * Initiates an object of type AsyncEventStorage with
+     * {@link #DEFAULT_CAPACITY} and {@link OverflowPolicy#BLOCK}.
+     *
+     * @param delegate the real storage.
+     */
+    public AsyncEventStorage(EventStorage delegate) {
+        this(delegate, DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * Initiates an object of type AsyncEventStorage.
+     *
+     * @param delegate the real storage.
+     * @param capacity the capacity of the queue.
+     * @param overflowPolicy the policy if the queue is full.
+     */
+    public AsyncEventStorage(EventStorage delegate, int capacity,
+            OverflowPolicy overflowPolicy) {
+        super();
+        if (delegate == null) {
+            throw new IllegalArgumentException("Delegate can't be null.");
+        }
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<Entry>(capacity);
+        this.overflowPolicy = overflowPolicy;
+        startWriter();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void open() {
+        if (writer == null) {
+            startWriter();
+        }
+        execute(OPEN);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void insert(EventData eventData) {
+        if (writer == null) {
+            LOG.warn("Storage is closed, event {} is dropped.",
+                    eventData.getAction());
+            return;
+        }
+        final Entry entry = new Entry(INSERT, eventData);
+        switch (overflowPolicy) {
+        case DROP_DEBUG:
+            if (!queue.offer(entry)) {
+                if (Priority.DEBUG == eventData.getPriority()) {
+                    dropped();
+                } else {
+                    dropQueuedDebugEvent();
+                    put(entry);
+                }
+            }
+            break;
+        case SPILL_TO_DISK:
+            synchronized (spillLock) {
+                if (spilling || !queue.offer(entry)) {
+                    overflow.addLast(eventData);
+                    spilling = true;
+                }
+            }
+            break;
+        default:
+            put(entry);
+            break;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write() {
+        execute(WRITE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        if (writer != null) {
+            execute(CLOSE);
+        }
+        if (droppedEvents.get() > 0) {
+            LOG.warn("{} events were dropped, because the queue was full.",
+                    Long.valueOf(droppedEvents.get()));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ClosableIterable<EventData> getAllEvents(String testrunId) {
+        if (writer != null) {
+            execute(DRAIN);
+        }
+        return delegate.getAllEvents(testrunId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ClosableIterable<EventData> getEvents(String testrunId,
+            EventQuery query) {
+        if (writer != null) {
+            execute(DRAIN);
+        }
+        return delegate.getEvents(testrunId, query);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ClosableIterable<EventData> getAllStartAndFinishEvents() {
+        if (writer != null) {
+            execute(DRAIN);
+        }
+        return delegate.getAllStartAndFinishEvents();
+    }
+
+    /**
+     * @return the number of events which were dropped, because the queue was
+     *         full.
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    /**
+     * Starts the writer-thread.
+     */
+    private synchronized void startWriter() {
+        if (writer != null) {
+            return;
+        }
+        final Thread thread = new Thread("webtest-event-writer") {
+            @Override
+            public void run() {
+                processQueue();
+            }
+        };
+        thread.setDaemon(true);
+        writer = thread;
+        thread.start();
+    }
+
+    /**
+     * Put the command into the queue and waits until it's executed. If the
+     * writer has stopped, the command is rejected immediately.
+     *
+     * @param command the command.
+     */
+    private void execute(int command) {
+        final Entry entry = new Entry(command, null);
+        if (writer == null) {
+            rejectCommand(entry);
+        } else {
+            put(entry);
+            if (writer == null && queue.remove(entry)) {
+                // The writer has stopped before it could release the entry.
+                rejectCommand(entry);
+            }
+        }
+        try {
+            entry.done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(
+                    "Interrupted during waiting for the event-writer.", e);
+        }
+        if (entry.failure instanceof RuntimeException) {
+            throw (RuntimeException) entry.failure;
+        } else if (entry.failure instanceof Error) {
+            throw (Error) entry.failure;
+        }
+    }
+
+    /**
+     * Put the entry into the queue and wait if necessary.
+     *
+     * @param entry the entry.
+     */
+    private void put(Entry entry) {
+        try {
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(
+                    "Interrupted during waiting for the event-queue.", e);
+        }
+    }
+
+    /**
+     * Removes a queued event with priority {@link Priority#DEBUG}.
+     *
+     * @return true if an event was removed.
+     */
+    private boolean dropQueuedDebugEvent() {
+        final Iterator<Entry> entries = queue.iterator();
+        while (entries.hasNext()) {
+            final Entry entry = entries.next();
+            if (entry.command == INSERT
+                    && Priority.DEBUG == entry.event.getPriority()
+                    && queue.remove(entry)) {
+                dropped();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts a dropped event and logs it the first time.
+     */
+    private void dropped() {
+        if (droppedEvents.incrementAndGet() == 1) {
+            LOG.warn("Event-queue is full, debug-events are dropped.");
+        }
+    }
+
+    /**
+     * Moves the events of the overflow-list to the spill-file, so they don't
+     * stay in memory while the delegate is busy. Must be called from the
+     * writer-thread, because the pending screenshots are resolved here.
+     *
+     * @throws IOException if the spill-file can't be written.
+     */
+    private void spillOverflow() throws IOException {
+        while (true) {
+            final EventData event;
+            synchronized (spillLock) {
+                event = overflow.pollFirst();
+            }
+            if (event == null) {
+                return;
+            }
+            if (spillOut == null) {
+                spillFile = File.createTempFile("webtest-events", ".spill");
+                spillFile.deleteOnExit();
+                spillOut =
+                        new DataOutputStream(new BufferedOutputStream(
+                                new FileOutputStream(spillFile)));
+            }
+            EventDataCodec.write(spillOut, event);
+            spillCount++;
+        }
+    }
+
+    /**
+     * Hands over all spilled events to the delegate, first the events of the
+     * spill-file then the events of the overflow-list. Must be called from the
+     * writer-thread.
+     *
+     * @throws IOException if the spill-file can't be read.
+     */
+    private void drainSpill() throws IOException {
+        while (true) {
+            if (spillCount > 0) {
+                drainSpillFile();
+            }
+            final List<EventData> events;
+            synchronized (spillLock) {
+                if (overflow.isEmpty()) {
+                    spilling = false;
+                    return;
+                }
+                events = new ArrayList<EventData>(overflow);
+                overflow.clear();
+            }
+            for (EventData event : events) {
+                delegate.insert(event);
+            }
+        }
+    }
+
+    /**
+     * Hands over the events of the spill-file to the delegate and deletes the
+     * file. Must be called from the writer-thread.
+     *
+     * @throws IOException if the spill-file can't be read.
+     */
+    private void drainSpillFile() throws IOException {
+        spillOut.close();
+        spillOut = null;
+        final File file = spillFile;
+        final int count = spillCount;
+        spillFile = null;
+        spillCount = 0;
+        final DataInputStream in =
+                new DataInputStream(new BufferedInputStream(
+                        new FileInputStream(file)));
+        try {
+            for (int i = 0; i < count; i++) {
+                delegate.insert(EventDataCodec.read(in));
+            }
+        } finally {
+            IOUtils.closeQuietly(in);
+            if (!file.delete()) {
+                LOG.warn("Can't delete spill-file {}.", file);
+            }
+        }
+    }
+
+    /**
+     * Loop of the writer-thread.
+     */
+    private void processQueue() {
+        boolean closed = false;
+        while (!closed) {
+            final Entry entry;
+            try {
+                entry = queue.take();
+            } catch (InterruptedException e) {
+                LOG.warn("Event-writer interrupted, stop writing.");
+                writer = null;
+                break;
+            }
+            try {
+                if (overflowPolicy == OverflowPolicy.SPILL_TO_DISK) {
+                    spillOverflow();
+                }
+                if (entry.command != INSERT) {
+                    drainSpill();
+                }
+                switch (entry.command) {
+                case INSERT:
+                    delegate.insert(entry.event);
+                    break;
+                case WRITE:
+                    delegate.write();
+                    break;
+                case CLOSE:
+                    writer = null;
+                    closed = true;
+                    delegate.close();
+                    break;
+                case OPEN:
+                    delegate.open();
+                    break;
+                default:
+                    break;
+                }
+                if (overflowPolicy == OverflowPolicy.SPILL_TO_DISK
+                        && queue.isEmpty()) {
+                    drainSpill();
+                }
+            } catch (Throwable e) {
+                if (entry.command == INSERT) {
+                    LOG.error("Error storing event.", e);
+                } else {
+                    entry.failure = e;
+                }
+            } finally {
+                if (entry.done != null) {
+                    entry.done.countDown();
+                }
+            }
+        }
+        releaseQueue();
+    }
+
+    /**
+     * Empties the queue after the writer has stopped, so nobody waits for an
+     * entry which is never executed. Must be called after the writer is set
+     * to <code>null</code>.
+     */
+    private void releaseQueue() {
+        int lostEvents = 0;
+        Entry entry;
+        while ((entry = queue.poll()) != null) {
+            if (entry.command == INSERT) {
+                lostEvents++;
+            } else {
+                rejectCommand(entry);
+            }
+        }
+        synchronized (spillLock) {
+            lostEvents += overflow.size();
+            overflow.clear();
+        }
+        if (spillOut != null) {
+            lostEvents += spillCount;
+            IOUtils.closeQuietly(spillOut);
+            spillOut = null;
+            spillCount = 0;
+            if (!spillFile.delete()) {
+                LOG.warn("Can't delete spill-file {}.", spillFile);
+            }
+            spillFile = null;
+        }
+        if (lostEvents > 0) {
+            LOG.warn("{} events were dropped, because the storage is closed.",
+                    Integer.valueOf(lostEvents));
+        }
+    }
+
+    /**
+     * Releases a command which can't be executed anymore. Writing and opening
+     * fail, for closing and draining there is nothing to do.
+     *
+     * @param entry the entry of the command.
+     */
+    private static void rejectCommand(Entry entry) {
+        if (entry.command == WRITE || entry.command == OPEN) {
+            entry.failure =
+                    new IllegalStateException("The storage is closed.");
+        }
+        entry.done.countDown();
+    }
+
+    /**
+     * Entry in the queue.
+     */
+    private static final class Entry {
+
+        /** The command. */
+        private final int command;
+
+        /** The event, if the command is {@link AsyncEventStorage#INSERT}. */
+        private final EventData event;
+
+        /**
+         * Signals that the command is executed, <code>null</code> for
+         * {@link AsyncEventStorage#INSERT} because nobody waits for it.
+         */
+        private final CountDownLatch done;
+
+        /** Error during executing the command. */
+        private volatile Throwable failure;
+
+        /**
+         * Initiates an object of type Entry.
+         *
+         * @param command the command.
+         * @param event the event.
+         */
+        private Entry(int command, EventData event) {
+            this.command = command;
+            this.event = event;
+            this.done = command == INSERT ? null : new CountDownLatch(1);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package de.ppi.selenium.logevent.backend;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.sql.Timestamp;
+
+import de.ppi.selenium.logevent.api.EventData;
+import de.ppi.selenium.logevent.api.EventSource;
+import de.ppi.selenium.logevent.api.Priority;
+
+/**
+ * Binary representation of {@link EventData}, for backends which store the
+ * events without a database. Arguments are stored as strings, like the
+ * {@link Sql2oEventStorage} does.
+ *
+ */
+final class EventDataCodec {
+
+    /** Encoding of all strings. */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Initiates an object of type EventDataCodec.
+     */
+    private EventDataCodec() {
+        super();
+    }
+
+    /**
+     * Writes the event.
+     *
+     * @param out the output.
+     * @param event the event.
+     * @throws IOException if the output can't be written.
+     */
+    static void write(DataOutput out, EventData event) throws IOException {
+        write(out, event.getId(), event);
+    }
+
+    /**
+     * Writes the event with the given id instead of the id of the event.
+     *
+     * @param out the output.
+     * @param id the id.
+     * @param event the event.
+     * @throws IOException if the output can't be written.
+     */
+    static void write(DataOutput out, Long id, EventData event)
+            throws IOException {
+        writeLong(out, id);
+        out.writeLong(event.getTs() == null ? 0L : event.getTs().getTime());
+        writeString(out, event.getTestrunId());
+        out.writeLong(event.getThreadId());
+        writeString(out, event.getSource() == null ? null : event.getSource()
+                .name());
+        writeString(out, event.getGroupId());
+        writeString(out, event.getItem());
+        writeString(out, event.getAction());
+        writeString(out, event.getPriority() == null ? null : event
+                .getPriority().name());
+        writeString(out, event.getDescription());
+        writeString(out, object2String(event.getArgument1()));
+        writeString(out, object2String(event.getArgument2()));
+        writeString(out, object2String(event.getArgument3()));
+        writeString(out, object2String(event.getArgument4()));
+        writeString(out, event.getScreenShotType());
+        writeBytes(out, event.getScreenshot());
+        writeString(out, event.getScreenshotHash());
+        out.writeInt(event.getScreenshotSize() == null ? -1 : event
+                .getScreenshotSize().intValue());
+    }
+
+    /**
+     * Reads an event, which was written by
+     * {@link #write(DataOutput, EventData)}.
+     *
+     * @param in the input.
+     * @return the event.
+     * @throws IOException if the input can't be read.
+     */
+    static EventData read(DataInput in) throws IOException {
+        final EventData.Builder event =
+                EventData.builder().id(readLong(in))
+                        .ts(new Timestamp(in.readLong()))
+                        .testrunId(readString(in)).threadId(in.readLong());
+        final String source = readString(in);
+        event.source(source == null ? null : EventSource.valueOf(source));
+        event.groupId(readString(in)).item(readString(in))
+                .action(readString(in));
+        final String priority = readString(in);
+        event.priority(priority == null ? null : Priority.valueOf(priority));
+        event.description(readString(in)).arguments(readString(in),
+                readString(in), readString(in), readString(in));
+        event.screenshot(readString(in), readBytes(in)).screenshotHash(
+                readString(in));
+        final int screenshotSize = in.readInt();
+        event.screenshotSize(screenshotSize < 0 ? null : Integer
+                .valueOf(screenshotSize));
+        return event.build();
+    }
+
+    /**
+     * Convert an Object to String.
+     *
+     * @param object the object.
+     * @return <code>null</code> if object is <code>null</code>.
+     */
+    private static String object2String(Object object) {
+        return object == null ? null : object.toString();
+    }
+
+    /**
+     * Writes a nullable long.
+     *
+     * @param out the output.
+     * @param value the value.
+     * @throws IOException if the output can't be written.
+     */
+    private static void writeLong(DataOutput out, Long value)
+            throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.longValue());
+        }
+    }
+
+    /**
+     * Reads a nullable long.
+     *
+     * @param in the input.
+     * @return the value.
+     * @throws IOException if the input can't be read.
+     */
+    private static Long readLong(DataInput in) throws IOException {
+        return in.readBoolean() ? Long.valueOf(in.readLong()) : null;
+    }
+
+    /**
+     * Writes a nullable string, as UTF-8 without the 64k-limit of
+     * {@link DataOutput#writeUTF(String)}.
+     *
+     * @param out the output.
+     * @param value the value.
+     * @throws IOException if the output can't be written.
+     */
+    private static void writeString(DataOutput out, String value)
+            throws IOException {
+        writeBytes(out, value == null ? null : value.getBytes(UTF8));
+    }
+
+    /**
+     * Reads a nullable string.
+     *
+     * @param in the input.
+     * @return the value.
+     * @throws IOException if the input can't be read.
+     */
+    private static String readString(DataInput in) throws IOException {
+        final byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, UTF8);
+    }
+
+    /**
+     * Writes a nullable byte-array with a length-prefix.
+     *
+     * @param out the output.
+     * @param value the value.
+     * @throws IOException if the output can't be written.
+     */
+    private static void writeBytes(DataOutput out, byte[] value)
+            throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(value.length);
+            out.write(value);
+        }
+    }
+
+    /**
+     * Reads a nullable byte-array.
+     *
+     * @param in the input.
+     * @return the value.
+     * @throws IOException if the input can't be read.
+     */
+    private static byte[] readBytes(DataInput in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
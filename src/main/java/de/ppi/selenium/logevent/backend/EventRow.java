@@ -0,0 +1,112 @@
+package de.ppi.selenium.logevent.backend;
+
+import java.sql.Timestamp;
+
+import de.ppi.selenium.logevent.api.EventData;
+import de.ppi.selenium.logevent.api.EventSource;
+import de.ppi.selenium.logevent.api.Priority;
+
+/**
+ * A row of the EVENTS-table, which is filled by Sql2o and converted to an
+ * immutable {@link EventData}.
+ *
+ */
+class EventRow {
+
+    /** Technical unique-id. */
+    private Long id;
+
+    /** When this event occurs. */
+    private Timestamp ts;
+
+    /** The id of a testrun. */
+    private String testrunId;
+
+    /** The id of the thread. */
+    private long threadId;
+
+    /** The source of the event. */
+    private EventSource source;
+
+    /** The group of the item. */
+    private String groupId;
+
+    /** The item which sends the event. */
+    private String item;
+
+    /** The action. */
+    private String action;
+
+    /** The priority. */
+    private Priority priority;
+
+    /** The description. */
+    private String description;
+
+    /** 1. argument for the description. */
+    private String argument1;
+
+    /** 2. argument for the description. */
+    private String argument2;
+
+    /** 3. argument for the description. */
+    private String argument3;
+
+    /** 4. argument for the description. */
+    private String argument4;
+
+    /** Screenshottype png or html. */
+    private String screenShotType;
+
+    /** The screenshot, <code>null</code> if it isn't selected. */
+    private byte[] screenshot;
+
+    /** Hash of the screenshot. */
+    private String screenshotHash;
+
+    /** Size of the screenshot in bytes. */
+    private Integer screenshotSize;
+
+    /**
+     * @return the id
+     */
+    Long getId() {
+        return id;
+    }
+
+    /**
+     * @return the type of the screenshot.
+     */
+    String getScreenShotType() {
+        return screenShotType;
+    }
+
+    /**
+     * @return the screenshot.
+     */
+    byte[] getScreenshot() {
+        return screenshot;
+    }
+
+    /**
+     * @return the screenshotHash
+     */
+    String getScreenshotHash() {
+        return screenshotHash;
+    }
+
+    /**
+     * Creates a builder with the values of the row.
+     *
+     * @return the builder.
+     */
+    EventData.Builder toBuilder() {
+        return EventData.builder().id(id).ts(ts).testrunId(testrunId)
+                .threadId(threadId).source(source).groupId(groupId)
+                .item(item).action(action).priority(priority)
+                .description(description)
+                .arguments(argument1, argument2, argument3, argument4)
+                .screenshot(screenShotType, screenshot)
+                .screenshotHash(screenshotHash).screenshotSize(screenshotSize);
+    }
+}
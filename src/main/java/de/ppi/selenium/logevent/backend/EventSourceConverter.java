@@ -0,0 +1,48 @@
+package de.ppi.selenium.logevent.backend;
+
+import org.sql2o.converters.Converter;
+import org.sql2o.converters.ConverterException;
+
+import de.ppi.selenium.logevent.api.EventSource;
+
+/**
+ * Sql2o-{@link Converter} which stores an {@link EventSource} as its code. It
+ * reads also the names, which older versions have stored.
+ *
+ */
+class EventSourceConverter implements Converter<EventSource> {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public EventSource convert(Object val) throws ConverterException {
+        if (val == null) {
+            return null;
+        }
+        if (val instanceof EventSource) {
+            return (EventSource) val;
+        }
+        try {
+            if (val instanceof Number) {
+                return EventSource.fromCode(((Number) val).intValue());
+            }
+            final String text = val.toString().trim();
+            if (text.matches("\\d+")) {
+                return EventSource.fromCode(Integer.parseInt(text));
+            }
+            return EventSource.valueOf(text);
+        } catch (IllegalArgumentException e) {
+            throw new ConverterException("Can't convert " + val
+                    + " to an event source.", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object toDatabaseParam(EventSource val) {
+        return val == null ? null : Integer.valueOf(val.getCode());
+    }
+}
@@ -0,0 +1,105 @@
+package de.ppi.selenium.logevent.backend;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * {@link ScreenshotStore} which writes each screenshot to a file named by the
+ * SHA-1 hash of its content. The files are distributed to subdirectories by
+ * the first 2 characters of the hash.
+ *
+ */
+public class FileScreenshotStore implements ScreenshotStore {
+
+    /** Length of the prefix which defines the subdirectory. */
+    private static final int PREFIX_LENGTH = 2;
+
+    /** The base-directory. */
+    private final File baseDir;
+
+    /**
+     * Initiates an object of type FileScreenshotStore.
+     *
+     * @param baseDir the base-directory.
+     */
+    public FileScreenshotStore(String baseDir) {
+        super();
+        this.baseDir = new File(baseDir);
+        if (!this.baseDir.exists() && !this.baseDir.mkdirs()) {
+            throw new IllegalStateException(this.baseDir.getAbsolutePath()
+                    + " can't be created.");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String put(byte[] screenshot, String screenShotType) {
+        final String hash = DigestUtils.sha1Hex(screenshot);
+        final File target = getFile(hash, screenShotType);
+        if (target.exists()) {
+            return hash;
+        }
+        try {
+            final File dir = target.getParentFile();
+            if (!dir.exists() && !dir.mkdirs() && !dir.exists()) {
+                throw new IOException(dir.getAbsolutePath()
+                        + " can't be created.");
+            }
+            final File tmp =
+                    File.createTempFile(hash, ".tmp", dir);
+            FileUtils.writeByteArrayToFile(tmp, screenshot);
+            try {
+                Files.move(tmp.toPath(), target.toPath(),
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), target.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (FileAlreadyExistsException e) {
+                // Another thread has stored the same screenshot.
+                Files.deleteIfExists(tmp.toPath());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't store screenshot "
+                    + target.getAbsolutePath(), e);
+        }
+        return hash;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte[] get(String hash, String screenShotType) {
+        final File file = getFile(hash, screenShotType);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            return FileUtils.readFileToByteArray(file);
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't read screenshot "
+                    + file.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Delivers the file for the screenshot.
+     *
+     * @param hash the hash of the screenshot.
+     * @param screenShotType the type of the screenshot.
+     * @return the file.
+     */
+    private File getFile(String hash, String screenShotType) {
+        final File dir = new File(baseDir, hash.substring(0, PREFIX_LENGTH));
+        return new File(dir, hash + "." + screenShotType);
+    }
+}
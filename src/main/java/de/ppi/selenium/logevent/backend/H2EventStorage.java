@@ -1,16 +1,34 @@
 package de.ppi.selenium.logevent.backend;
 
+import java.util.Locale;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.sql2o.Connection;
 
+import de.ppi.selenium.logevent.api.EventSource;
 import de.ppi.selenium.logevent.api.EventStorage;
+import de.ppi.selenium.logevent.api.Priority;
 
 /**
- * {@link EventStorage} which use H2-Database.
+ * {@link EventStorage} which use H2-Database. Databases of older versions are
+ * migrated to the current schema, which is stored in EVENTS_SCHEMA.
  *
  */
-// TODO PriorityConverter so that the int value can used.
 public class H2EventStorage extends Sql2oEventStorage {
 
+    /**
+     * The Logger.
+     */
+    private static final Logger LOG = LoggerFactory
+            .getLogger(H2EventStorage.class);
+
+    /**
+     * Version of the schema. Version 2 stores priority and source as INT and
+     * has indexes.
+     */
+    private static final int SCHEMA_VERSION = 2;
+
     /**
      * Initiates an object of type H2EventStorage.
      *
@@ -22,6 +40,44 @@ public class H2EventStorage extends Sql2oEventStorage {
         super(connectURL, user, password);
     }
 
+    /**
+     * Initiates an object of type H2EventStorage, where each thread gets its
+     * own connection.
+     *
+     * @param connectURL connectURL
+     * @param user the user
+     * @param password the password.
+     * @param maxConnections the maximal number of connections.
+     */
+    public H2EventStorage(String connectURL, String user, String password,
+            int maxConnections) {
+        super(connectURL, user, password, maxConnections);
+    }
+
+    /**
+     * Initiates an object of type H2EventStorage, which stores the screenshots
+     * in the given {@link ScreenshotStore}.
+     *
+     * @param connectURL connectURL
+     * @param user the user
+     * @param password the password.
+     * @param maxConnections the maximal number of connections.
+     * @param screenshotStore the store for the screenshots.
+     */
+    public H2EventStorage(String connectURL, String user, String password,
+            int maxConnections, ScreenshotStore screenshotStore) {
+        super(connectURL, user, password, maxConnections, screenshotStore);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected String getScreenshotByHashSql() {
+        return "select screenshot from EVENTS where screenshotHash = :hash "
+                + "and screenshot is not null limit 1";
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -31,12 +87,95 @@ public class H2EventStorage extends Sql2oEventStorage {
                 .createQuery(
                         "CREATE TABLE IF NOT EXISTS EVENTS (id IDENTITY,  ts TIMESTAMP NOT NULL, "
                                 + "testrunid VARCHAR(100) NOT NULL, "
-                                + "threadid BIGINT NOT NULL, source VARCHAR(30) NOT NULL, "
+                                + "threadid BIGINT NOT NULL, source INT NOT NULL, "
                                 + "groupid VARCHAR(500) NOT NULL, item VARCHAR(500) NOT NULL, "
-                                + "action VARCHAR(500) NOT NULL, priority VARCHAR(20) NOT NULL, "
+                                + "action VARCHAR(500) NOT NULL, priority INT NOT NULL, "
                                 + "description VARCHAR(5000) NOT NULL, argument1 VARCHAR(5000), "
                                 + "argument2 VARCHAR(5000), argument3 VARCHAR(5000), "
                                 + "argument4 VARCHAR(5000), screenShotType VARCHAR(20), "
-                                + "screenshot BINARY)").executeUpdate();
+                                + "screenshot BINARY, screenshotHash VARCHAR(64), "
+                                + "screenshotSize INT)").executeUpdate();
+        connection.createQuery(
+                "CREATE TABLE IF NOT EXISTS EVENTS_SCHEMA "
+                        + "(version INT NOT NULL)").executeUpdate();
+        final Integer version =
+                connection.createQuery(
+                        "SELECT MAX(version) FROM EVENTS_SCHEMA")
+                        .executeScalar(Integer.class);
+        if (version != null && version.intValue() >= SCHEMA_VERSION) {
+            return;
+        }
+        // Tables of older versions.
+        connection.createQuery(
+                "ALTER TABLE EVENTS ADD COLUMN IF NOT EXISTS "
+                        + "screenshotHash VARCHAR(64)").executeUpdate();
+        connection.createQuery(
+                "ALTER TABLE EVENTS ADD COLUMN IF NOT EXISTS "
+                        + "screenshotSize INT").executeUpdate();
+        final StringBuilder priorities = new StringBuilder();
+        for (Priority priority : Priority.values()) {
+            priorities.append(" WHEN '").append(priority.name())
+                    .append("' THEN ").append(priority.getValue());
+        }
+        migrateToInt(connection, "priority", priorities.toString());
+        final StringBuilder sources = new StringBuilder();
+        for (EventSource source : EventSource.values()) {
+            sources.append(" WHEN '").append(source.name())
+                    .append("' THEN ").append(source.getCode());
+        }
+        migrateToInt(connection, "source", sources.toString());
+        connection.createQuery(
+                "CREATE INDEX IF NOT EXISTS EVENTS_TESTRUN_IDX "
+                        + "ON EVENTS(testrunId, id)").executeUpdate();
+        connection.createQuery(
+                "CREATE INDEX IF NOT EXISTS EVENTS_ACTION_IDX "
+                        + "ON EVENTS(action, testrunId)").executeUpdate();
+        connection.createQuery(
+                "CREATE INDEX IF NOT EXISTS EVENTS_SCREENSHOT_IDX "
+                        + "ON EVENTS(screenshotHash)").executeUpdate();
+        connection.createQuery("DELETE FROM EVENTS_SCHEMA").executeUpdate();
+        connection
+                .createQuery(
+                        "INSERT INTO EVENTS_SCHEMA(version) VALUES(:version)")
+                .addParameter("version", SCHEMA_VERSION).executeUpdate();
+    }
+
+    /**
+     * Converts a VARCHAR-column with enum-names to an INT-column, if
+     * necessary.
+     *
+     * @param connection the connection.
+     * @param column the name of the column.
+     * @param whenClauses the WHEN-clauses which map the names to the codes.
+     */
+    private void migrateToInt(Connection connection, String column,
+            String whenClauses) {
+        final String type =
+                connection
+                        .createQuery(
+                                "SELECT TYPE_NAME FROM INFORMATION_SCHEMA.COLUMNS "
+                                        + "WHERE TABLE_NAME = 'EVENTS' "
+                                        + "AND COLUMN_NAME = :column")
+                        .addParameter("column", column.toUpperCase(Locale.ENGLISH))
+                        .executeScalar(String.class);
+        if (type == null || !type.startsWith("VARCHAR")) {
+            return;
+        }
+        LOG.info("Migrate column {} of EVENTS to INT.", column);
+        final String newColumn = column + "_code";
+        connection.createQuery(
+                "ALTER TABLE EVENTS ADD COLUMN " + newColumn + " INT")
+                .executeUpdate();
+        connection.createQuery(
+                "UPDATE EVENTS SET " + newColumn + " = CASE " + column
+                        + whenClauses + " END").executeUpdate();
+        connection.createQuery("ALTER TABLE EVENTS DROP COLUMN " + column)
+                .executeUpdate();
+        connection.createQuery(
+                "ALTER TABLE EVENTS ALTER COLUMN " + newColumn + " RENAME TO "
+                        + column).executeUpdate();
+        connection.createQuery(
+                "ALTER TABLE EVENTS ALTER COLUMN " + column + " SET NOT NULL")
+                .executeUpdate();
     }
 }
@@ -0,0 +1,597 @@
+package de.ppi.selenium.logevent.backend;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.ppi.selenium.logevent.api.ClosableIterable;
+import de.ppi.selenium.logevent.api.EventData;
+import de.ppi.selenium.logevent.api.EventQuery;
+import de.ppi.selenium.logevent.api.EventStorage;
+
+/**
+ * {@link EventStorage} which appends the events to a journal of memory-mapped
+ * segment-files, so no database is necessary. Each record is the length
+ * followed by the event in the format of {@link EventDataCodec}. A small
+ * index-file defines which testruns are in which segment and where the
+ * start- and finish-events are.
+ *
+ * The events could be read after {@link #close()}, so the reporters could run
+ * after the storage is closed.
+ *
+ */
+public class JournalEventStorage implements EventStorage {
+
+    /**
+     * The Logger.
+     */
+    private static final Logger LOG = LoggerFactory
+            .getLogger(JournalEventStorage.class);
+
+    /** Default size of a segment (64 MB). */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /** Name of the index-file. */
+    private static final String INDEX_FILE = "journal.index";
+
+    /** Pattern of the segment-files. */
+    private static final Pattern SEGMENT_PATTERN = Pattern
+            .compile("events-(\\d{6})\\.journal");
+
+    /** Size of the length-prefix of a record. */
+    private static final int LENGTH_SIZE = 4;
+
+    /** Index-record: the testrun has events in the segment. */
+    private static final byte INDEX_TESTRUN = 1;
+
+    /** Index-record: position of a start- or finish-event. */
+    private static final byte INDEX_START_FINISH = 2;
+
+    /** Index-record: everything until this position is indexed. */
+    private static final byte INDEX_CHECKPOINT = 3;
+
+    /** The directory of the journal. */
+    private final File directory;
+
+    /** The size of new segments. */
+    private final int segmentSize;
+
+    /** The segments for each testrun. */
+    private final Map<String, Set<Integer>> testrunSegments =
+            new HashMap<String, Set<Integer>>();
+
+    /** Positions of the start- and finish-events. */
+    private final TreeSet<Long> startAndFinishPositions = new TreeSet<Long>();
+
+    /** Index-records which are not yet written to the index-file. */
+    private final ByteArrayOutputStream pendingIndex =
+            new ByteArrayOutputStream();
+
+    /** Buffer for the serialization of one record. */
+    private final ByteArrayOutputStream recordBuffer =
+            new ByteArrayOutputStream();
+
+    /** Number of the current segment. */
+    private int segmentNr;
+
+    /** The current segment, <code>null</code> if closed. */
+    private MappedByteBuffer segment;
+
+    /** Length of the data in the current segment. */
+    private int segmentLength;
+
+    /** The next id. */
+    private long nextId = 1;
+
+    /**
+     * Initiates an object of type JournalEventStorage with
+     * {@link #DEFAULT_SEGMENT_SIZE}.
+     *
+     * @param directory the directory of the journal.
+     */
+    public JournalEventStorage(String directory) {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Initiates an object of type JournalEventStorage.
+     *
+     * @param directory the directory of the journal.
+     * @param segmentSize the size of a segment-file.
+     */
+    public JournalEventStorage(String directory, int segmentSize) {
+        super();
+        this.directory = new File(directory);
+        this.segmentSize = segmentSize;
+        if (!this.directory.exists() && !this.directory.mkdirs()) {
+            throw new IllegalStateException(this.directory.getAbsolutePath()
+                    + " can't be created.");
+        }
+        try {
+            recover();
+        } catch (IOException e) {
+            throw new IllegalStateException("Journal "
+                    + this.directory.getAbsolutePath() + " can't be read.", e);
+        }
+        open();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void open() {
+        if (segment == null) {
+            segment = mapSegment(segmentNr, segmentSize);
+            segment.position(segmentLength);
+        }
+    }
+
+    /**
+     * {@inheritDoc} The id is only assigned in the journal, the given event
+     * isn't changed.
+     */
+    @Override
+    public synchronized void insert(EventData eventData) {
+        if (segment == null) {
+            throw new IllegalStateException("Journal is closed.");
+        }
+        final Long id = Long.valueOf(nextId++);
+        recordBuffer.reset();
+        try {
+            EventDataCodec.write(new DataOutputStream(recordBuffer), id,
+                    eventData);
+        } catch (IOException e) {
+            throw new IllegalStateException("Event can't be serialized.", e);
+        }
+        final int recordLength = recordBuffer.size();
+        if (segment.remaining() < LENGTH_SIZE + recordLength) {
+            segment.force();
+            segmentNr++;
+            segmentLength = 0;
+            segment =
+                    mapSegment(segmentNr, Math.max(segmentSize, LENGTH_SIZE
+                            + recordLength));
+        }
+        final int position = segmentLength;
+        // First the data then the length, so a torn record ends the journal.
+        segment.position(position + LENGTH_SIZE);
+        segment.put(recordBuffer.toByteArray());
+        segment.putInt(position, recordLength);
+        segmentLength = segment.position();
+        index(eventData, segmentNr, position);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void write() {
+        try {
+            final DataOutputStream out =
+                    new DataOutputStream(pendingIndex);
+            out.writeByte(INDEX_CHECKPOINT);
+            out.writeInt(segmentNr);
+            out.writeInt(segmentLength);
+            out.writeLong(nextId);
+            try (FileOutputStream indexOut =
+                    new FileOutputStream(new File(directory, INDEX_FILE), true)) {
+                pendingIndex.writeTo(indexOut);
+            }
+            pendingIndex.reset();
+        } catch (IOException e) {
+            throw new IllegalStateException("Index can't be written.", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void close() {
+        if (segment != null) {
+            write();
+            segment.force();
+            segment = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ClosableIterable<EventData> getAllEvents(String testrunId) {
+        return getEvents(testrunId, EventQuery.ALL);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ClosableIterable<EventData> getEvents(final String testrunId,
+            final EventQuery query) {
+        final List<Integer> segments;
+        final int lastSegment;
+        final int lastSegmentLength;
+        synchronized (this) {
+            final Set<Integer> testrunSegmentNrs =
+                    testrunSegments.get(testrunId);
+            segments =
+                    testrunSegmentNrs == null ? Collections
+                            .<Integer> emptyList() : new ArrayList<Integer>(
+                            testrunSegmentNrs);
+            lastSegment = segmentNr;
+            lastSegmentLength = segmentLength;
+        }
+        return new ClosableIterable<EventData>() {
+
+            @Override
+            public Iterator<EventData> iterator() {
+                return new EventIterator() {
+
+                    /** The segments which are not read yet. */
+                    private final Iterator<Integer> nextSegments = segments
+                            .iterator();
+
+                    /** The current segment. */
+                    private ByteBuffer buffer;
+
+                    @Override
+                    protected EventData readNext() throws IOException {
+                        while (true) {
+                            while (buffer == null || !hasRecord(buffer)) {
+                                if (!nextSegments.hasNext()) {
+                                    return null;
+                                }
+                                final int nr = nextSegments.next().intValue();
+                                buffer =
+                                        readSegment(nr, nr == lastSegment
+                                                ? lastSegmentLength : -1);
+                            }
+                            final EventData event = readRecord(buffer);
+                            if (testrunId.equals(event.getTestrunId())
+                                    && query.matches(event)) {
+                                if (!query.isScreenshots()) {
+                                    return EventData
+                                            .builder(event)
+                                            .screenshot(
+                                                    event.getScreenShotType(),
+                                                    (byte[]) null).build();
+                                }
+                                return event;
+                            }
+                        }
+                    }
+                };
+            }
+
+            @Override
+            public void close() {
+                // The segments are mapped, nothing to close.
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ClosableIterable<EventData> getAllStartAndFinishEvents() {
+        final List<Long> positions;
+        synchronized (this) {
+            positions = new ArrayList<Long>(startAndFinishPositions);
+        }
+        return new ClosableIterable<EventData>() {
+
+            @Override
+            public Iterator<EventData> iterator() {
+                return new EventIterator() {
+
+                    /** The positions which are not read yet. */
+                    private final Iterator<Long> nextPositions = positions
+                            .iterator();
+
+                    /** Number of the current segment. */
+                    private int currentNr = -1;
+
+                    /** The current segment. */
+                    private ByteBuffer buffer;
+
+                    @Override
+                    protected EventData readNext() throws IOException {
+                        if (!nextPositions.hasNext()) {
+                            return null;
+                        }
+                        final long position = nextPositions.next().longValue();
+                        final int nr = (int) (position >>> 32);
+                        if (nr != currentNr) {
+                            buffer = readSegment(nr, -1);
+                            currentNr = nr;
+                        }
+                        buffer.position((int) position);
+                        return readRecord(buffer);
+                    }
+                };
+            }
+
+            @Override
+            public void close() {
+                // The segments are mapped, nothing to close.
+            }
+        };
+    }
+
+    /**
+     * Adds the event to the index.
+     *
+     * @param eventData the event.
+     * @param nr the number of the segment.
+     * @param position the position in the segment.
+     */
+    private void index(EventData eventData, int nr, int position) {
+        Set<Integer> segments = testrunSegments.get(eventData.getTestrunId());
+        if (segments == null) {
+            segments = new TreeSet<Integer>();
+            testrunSegments.put(eventData.getTestrunId(), segments);
+        }
+        final DataOutputStream out = new DataOutputStream(pendingIndex);
+        try {
+            if (segments.add(Integer.valueOf(nr))) {
+                out.writeByte(INDEX_TESTRUN);
+                out.writeInt(nr);
+                out.writeUTF(String.valueOf(eventData.getTestrunId()));
+            }
+            if (EventQuery.TEST_BOUNDARY_ACTIONS.contains(eventData.getAction())) {
+                startAndFinishPositions.add(Long.valueOf(toPosition(nr,
+                        position)));
+                out.writeByte(INDEX_START_FINISH);
+                out.writeInt(nr);
+                out.writeInt(position);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Index can't be written.", e);
+        }
+    }
+
+    /**
+     * Reads the index and scans the segments after the last checkpoint, so
+     * events which were inserted without a {@link #write()} aren't lost.
+     *
+     * @throws IOException if the journal can't be read.
+     */
+    private void recover() throws IOException {
+        int checkpointNr = 0;
+        int checkpointLength = 0;
+        final File indexFile = new File(directory, INDEX_FILE);
+        if (indexFile.exists()) {
+            try (DataInputStream in =
+                    new DataInputStream(new BufferedInputStream(
+                            new FileInputStream(indexFile)))) {
+                while (true) {
+                    final byte type = in.readByte();
+                    if (type == INDEX_TESTRUN) {
+                        final int nr = in.readInt();
+                        final String testrunId = in.readUTF();
+                        Set<Integer> segments = testrunSegments.get(testrunId);
+                        if (segments == null) {
+                            segments = new TreeSet<Integer>();
+                            testrunSegments.put(testrunId, segments);
+                        }
+                        segments.add(Integer.valueOf(nr));
+                    } else if (type == INDEX_START_FINISH) {
+                        final int nr = in.readInt();
+                        startAndFinishPositions.add(Long.valueOf(toPosition(
+                                nr, in.readInt())));
+                    } else if (type == INDEX_CHECKPOINT) {
+                        checkpointNr = in.readInt();
+                        checkpointLength = in.readInt();
+                        nextId = in.readLong();
+                    } else {
+                        throw new IOException("Unknown index-record " + type);
+                    }
+                }
+            } catch (EOFException e) {
+                // End of index, a torn record at the end is ignored.
+                LOG.trace("End of index reached.");
+            }
+        }
+        segmentNr = checkpointNr;
+        segmentLength = checkpointLength;
+        final int lastNr = findLastSegment();
+        for (int nr = checkpointNr; nr <= lastNr; nr++) {
+            final ByteBuffer buffer = readSegment(nr, -1);
+            buffer.position(nr == checkpointNr ? checkpointLength : 0);
+            int position = buffer.position();
+            while (hasRecord(buffer)) {
+                final EventData event = readRecord(buffer);
+                nextId = Math.max(nextId, event.getId().longValue() + 1);
+                index(event, nr, position);
+                position = buffer.position();
+            }
+            segmentNr = nr;
+            segmentLength = position;
+        }
+    }
+
+    /**
+     * Delivers the number of the last segment-file.
+     *
+     * @return the number of the last segment or 0 if there is none.
+     */
+    private int findLastSegment() {
+        int lastNr = 0;
+        final String[] names = directory.list();
+        if (names != null) {
+            for (String name : names) {
+                final Matcher matcher = SEGMENT_PATTERN.matcher(name);
+                if (matcher.matches()) {
+                    lastNr = Math.max(lastNr, Integer.parseInt(matcher.group(1)));
+                }
+            }
+        }
+        return lastNr;
+    }
+
+    /**
+     * Maps the segment to write into it. The file is created if it doesn't
+     * exist.
+     *
+     * @param nr the number of the segment.
+     * @param size the minimal size of the segment.
+     * @return the mapped segment.
+     */
+    private MappedByteBuffer mapSegment(int nr, int size) {
+        final File file = getSegmentFile(nr);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            final long mapSize = Math.max(size, raf.length());
+            return raf.getChannel().map(MapMode.READ_WRITE, 0, mapSize);
+        } catch (IOException e) {
+            throw new IllegalStateException("Segment "
+                    + file.getAbsolutePath() + " can't be mapped.", e);
+        }
+    }
+
+    /**
+     * Maps the segment to read from it.
+     *
+     * @param nr the number of the segment.
+     * @param length the length of the data or -1 if the data ends with an
+     *            empty record or the end of the file.
+     * @return the mapped segment.
+     * @throws IOException if the segment can't be read.
+     */
+    private ByteBuffer readSegment(int nr, int length) throws IOException {
+        final File file = getSegmentFile(nr);
+        if (!file.exists()) {
+            return ByteBuffer.allocate(0);
+        }
+        try (FileInputStream in = new FileInputStream(file)) {
+            final FileChannel channel = in.getChannel();
+            final long size =
+                    length < 0 ? channel.size() : Math.min(length,
+                            channel.size());
+            return channel.map(MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    /**
+     * Checks if the buffer contains another record at the current position.
+     *
+     * @param buffer the segment.
+     * @return <code>true</code> if there is another record.
+     */
+    private static boolean hasRecord(ByteBuffer buffer) {
+        if (buffer.remaining() < LENGTH_SIZE) {
+            return false;
+        }
+        final int length = buffer.getInt(buffer.position());
+        return length > 0 && length <= buffer.remaining() - LENGTH_SIZE;
+    }
+
+    /**
+     * Reads the record at the current position.
+     *
+     * @param buffer the segment.
+     * @return the event.
+     * @throws IOException if the record can't be read.
+     */
+    private static EventData readRecord(ByteBuffer buffer) throws IOException {
+        final byte[] record = new byte[buffer.getInt()];
+        buffer.get(record);
+        return EventDataCodec.read(new DataInputStream(
+                new ByteArrayInputStream(record)));
+    }
+
+    /**
+     * Combines the number of the segment and the position in it.
+     *
+     * @param nr the number of the segment.
+     * @param position the position in the segment.
+     * @return the combined position.
+     */
+    private static long toPosition(int nr, int position) {
+        return ((long) nr << 32) | position;
+    }
+
+    /**
+     * Delivers the file of the segment.
+     *
+     * @param nr the number of the segment.
+     * @return the file.
+     */
+    private File getSegmentFile(int nr) {
+        return new File(directory, String.format("events-%06d.journal",
+                Integer.valueOf(nr)));
+    }
+
+    /**
+     * Iterator which reads the next event on demand.
+     */
+    private abstract static class EventIterator implements Iterator<EventData> {
+
+        /** The next event, <code>null</code> if not read yet. */
+        private EventData next;
+
+        /**
+         * Reads the next event.
+         *
+         * @return the next event or <code>null</code> if there is none.
+         * @throws IOException if the journal can't be read.
+         */
+        protected abstract EventData readNext() throws IOException;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = readNext();
+                } catch (IOException e) {
+                    throw new IllegalStateException(
+                            "Journal can't be read.", e);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public EventData next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final EventData result = next;
+            next = null;
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
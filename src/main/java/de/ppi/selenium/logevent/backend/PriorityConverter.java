@@ -0,0 +1,48 @@
+package de.ppi.selenium.logevent.backend;
+
+import org.sql2o.converters.Converter;
+import org.sql2o.converters.ConverterException;
+
+import de.ppi.selenium.logevent.api.Priority;
+
+/**
+ * Sql2o-{@link Converter} which stores a {@link Priority} as its integer
+ * value. It reads also the names, which older versions have stored.
+ *
+ */
+class PriorityConverter implements Converter<Priority> {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Priority convert(Object val) throws ConverterException {
+        if (val == null) {
+            return null;
+        }
+        if (val instanceof Priority) {
+            return (Priority) val;
+        }
+        try {
+            if (val instanceof Number) {
+                return Priority.fromValue(((Number) val).intValue());
+            }
+            final String text = val.toString().trim();
+            if (text.matches("\\d+")) {
+                return Priority.fromValue(Integer.parseInt(text));
+            }
+            return Priority.valueOf(text);
+        } catch (IllegalArgumentException e) {
+            throw new ConverterException("Can't convert " + val
+                    + " to a priority.", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object toDatabaseParam(Priority val) {
+        return val == null ? null : Integer.valueOf(val.getValue());
+    }
+}
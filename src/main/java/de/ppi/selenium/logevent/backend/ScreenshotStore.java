@@ -0,0 +1,30 @@
+package de.ppi.selenium.logevent.backend;
+
+/**
+ * Storage for the screenshots of events, so that the screenshots needn't be
+ * stored together with the event-data. The screenshots are addressed by a hash
+ * of their content, so identical screenshots are only stored once.
+ *
+ */
+public interface ScreenshotStore {
+
+    /**
+     * Stores the screenshot.
+     *
+     * @param screenshot the screenshot.
+     * @param screenShotType the type of the screenshot, png or html.
+     * @return the hash which identifies the screenshot.
+     */
+    String put(byte[] screenshot, String screenShotType);
+
+    /**
+     * Reads the screenshot.
+     *
+     * @param hash the hash which was returned from
+     *            {@link #put(byte[], String)}.
+     * @param screenShotType the type of the screenshot, png or html.
+     * @return the screenshot or <code>null</code> if it doesn't exist.
+     */
+    byte[] get(String hash, String screenShotType);
+
+}
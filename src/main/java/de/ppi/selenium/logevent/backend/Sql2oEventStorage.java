@@ -1,18 +1,39 @@
 package de.ppi.selenium.logevent.backend;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.sql2o.Connection;
 import org.sql2o.Query;
 import org.sql2o.ResultSetIterable;
 import org.sql2o.Sql2o;
+import org.sql2o.converters.Converter;
+import org.sql2o.quirks.NoQuirks;
 
 import de.ppi.selenium.logevent.api.ClosableIterable;
 import de.ppi.selenium.logevent.api.EventData;
+import de.ppi.selenium.logevent.api.EventQuery;
+import de.ppi.selenium.logevent.api.EventSource;
 import de.ppi.selenium.logevent.api.EventStorage;
+import de.ppi.selenium.logevent.api.Priority;
 
 /**
- * Abstract backend using Sql2o for storing the events.
+ * Abstract backend using Sql2o for storing the events. {@link Priority} and
+ * {@link EventSource} are stored as integer codes. If the subclass delivers a
+ * query by {@link #getScreenshotByHashSql()} and a screenshot is the same as
+ * the previous screenshot of the batch, only its hash is stored.
  */
 public abstract class Sql2oEventStorage implements EventStorage {
 
@@ -20,40 +41,136 @@ public abstract class Sql2oEventStorage implements EventStorage {
     public static final String INSERT_SQL =
             "INSERT INTO EVENTS(ts, testrunId, threadId, source, groupid, item, "
                     + "action, priority, description, argument1, argument2, "
-                    + "argument3, argument4, screenShotType, screenshot)"
+                    + "argument3, argument4, screenShotType, screenshot, "
+                    + "screenshotHash, screenshotSize)"
                     + "VALUES(:ts, :testrunId, :threadId, :source, :groupid, :item, "
                     + ":action, :priority, :description, :argument1, :argument2, "
-                    + ":argument3, :argument4, :screenShotType, :screenshot)";
+                    + ":argument3, :argument4, :screenShotType, :screenshot, "
+                    + ":screenshotHash, :screenshotSize)";
+
+    /** All columns except the screenshot. */
+    private static final String COLUMNS_WITHOUT_SCREENSHOT =
+            "id, ts, testrunId, threadId, source, groupid, item, action, "
+                    + "priority, description, argument1, argument2, argument3, "
+                    + "argument4, screenShotType, screenshotHash, screenshotSize";
+
+    /** Maximal size of batch-data. */
+    private static final int MAX_BATCH_SIZE = 100;
+
+    /**
+     * Number of events whose screenshots are loaded together by
+     * {@link #getEvents(String, EventQuery)}.
+     */
+    private static final int SCREENSHOT_PAGE_SIZE = 20;
+
+    /** Milliseconds a thread waits for a connection of the pool. */
+    private static final long CONNECTION_TIMEOUT = TimeUnit.SECONDS
+            .toMillis(Long.getLong("webtest.eventStorage.connectionTimeout",
+                    60L).longValue());
 
     /** The {@link Sql2o}-instance. */
     private final Sql2o sql2o;
 
-    /** The connection. */
-    private Connection connection = null;
-
     /**
-     * The insert-query.
+     * Maximal number of connections, if it's more than 1 each thread gets its
+     * own batch.
      */
-    private Query insertQuery = null;
+    private final int maxConnections;
 
-    /** Current batch-size. */
-    private volatile int batchSize = 0;
+    /** All batches which are created. */
+    private final List<Batch> allBatches = new ArrayList<Batch>();
 
-    /** Maximal size of batch-data. */
-    private static final int MAX_BATCH_SIZE = 100;
+    /** Batches which are currently not used by a thread. */
+    private final BlockingQueue<Batch> idleBatches;
+
+    /** The batch of the current thread. */
+    private final ThreadLocal<Batch> threadBatch = new ThreadLocal<Batch>();
+
+    /** The batch which is shared by all threads, if only 1 connection. */
+    private Batch sharedBatch = null;
+
+    /** True if the storage is closed. */
+    private boolean closed = false;
+
+    /**
+     * Store for the screenshots, if <code>null</code> the screenshots are
+     * stored in the EVENTS-table.
+     */
+    private final ScreenshotStore screenshotStore;
 
     /**
-     * Initiates an object of type Sql2oEventStorage.
+     * Initiates an object of type Sql2oEventStorage, which use one connection
+     * for all threads.
      *
      * @param connectURL the connection url.
      * @param user the user.
      * @param password the password.
      */
     public Sql2oEventStorage(String connectURL, String user, String password) {
-        sql2o = new Sql2o(connectURL, user, password);
-        connection = sql2o.beginTransaction();
+        this(connectURL, user, password, 1);
+    }
+
+    /**
+     * Initiates an object of type Sql2oEventStorage. If maxConnections is
+     * greater than 1, each thread gets its own connection with its own batch
+     * from a pool, so parallel tests don't block each other. {@link #write()}
+     * commits only the batch of the calling thread and gives the connection
+     * back to the pool. If all connections are in use, a thread waits at most
+     * <code>webtest.eventStorage.connectionTimeout</code> seconds (default
+     * 60).
+     *
+     * @param connectURL the connection url.
+     * @param user the user.
+     * @param password the password.
+     * @param maxConnections the maximal number of connections.
+     */
+    public Sql2oEventStorage(String connectURL, String user, String password,
+            int maxConnections) {
+        this(connectURL, user, password, maxConnections, null);
+    }
+
+    /**
+     * Initiates an object of type Sql2oEventStorage, which stores the
+     * screenshots in the given {@link ScreenshotStore}. Then the EVENTS-table
+     * contains only the hash and the size of the screenshot.
+     *
+     * @param connectURL the connection url.
+     * @param user the user.
+     * @param password the password.
+     * @param maxConnections the maximal number of connections.
+     * @param screenshotStore the store for the screenshots, could be
+     *            <code>null</code>.
+     */
+    public Sql2oEventStorage(String connectURL, String user, String password,
+            int maxConnections, ScreenshotStore screenshotStore) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException(
+                    "At least one connection is necessary.");
+        }
+        this.maxConnections = maxConnections;
+        this.screenshotStore = screenshotStore;
+        this.idleBatches = new ArrayBlockingQueue<Batch>(maxConnections);
+        sql2o =
+                new Sql2o(connectURL, user, password, new NoQuirks(
+                        createConverters()));
+        final Connection connection = sql2o.beginTransaction();
         createTable(connection);
-        insertQuery = connection.createQuery(INSERT_SQL);
+        open();
+        connection.commit();
+    }
+
+    /**
+     * Creates the converters for the enums.
+     *
+     * @return the converters.
+     */
+    @SuppressWarnings("rawtypes")
+    private static Map<Class, Converter> createConverters() {
+        final Map<Class, Converter> converters =
+                new HashMap<Class, Converter>();
+        converters.put(Priority.class, new PriorityConverter());
+        converters.put(EventSource.class, new EventSourceConverter());
+        return converters;
     }
 
     /**
@@ -64,28 +181,30 @@ public abstract class Sql2oEventStorage implements EventStorage {
      */
     protected abstract void createTable(Connection connection);
 
+    /**
+     * Delivers the query which selects the screenshot of one event by its
+     * hash, given as parameter <code>:hash</code>. The query should be
+     * supported by an index on screenshotHash. Only if there is a query,
+     * screenshots which are the same as the previous one are stored as hash.
+     *
+     * @return the query or <code>null</code> if screenshots are always stored
+     *         completely.
+     */
+    protected String getScreenshotByHashSql() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc} The batch is locked during the insert, so
+     * {@link #close()} can't close it in between.
+     */
     @Override
     public void insert(EventData event) {
-        batchSize++;
-
-        insertQuery.addParameter("testrunId", event.getTestrunId())
-                .addParameter("ts", event.getTs())
-                .addParameter("threadId", event.getThreadId())
-                .addParameter("source", event.getSource())
-                .addParameter("groupid", event.getGroupId())
-                .addParameter("item", event.getItem())
-                .addParameter("action", event.getAction())
-                .addParameter("priority", event.getPriority())
-                .addParameter("description", event.getDescription())
-                .addParameter("argument1", object2String(event.getArgument1()))
-                .addParameter("argument2", object2String(event.getArgument2()))
-                .addParameter("argument3", object2String(event.getArgument3()))
-                .addParameter("argument4", object2String(event.getArgument4()))
-                .addParameter("screenShotType", event.getScreenShotType())
-                .addParameter("screenshot", event.getScreenshot()).addToBatch();
-        if (batchSize > MAX_BATCH_SIZE) {
-            batchSize = 0;
-            insertQuery.executeBatch();
+        final Batch batch =
+                maxConnections == 1 ? getSharedBatch() : getThreadBatch();
+        synchronized (batch) {
+            checkOpen(batch);
+            batch.insert(event);
         }
     }
 
@@ -95,7 +214,7 @@ public abstract class Sql2oEventStorage implements EventStorage {
      * @param object the object.
      * @return <code>null</code> if object is <code>null</code>.
      */
-    private String object2String(Object object) {
+    private static String object2String(Object object) {
         if (object == null) {
             return null;
         } else {
@@ -105,32 +224,157 @@ public abstract class Sql2oEventStorage implements EventStorage {
 
     @Override
     public void write() {
-        batchSize = 0;
-        insertQuery.executeBatch();
-        connection.commit(false);
+        if (maxConnections == 1) {
+            final Batch batch = getSharedBatch();
+            synchronized (batch) {
+                checkOpen(batch);
+                batch.write();
+            }
+        } else {
+            final Batch batch = threadBatch.get();
+            threadBatch.remove();
+            if (batch == null || batch.closed) {
+                checkOpen();
+                return;
+            }
+            try {
+                synchronized (batch) {
+                    checkOpen(batch);
+                    batch.write();
+                }
+            } finally {
+                synchronized (this) {
+                    if (!batch.closed) {
+                        idleBatches.add(batch);
+                    }
+                }
+            }
+        }
     }
 
     @Override
-    public void close() {
-        connection.commit(false);
-        if (insertQuery != null) {
-            insertQuery.close();
-            insertQuery = null;
+    public synchronized void close() {
+        for (Batch batch : allBatches) {
+            synchronized (batch) {
+                batch.close();
+            }
         }
-        connection.close();
-        connection = null;
+        allBatches.clear();
+        idleBatches.clear();
+        sharedBatch = null;
+        closed = true;
+        threadBatch.remove();
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public void open() {
-        if (connection == null) {
-            connection = sql2o.beginTransaction();
-            insertQuery = connection.createQuery(INSERT_SQL);
+    public synchronized void open() {
+        closed = false;
+        if (allBatches.isEmpty()) {
+            final Batch batch = createBatch();
+            if (maxConnections == 1) {
+                sharedBatch = batch;
+            } else {
+                idleBatches.add(batch);
+            }
+        }
+    }
+
+    /**
+     * Checks that the storage isn't closed.
+     */
+    private synchronized void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The storage is closed.");
+        }
+    }
+
+    /**
+     * Checks that the batch isn't closed by {@link #close()}. Must be called
+     * with the lock of the batch.
+     *
+     * @param batch the batch.
+     */
+    private static void checkOpen(Batch batch) {
+        if (batch.closed) {
+            throw new IllegalStateException("The storage is closed.");
         }
+    }
 
+    /**
+     * Delivers the shared batch.
+     *
+     * @return the shared batch.
+     */
+    private synchronized Batch getSharedBatch() {
+        if (sharedBatch == null) {
+            throw new IllegalStateException("The storage is closed.");
+        }
+        return sharedBatch;
+    }
+
+    /**
+     * Delivers the batch of the current thread, takes it from the pool if
+     * necessary and waits if all connections are in use.
+     *
+     * @return the batch of the current thread.
+     */
+    private Batch getThreadBatch() {
+        Batch batch = threadBatch.get();
+        if (batch == null || batch.closed) {
+            synchronized (this) {
+                checkOpen();
+                batch = idleBatches.poll();
+                if (batch == null && allBatches.size() < maxConnections) {
+                    batch = createBatch();
+                }
+            }
+            if (batch == null) {
+                batch = waitForBatch();
+            }
+            threadBatch.set(batch);
+        }
+        return batch;
+    }
+
+    /**
+     * Waits until another thread gives its batch back to the pool.
+     *
+     * @return the batch.
+     */
+    private Batch waitForBatch() {
+        final Batch batch;
+        try {
+            batch =
+                    idleBatches.poll(CONNECTION_TIMEOUT,
+                            TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(
+                    "Interrupted during waiting for a connection.", e);
+        }
+        if (batch == null) {
+            checkOpen();
+            throw new IllegalStateException("No connection available after "
+                    + CONNECTION_TIMEOUT + " ms.");
+        } else if (batch.closed) {
+            throw new IllegalStateException("The storage is closed.");
+        }
+        return batch;
+    }
+
+    /**
+     * Creates a new batch with its own connection. Must be called with the
+     * lock of this.
+     *
+     * @return the new batch.
+     */
+    private Batch createBatch() {
+        final Batch batch = new Batch(sql2o.beginTransaction());
+        allBatches.add(batch);
+        return batch;
     }
 
     /**
@@ -138,18 +382,121 @@ public abstract class Sql2oEventStorage implements EventStorage {
      */
     @Override
     public ClosableIterable<EventData> getAllEvents(String testrunId) {
-        final ResultSetIterable<EventData> result =
+        final ResultSetIterable<EventRow> result =
                 sql2o.open()
                         .createQuery(
-                                "select * from EVENTS where testrunId = :testrunId")
+                                "select * from EVENTS where testrunId = :testrunId "
+                                        + "order by id")
                         .addParameter("testrunId", testrunId)
-                        .executeAndFetchLazy(EventData.class);
+                        .executeAndFetchLazy(EventRow.class);
+        return toClosableIterable(result);
+    }
+
+    /**
+     * {@inheritDoc} The screenshots aren't selected, they are loaded on
+     * demand by {@link EventData#getScreenshot()}. The events are read in
+     * pages of {@value #SCREENSHOT_PAGE_SIZE}, and the screenshots of a page
+     * are loaded with one query.
+     */
+    @Override
+    public ClosableIterable<EventData> getEvents(String testrunId,
+            final EventQuery query) {
+        final StringBuilder sql =
+                new StringBuilder("select ").append(COLUMNS_WITHOUT_SCREENSHOT)
+                        .append(" from EVENTS where testrunId = :testrunId");
+        if (query.getThreadId() != null) {
+            sql.append(" and threadId = :threadId");
+        }
+        if (query.getAfterId() > 0) {
+            sql.append(" and id > :afterId");
+        }
+        if (!query.getActions().isEmpty()) {
+            sql.append(" and action in (")
+                    .append(createParameterList("action",
+                            query.getActions().size())).append(')');
+        }
+        if (query.getMinPriority() != null) {
+            sql.append(" and (priority >= :minPriority");
+            if (query.isTestBoundaries()) {
+                sql.append(" or action in (")
+                        .append(createParameterList("boundary",
+                                EventQuery.TEST_BOUNDARY_ACTIONS.size()))
+                        .append(')');
+            }
+            sql.append(')');
+        }
+        sql.append(" order by id");
+        final Connection connection = sql2o.open();
+        final Query select =
+                connection.createQuery(sql.toString()).addParameter(
+                        "testrunId", testrunId);
+        if (query.getThreadId() != null) {
+            select.addParameter("threadId", query.getThreadId());
+        }
+        if (query.getAfterId() > 0) {
+            select.addParameter("afterId", query.getAfterId());
+        }
+        addParameterList(select, "action", query.getActions());
+        if (query.getMinPriority() != null) {
+            select.addParameter("minPriority", query.getMinPriority()
+                    .getValue());
+            if (query.isTestBoundaries()) {
+                addParameterList(select, "boundary",
+                        EventQuery.TEST_BOUNDARY_ACTIONS);
+            }
+        }
+        final ResultSetIterable<EventRow> result =
+                select.executeAndFetchLazy(EventRow.class);
         result.setAutoCloseConnection(true);
         return new ClosableIterable<EventData>() {
 
             @Override
             public Iterator<EventData> iterator() {
-                return result.iterator();
+                final Iterator<EventRow> events = result.iterator();
+                return new Iterator<EventData>() {
+
+                    /** The events of the current page. */
+                    private final Queue<EventData> page =
+                            new ArrayDeque<EventData>();
+
+                    @Override
+                    public boolean hasNext() {
+                        return !page.isEmpty() || events.hasNext();
+                    }
+
+                    @Override
+                    public EventData next() {
+                        if (page.isEmpty()) {
+                            readPage();
+                        }
+                        return page.remove();
+                    }
+
+                    /**
+                     * Reads the next page of events, which share a
+                     * {@link ScreenshotPage}.
+                     */
+                    private void readPage() {
+                        final ScreenshotPage screenshots =
+                                new ScreenshotPage();
+                        while (events.hasNext()
+                                && page.size() < SCREENSHOT_PAGE_SIZE) {
+                            final EventRow row = events.next();
+                            final EventData.Builder event = row.toBuilder();
+                            if (query.isScreenshots()
+                                    && row.getScreenShotType() != null) {
+                                event.screenshot(row.getScreenShotType(),
+                                        screenshots.add(row));
+                            }
+                            page.add(event.build());
+                        }
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
             }
 
             @Override
@@ -160,25 +507,109 @@ public abstract class Sql2oEventStorage implements EventStorage {
         };
     }
 
+    /**
+     * Creates a list of named parameters, like ":name0, :name1".
+     *
+     * @param name the prefix of the parameter-names.
+     * @param size the number of parameters.
+     * @return the parameter-list.
+     */
+    private static String createParameterList(String name, int size) {
+        final StringBuilder parameters = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                parameters.append(", ");
+            }
+            parameters.append(':').append(name).append(i);
+        }
+        return parameters.toString();
+    }
+
+    /**
+     * Adds the values to the parameters created by
+     * {@link #createParameterList(String, int)}.
+     *
+     * @param query the query.
+     * @param name the prefix of the parameter-names.
+     * @param values the values.
+     */
+    private static void addParameterList(Query query, String name,
+            Iterable<String> values) {
+        int i = 0;
+        for (String value : values) {
+            query.addParameter(name + i, value);
+            i++;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public ClosableIterable<EventData> getAllStartAndFinishEvents() {
-        final ResultSetIterable<EventData> result =
+        final ResultSetIterable<EventRow> result =
                 sql2o.open()
                         .createQuery(
                                 "select * from EVENTS where action in "
                                         + "('TEST_START', 'TEST_FINISHED', 'TEST_SKIPPED', "
                                         + "'TEST_FINISHED_WITH_EXCEPTION', "
                                         + "'TEST_FINISHED_WITH_FAILURES' )")
-                        .executeAndFetchLazy(EventData.class);
+                        .executeAndFetchLazy(EventRow.class);
+        return toClosableIterable(result);
+    }
+
+    /**
+     * Wraps the result into a {@link ClosableIterable}, which reads the
+     * screenshots from the {@link ScreenshotStore} during iteration.
+     *
+     * @param result the lazy result.
+     * @return the {@link ClosableIterable}.
+     */
+    private ClosableIterable<EventData> toClosableIterable(
+            final ResultSetIterable<EventRow> result) {
         result.setAutoCloseConnection(true);
         return new ClosableIterable<EventData>() {
 
             @Override
             public Iterator<EventData> iterator() {
-                return result.iterator();
+                final Iterator<EventRow> events = result.iterator();
+                return new Iterator<EventData>() {
+
+                    /** Hash of the last screenshot which was loaded. */
+                    private String lastHash;
+
+                    /** The last screenshot which was loaded. */
+                    private byte[] lastScreenshot;
+
+                    @Override
+                    public boolean hasNext() {
+                        return events.hasNext();
+                    }
+
+                    @Override
+                    public EventData next() {
+                        final EventRow row = events.next();
+                        final EventData.Builder event = row.toBuilder();
+                        final String hash = row.getScreenshotHash();
+                        if (row.getScreenshot() == null && hash != null) {
+                            if (!hash.equals(lastHash)) {
+                                lastHash = hash;
+                                lastScreenshot = loadScreenshot(row);
+                            }
+                            event.screenshot(row.getScreenShotType(),
+                                    lastScreenshot);
+                        } else if (row.getScreenshot() != null) {
+                            lastHash = hash;
+                            lastScreenshot = row.getScreenshot();
+                        }
+                        return event.build();
+                    }
+
+                    @Override
+                    public void remove() {
+                        events.remove();
+                    }
+                };
             }
 
             @Override
@@ -188,4 +619,249 @@ public abstract class Sql2oEventStorage implements EventStorage {
 
         };
     }
+
+    /**
+     * The screenshots of a page of events, which were selected without them.
+     * The first access loads the screenshots of all events of the page with
+     * one query.
+     */
+    private final class ScreenshotPage {
+
+        /** The rows of the events with a screenshot. */
+        private final List<EventRow> rows = new ArrayList<EventRow>();
+
+        /** The loaded screenshots by id, <code>null</code> if not loaded. */
+        private Map<Long, byte[]> screenshots;
+
+        /**
+         * Adds the event to the page.
+         *
+         * @param row the row of the event.
+         * @return the future of the screenshot.
+         */
+        private FutureTask<byte[]> add(final EventRow row) {
+            rows.add(row);
+            return new FutureTask<byte[]>(new Callable<byte[]>() {
+                @Override
+                public byte[] call() {
+                    return get(row);
+                }
+            });
+        }
+
+        /**
+         * Delivers the screenshot of the event, loads the page if necessary.
+         *
+         * @param row the row of the event.
+         * @return the screenshot or <code>null</code> if it doesn't exist.
+         */
+        private synchronized byte[] get(EventRow row) {
+            if (screenshots == null) {
+                screenshots = load();
+            }
+            final byte[] screenshot = screenshots.get(row.getId());
+            if (screenshot == null && row.getScreenshotHash() != null) {
+                // Stored in the ScreenshotStore or only as reference.
+                final byte[] referenced = loadScreenshot(row);
+                screenshots.put(row.getId(), referenced);
+                return referenced;
+            }
+            return screenshot;
+        }
+
+        /**
+         * Loads the screenshots of all events of the page, which are stored
+         * in the EVENTS-table.
+         *
+         * @return the screenshots by id.
+         */
+        private Map<Long, byte[]> load() {
+            final List<Long> ids = new ArrayList<Long>();
+            for (EventRow row : rows) {
+                if (screenshotStore == null
+                        || row.getScreenshotHash() == null) {
+                    ids.add(row.getId());
+                }
+            }
+            final Map<Long, byte[]> loaded = new HashMap<Long, byte[]>();
+            if (ids.isEmpty()) {
+                return loaded;
+            }
+            try (Connection connection = sql2o.open()) {
+                final Query select =
+                        connection.createQuery("select id, screenshot "
+                                + "from EVENTS where id in ("
+                                + createParameterList("id", ids.size())
+                                + ")");
+                int i = 0;
+                for (Long id : ids) {
+                    select.addParameter("id" + i, id);
+                    i++;
+                }
+                for (EventRow row : select.executeAndFetch(EventRow.class)) {
+                    loaded.put(row.getId(), row.getScreenshot());
+                }
+            }
+            return loaded;
+        }
+    }
+
+    /**
+     * Loads the screenshot of an event which contains only the hash from the
+     * {@link ScreenshotStore} or the EVENTS-table.
+     *
+     * @param event the row of the event.
+     * @return the screenshot or <code>null</code> if it doesn't exist.
+     */
+    private byte[] loadScreenshot(EventRow event) {
+        if (screenshotStore != null) {
+            return screenshotStore.get(event.getScreenshotHash(),
+                    event.getScreenShotType());
+        }
+        return loadScreenshot(event.getScreenshotHash());
+    }
+
+    /**
+     * Loads a screenshot from the EVENTS-table by its hash. Events whose
+     * screenshot is the same as the one of the previous event store only the
+     * hash.
+     *
+     * @param hash the hash of the screenshot.
+     * @return the screenshot or <code>null</code> if it doesn't exist.
+     */
+    private byte[] loadScreenshot(String hash) {
+        final String sql = getScreenshotByHashSql();
+        if (sql == null) {
+            return null;
+        }
+        try (Connection connection = sql2o.open()) {
+            return connection.createQuery(sql).addParameter("hash", hash)
+                    .executeScalar(byte[].class);
+        }
+    }
+
+    /**
+     * A connection with its prepared insert-query and the collected data.
+     * Isn't thread-safe, it's guarded by its own lock.
+     */
+    private final class Batch {
+
+        /** The connection. */
+        private final Connection connection;
+
+        /** The insert-query. */
+        private Query insertQuery;
+
+        /** Current batch-size. */
+        private int batchSize = 0;
+
+        /** True if the connection is closed. */
+        private volatile boolean closed = false;
+
+        /** The last screenshot which was stored in the EVENTS-table. */
+        private byte[] lastScreenshot;
+
+        /** Hash of {@link #lastScreenshot}. */
+        private String lastScreenshotHash;
+
+        /**
+         * True if unchanged screenshots are stored as reference, see
+         * {@link Sql2oEventStorage#getScreenshotByHashSql()}.
+         */
+        private final boolean storeReferences;
+
+        /**
+         * Initiates an object of type Batch.
+         *
+         * @param connection the connection.
+         */
+        private Batch(Connection connection) {
+            this.connection = connection;
+            this.insertQuery = connection.createQuery(INSERT_SQL);
+            this.storeReferences = getScreenshotByHashSql() != null;
+        }
+
+        /**
+         * Add the event to the batch and execute it, if it's to large.
+         *
+         * @param event the event.
+         */
+        private void insert(EventData event) {
+            batchSize++;
+            byte[] screenshot = event.getScreenshot();
+            String screenshotHash = event.getScreenshotHash();
+            Integer screenshotSize = event.getScreenshotSize();
+            if (screenshot != null) {
+                screenshotSize = Integer.valueOf(screenshot.length);
+                if (screenshotStore != null) {
+                    screenshotHash =
+                            screenshotStore.put(screenshot,
+                                    event.getScreenShotType());
+                    screenshot = null;
+                } else if (storeReferences) {
+                    if (screenshot == lastScreenshot
+                            || Arrays.equals(screenshot, lastScreenshot)) {
+                        // Unchanged since the last screenshot, only the hash
+                        // is stored as reference.
+                        screenshotHash = lastScreenshotHash;
+                        screenshot = null;
+                    } else {
+                        screenshotHash = DigestUtils.sha1Hex(screenshot);
+                        lastScreenshot = screenshot;
+                        lastScreenshotHash = screenshotHash;
+                    }
+                }
+            }
+            insertQuery
+                    .addParameter("testrunId", event.getTestrunId())
+                    .addParameter("ts", event.getTs())
+                    .addParameter("threadId", event.getThreadId())
+                    .addParameter("source", event.getSource())
+                    .addParameter("groupid", event.getGroupId())
+                    .addParameter("item", event.getItem())
+                    .addParameter("action", event.getAction())
+                    .addParameter("priority", event.getPriority())
+                    .addParameter("description", event.getDescription())
+                    .addParameter("argument1",
+                            object2String(event.getArgument1()))
+                    .addParameter("argument2",
+                            object2String(event.getArgument2()))
+                    .addParameter("argument3",
+                            object2String(event.getArgument3()))
+                    .addParameter("argument4",
+                            object2String(event.getArgument4()))
+                    .addParameter("screenShotType", event.getScreenShotType())
+                    .addParameter("screenshot", screenshot)
+                    .addParameter("screenshotHash", screenshotHash)
+                    .addParameter("screenshotSize", screenshotSize)
+                    .addToBatch();
+            if (batchSize > MAX_BATCH_SIZE) {
+                batchSize = 0;
+                insertQuery.executeBatch();
+            }
+        }
+
+        /**
+         * Execute the batch and commit.
+         */
+        private void write() {
+            batchSize = 0;
+            insertQuery.executeBatch();
+            connection.commit(false);
+        }
+
+        /**
+         * Execute the batch, commit and close the connection.
+         */
+        private void close() {
+            if (batchSize > 0) {
+                batchSize = 0;
+                insertQuery.executeBatch();
+            }
+            connection.commit(false);
+            insertQuery.close();
+            connection.close();
+            closed = true;
+        }
+    }
 }
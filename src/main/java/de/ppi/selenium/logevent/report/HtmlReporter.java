@@ -0,0 +1,433 @@
+package de.ppi.selenium.logevent.report;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.ArrayUtils;
+import org.apache.commons.lang.StringEscapeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.ppi.selenium.logevent.api.ClosableIterable;
+import de.ppi.selenium.logevent.api.EventActions;
+import de.ppi.selenium.logevent.api.EventData;
+import de.ppi.selenium.logevent.api.EventQuery;
+import de.ppi.selenium.logevent.api.EventStorage;
+import de.ppi.selenium.logevent.api.Priority;
+import de.ppi.selenium.util.ImageUtils;
+
+/**
+ * Reports a testrun to static html-pages. The events are streamed from the
+ * {@link EventStorage} to pages with a fixed number of events, an index.html
+ * links to the pages and the tests. Each screenshot is written only once,
+ * identified by its hash, and shown as a thumbnail which links to the full
+ * image.
+ *
+ */
+public class HtmlReporter implements LogReporter {
+
+    /** Logger instance. */
+    private static final Logger LOG = LoggerFactory
+            .getLogger(HtmlReporter.class);
+
+    /** Default number of events per page. */
+    private static final int DEFAULT_EVENTS_PER_PAGE = 500;
+
+    /** Default width of the thumbnails in pixel. */
+    private static final int DEFAULT_THUMBNAIL_WIDTH = 200;
+
+    /** Directory for the full screenshots. */
+    private static final String IMAGE_DIR = "images";
+
+    /** Directory for the thumbnails. */
+    private static final String THUMBNAIL_DIR = "thumbnails";
+
+    /** Parent-Directory for the report. */
+    private final File reportDestinationParent;
+
+    /** Priority which is the minimum priority which should be reported. */
+    private final Priority priority;
+
+    /** Number of events per page. */
+    private final int eventsPerPage;
+
+    /** Width of the thumbnails in pixel. */
+    private final int thumbnailWidth;
+
+    /** MessageSource. */
+    private final MessageSource messageSource = new MessageSourceImpl();
+
+    /**
+     * Initiates an object of type HtmlReporter.
+     *
+     * @param reportDestination target directory
+     * @param priority Lowest {@link Priority} which should be reported.
+     */
+    public HtmlReporter(String reportDestination, Priority priority) {
+        this(reportDestination, priority, DEFAULT_EVENTS_PER_PAGE,
+                DEFAULT_THUMBNAIL_WIDTH);
+    }
+
+    /**
+     * Initiates an object of type HtmlReporter.
+     *
+     * @param reportDestination target directory
+     * @param priority Lowest {@link Priority} which should be reported.
+     * @param eventsPerPage number of events per page.
+     * @param thumbnailWidth width of the thumbnails in pixel.
+     */
+    public HtmlReporter(String reportDestination, Priority priority,
+            int eventsPerPage, int thumbnailWidth) {
+        super();
+        if (eventsPerPage < 1) {
+            throw new IllegalArgumentException(
+                    "At least one event per page is necessary.");
+        }
+        this.reportDestinationParent = new File(reportDestination);
+        if (!this.reportDestinationParent.exists()
+                && !this.reportDestinationParent.mkdirs()) {
+            throw new IllegalStateException(
+                    this.reportDestinationParent.getAbsolutePath()
+                            + " can't be created.");
+        }
+        this.priority = priority;
+        this.eventsPerPage = eventsPerPage;
+        this.thumbnailWidth = thumbnailWidth;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void createReport(EventStorage storage, String testrunId) {
+        final File reportDestination =
+                new File(reportDestinationParent, testrunId);
+        if (!reportDestination.exists() && !reportDestination.mkdirs()) {
+            throw new IllegalStateException(
+                    reportDestination.getAbsolutePath() + " can't be created.");
+        }
+        final Run run = new Run(reportDestination);
+        try (ClosableIterable<EventData> logdata =
+                storage.getEvents(testrunId, EventQuery.ALL
+                        .withMinPriority(priority).withTestBoundaries())) {
+            for (EventData eventData : logdata) {
+                run.add(eventData);
+            }
+            run.close();
+            writeIndex(reportDestination, testrunId, run);
+        } catch (Exception e) {
+            throw new IllegalStateException("Problems during report.", e);
+        } finally {
+            run.close();
+            LOG.info("Write to {}.", reportDestination.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Writes the index.html with the links to the pages and the tests.
+     *
+     * @param reportDestination the directory of the report.
+     * @param testrunId the id of the testrun.
+     * @param run the written pages.
+     * @throws IOException error writing data.
+     */
+    private void writeIndex(File reportDestination, String testrunId, Run run)
+            throws IOException {
+        try (PrintWriter index =
+                new PrintWriter(new File(reportDestination, "index.html"),
+                        "UTF-8")) {
+            printHeader(index, testrunId);
+            index.println("<h2>Pages</h2>");
+            index.println("<p>");
+            for (int i = 1; i <= run.pageNr; i++) {
+                index.println("<a href=\"" + getPageName(i) + "\">" + i
+                        + "</a>");
+            }
+            index.println("</p>");
+            index.println("<h2>Tests</h2>");
+            index.println("<table>");
+            for (TestEntry test : run.tests) {
+                index.println("<tr class=\"" + test.result + "\"><td>"
+                        + "<a href=\"" + getPageName(test.pageNr) + "#e"
+                        + test.eventId + "\">" + escape(test.name)
+                        + "</a></td><td>" + test.result + "</td></tr>");
+            }
+            index.println("</table>");
+            printFooter(index);
+        }
+    }
+
+    /**
+     * Prints the start of a html-page.
+     *
+     * @param page the page.
+     * @param title the title.
+     */
+    private static void printHeader(PrintWriter page, String title) {
+        page.println("<!DOCTYPE html>");
+        page.println("<html><head><meta charset=\"UTF-8\"><title>"
+                + escape(title) + "</title>");
+        page.println("<style>.TEST_FINISHED_WITH_FAILURES,"
+                + ".TEST_FINISHED_WITH_EXCEPTION{color:red}"
+                + " img{border:1px solid gray}</style>");
+        page.println("</head><body><h1>" + escape(title) + "</h1>");
+    }
+
+    /**
+     * Prints the end of a html-page.
+     *
+     * @param page the page.
+     */
+    private static void printFooter(PrintWriter page) {
+        page.println("</body></html>");
+    }
+
+    /**
+     * Delivers the filename of the page.
+     *
+     * @param pageNr the number of the page.
+     * @return the filename.
+     */
+    private static String getPageName(int pageNr) {
+        return String.format("page-%04d.html", Integer.valueOf(pageNr));
+    }
+
+    /**
+     * Escapes the text for html.
+     *
+     * @param text the text.
+     * @return the escaped text.
+     */
+    private static String escape(Object text) {
+        return text == null ? "" : StringEscapeUtils.escapeHtml(text
+                .toString());
+    }
+
+    /**
+     * The state of the report while the events are streamed.
+     */
+    private final class Run {
+
+        /** The directory of the report. */
+        private final File reportDestination;
+
+        /** The hashes of the screenshots which are already written. */
+        private final Set<String> writtenScreenshots = new HashSet<String>();
+
+        /** The tests of the testrun. */
+        private final List<TestEntry> tests = new ArrayList<TestEntry>();
+
+        /** The current page. */
+        private PrintWriter page;
+
+        /** Number of the current page. */
+        private int pageNr;
+
+        /** Number of events on the current page. */
+        private int eventsOnPage;
+
+        /**
+         * Initiates an object of type Run.
+         *
+         * @param reportDestination the directory of the report.
+         */
+        private Run(File reportDestination) {
+            this.reportDestination = reportDestination;
+        }
+
+        /**
+         * Adds the event to the current page.
+         *
+         * @param eventData the event.
+         * @throws IOException error writing data.
+         */
+        private void add(EventData eventData) throws IOException {
+            if (page == null || eventsOnPage >= eventsPerPage) {
+                nextPage();
+            }
+            eventsOnPage++;
+            final String action = eventData.getAction();
+            if (EventActions.TEST_START.equals(action)) {
+                tests.add(new TestEntry(eventData.getGroupId() + "."
+                        + eventData.getItem(), eventData.getId(), pageNr,
+                        eventData.getThreadId()));
+            } else if (MarkdownReporter.isFinished(action)) {
+                for (int i = tests.size() - 1; i >= 0; i--) {
+                    final TestEntry test = tests.get(i);
+                    if (test.threadId == eventData.getThreadId()) {
+                        test.result = action;
+                        break;
+                    }
+                }
+            }
+            page.print("<tr id=\"e" + eventData.getId() + "\" class=\""
+                    + escape(action) + "\"><td>" + eventData.getTs()
+                    + "</td><td>" + eventData.getThreadId() + "</td><td>"
+                    + eventData.getPriority() + "</td><td>"
+                    + eventData.getSource() + "@"
+                    + escape(eventData.getGroupId()) + "."
+                    + escape(eventData.getItem()) + "</td><td>");
+            page.print(escape(messageSource.getMessage(
+                    eventData.getDescription(), Locale.getDefault(),
+                    eventData.getSource(), eventData.getGroupId(),
+                    eventData.getItem(), action, eventData.getArgument1(),
+                    eventData.getArgument2(), eventData.getArgument3(),
+                    eventData.getArgument4())));
+            page.print("</td><td>");
+            printScreenshot(eventData);
+            page.println("</td></tr>");
+        }
+
+        /**
+         * Prints the thumbnail of the screenshot with a link to the full
+         * image. The files are written only once per hash.
+         *
+         * @param eventData the event.
+         * @throws IOException error writing data.
+         */
+        private void printScreenshot(EventData eventData) throws IOException {
+            final String type = eventData.getScreenShotType();
+            if (type == null) {
+                return;
+            }
+            String hash = eventData.getScreenshotHash();
+            byte[] screenshot = null;
+            if (hash == null) {
+                screenshot = eventData.getScreenshot();
+                if (ArrayUtils.isEmpty(screenshot)) {
+                    return;
+                }
+                hash = DigestUtils.sha1Hex(screenshot);
+            }
+            final String imageName = IMAGE_DIR + "/" + hash + "." + type;
+            final String thumbnailName = THUMBNAIL_DIR + "/" + hash + ".png";
+            final boolean isImage = "png".equalsIgnoreCase(type);
+            if (writtenScreenshots.add(hash)) {
+                if (screenshot == null) {
+                    screenshot = eventData.getScreenshot();
+                }
+                if (ArrayUtils.isEmpty(screenshot)) {
+                    writtenScreenshots.remove(hash);
+                    return;
+                }
+                FileUtils.writeByteArrayToFile(new File(reportDestination,
+                        imageName), screenshot);
+                if (isImage) {
+                    writeThumbnail(new File(reportDestination, thumbnailName),
+                            screenshot);
+                }
+            }
+            if (isImage) {
+                page.print("<a href=\"" + imageName + "\"><img src=\""
+                        + thumbnailName + "\" loading=\"lazy\" width=\""
+                        + thumbnailWidth + "\" alt=\"Screenshot\"></a>");
+            } else {
+                page.print("<a href=\"" + imageName + "\">" + escape(type)
+                        + "</a>");
+            }
+        }
+
+        /**
+         * Writes the downscaled screenshot.
+         *
+         * @param thumbnailFile the file of the thumbnail.
+         * @param screenshot the screenshot.
+         * @throws IOException error writing data.
+         */
+        private void writeThumbnail(File thumbnailFile, byte[] screenshot)
+                throws IOException {
+            final BufferedImage image = ImageUtils.read(screenshot);
+            if (image == null) {
+                return;
+            }
+            FileUtils.writeByteArrayToFile(thumbnailFile, ImageUtils
+                    .toPng(ImageUtils.scaleToWidth(image, thumbnailWidth)));
+        }
+
+        /**
+         * Closes the current page and opens the next one.
+         *
+         * @throws IOException error writing data.
+         */
+        private void nextPage() throws IOException {
+            if (page != null) {
+                page.println("</table>");
+                page.println("<p><a href=\"" + getPageName(pageNr + 1)
+                        + "\">Next</a></p>");
+                printFooter(page);
+                page.close();
+            }
+            pageNr++;
+            eventsOnPage = 0;
+            page =
+                    new PrintWriter(new File(reportDestination,
+                            getPageName(pageNr)), "UTF-8");
+            printHeader(page, "Page " + pageNr);
+            page.print("<p><a href=\"index.html\">Index</a>");
+            if (pageNr > 1) {
+                page.print(" <a href=\"" + getPageName(pageNr - 1)
+                        + "\">Previous</a>");
+            }
+            page.println("</p>");
+            page.println("<table>");
+        }
+
+        /**
+         * Closes the current page.
+         */
+        private void close() {
+            if (page != null) {
+                page.println("</table>");
+                printFooter(page);
+                page.close();
+                page = null;
+            }
+        }
+    }
+
+    /**
+     * A test in the index.
+     */
+    private static final class TestEntry {
+
+        /** The name of the test. */
+        private final String name;
+
+        /** The id of the start-event. */
+        private final Long eventId;
+
+        /** The number of the page with the start-event. */
+        private final int pageNr;
+
+        /** The id of the thread which runs the test. */
+        private final long threadId;
+
+        /** The finish-action of the test. */
+        private String result = "RUNNING";
+
+        /**
+         * Initiates an object of type TestEntry.
+         *
+         * @param name the name of the test.
+         * @param eventId the id of the start-event.
+         * @param pageNr the number of the page with the start-event.
+         * @param threadId the id of the thread which runs the test.
+         */
+        private TestEntry(String name, Long eventId, int pageNr,
+                long threadId) {
+            this.name = name;
+            this.eventId = eventId;
+            this.pageNr = pageNr;
+            this.threadId = threadId;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package de.ppi.selenium.logevent.report;
+
+import de.ppi.selenium.logevent.api.EventStorage;
+
+/**
+ * A {@link LogReporter} which reports each test when it's finished. At the
+ * end only {@link #finishReport(EventStorage, String)} is called instead of
+ * {@link #createReport(EventStorage, String)}.
+ *
+ */
+public interface IncrementalLogReporter extends LogReporter {
+
+    /**
+     * Reports the test which was finished last by the given thread. The events
+     * of the test are already written.
+     *
+     * @param storage the storage system.
+     * @param testrunId the id of the testrun.
+     * @param threadId the id of the thread which has run the test.
+     */
+    void testFinished(EventStorage storage, String testrunId, long threadId);
+
+    /**
+     * Finishes the report after all tests, i.e. writes an index.
+     *
+     * @param storage the storage system.
+     * @param testrunId the id of the testrun.
+     */
+    void finishReport(EventStorage storage, String testrunId);
+
+}
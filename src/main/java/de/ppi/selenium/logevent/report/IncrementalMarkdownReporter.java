@@ -0,0 +1,117 @@
+package de.ppi.selenium.logevent.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.ppi.selenium.logevent.api.ClosableIterable;
+import de.ppi.selenium.logevent.api.EventData;
+import de.ppi.selenium.logevent.api.EventStorage;
+import de.ppi.selenium.logevent.api.Priority;
+
+/**
+ * {@link MarkdownReporter} which writes the markdown-file of a test as soon as
+ * the test is finished. At the end an index.md with links to all
+ * markdown-files is written.
+ *
+ */
+public class IncrementalMarkdownReporter extends MarkdownReporter implements
+        IncrementalLogReporter {
+
+    /** Logger instance. */
+    private static final Logger LOG = LoggerFactory
+            .getLogger(IncrementalMarkdownReporter.class);
+
+    /** Id of the last reported event per thread. */
+    private final ConcurrentMap<Long, Long> lastIds =
+            new ConcurrentHashMap<Long, Long>();
+
+    /** The written markdown-files with the result of the test. */
+    private final Map<File, String> reportedTests =
+            new ConcurrentSkipListMap<File, String>();
+
+    /**
+     * Initiates an object of type IncrementalMarkdownReporter.
+     *
+     * @param reportDestination target directory
+     * @param logOnlyOnError true if a report should only create if an error has
+     *            happened.
+     * @param priority Lowest {@link Priority} which should be reported.
+     */
+    public IncrementalMarkdownReporter(String reportDestination,
+            boolean logOnlyOnError, Priority priority) {
+        super(reportDestination, logOnlyOnError, priority);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void testFinished(EventStorage storage, String testrunId,
+            long threadId) {
+        final Long thread = Long.valueOf(threadId);
+        final Long lastId = lastIds.get(thread);
+        final List<EventData> events = new ArrayList<EventData>();
+        try (ClosableIterable<EventData> logdata =
+                storage.getEvents(testrunId, createQuery()
+                        .withThreadId(threadId)
+                        .withAfterId(lastId == null ? 0L : lastId.longValue()))) {
+            for (EventData eventData : logdata) {
+                events.add(eventData);
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Problems during report.", e);
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+        final EventData lastEvent = events.get(events.size() - 1);
+        lastIds.put(thread, lastEvent.getId());
+        try {
+            final File markdownFile =
+                    renderTest(getReportDestination(testrunId),
+                            events.iterator());
+            if (markdownFile != null) {
+                reportedTests.put(markdownFile, lastEvent.getAction());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Problems during report.", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void finishReport(EventStorage storage, String testrunId) {
+        final File reportDestination = getReportDestination(testrunId);
+        if (reportedTests.isEmpty()) {
+            return;
+        }
+        final File indexFile = new File(reportDestination, "index.md");
+        try (PrintWriter index = new PrintWriter(indexFile)) {
+            index.println("# " + testrunId);
+            index.println();
+            for (Map.Entry<File, String> test : reportedTests.entrySet()) {
+                final String link =
+                        reportDestination.toURI()
+                                .relativize(test.getKey().toURI()).getPath();
+                index.println("- [" + link + "](" + link + ") "
+                        + test.getValue());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Problems during report.", e);
+        } finally {
+            LOG.info("Write to {}.", indexFile.getAbsolutePath());
+        }
+    }
+}
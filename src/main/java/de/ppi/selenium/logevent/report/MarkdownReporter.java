@@ -3,9 +3,21 @@ package de.ppi.selenium.logevent.report;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.ArrayUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,6 +25,7 @@ import org.slf4j.LoggerFactory;
 import de.ppi.selenium.logevent.api.ClosableIterable;
 import de.ppi.selenium.logevent.api.EventActions;
 import de.ppi.selenium.logevent.api.EventData;
+import de.ppi.selenium.logevent.api.EventQuery;
 import de.ppi.selenium.logevent.api.EventStorage;
 import de.ppi.selenium.logevent.api.Priority;
 
@@ -44,6 +57,12 @@ public class MarkdownReporter implements LogReporter {
     /** MessageSource. */
     private final MessageSource messageSource = new MessageSourceImpl();
 
+    /** Number of threads which render the tests. */
+    private final int nrOfThreads;
+
+    /** Lock for creating and deleting the directories of the tests. */
+    private final Object dirLock = new Object();
+
     /**
      * Initiates an object of type MarkdownReporter.
      *
@@ -54,7 +73,24 @@ public class MarkdownReporter implements LogReporter {
      */
     public MarkdownReporter(String reportDestination, boolean logOnlyOnError,
             Priority priority) {
+        this(reportDestination, logOnlyOnError, priority, 1);
+    }
+
+    /**
+     * Initiates an object of type MarkdownReporter, which renders the tests
+     * with the given number of threads.
+     *
+     * @param reportDestination target directory
+     * @param logOnlyOnError true if a report should only create if an error has
+     *            happened.
+     * @param priority Lowest {@link Priority} which should be reported.
+     * @param nrOfThreads number of threads which render the tests, 1 means
+     *            the report is created by the calling thread.
+     */
+    public MarkdownReporter(String reportDestination, boolean logOnlyOnError,
+            Priority priority, int nrOfThreads) {
         super();
+        this.nrOfThreads = nrOfThreads;
         this.reportDestinationParent = new File(reportDestination);
         if (!this.reportDestinationParent.exists()
                 && !this.reportDestinationParent.mkdirs()) {
@@ -71,57 +107,27 @@ public class MarkdownReporter implements LogReporter {
      */
     @Override
     public void createReport(EventStorage storage, String testrunId) {
-        final File reportDestination =
-                new File(reportDestinationParent, testrunId);
+        final File reportDestination = getReportDestination(testrunId);
         try (ClosableIterable<EventData> logdata =
-                storage.getAllEvents(testrunId)) {
-            String testCase = null;
-            String testMethod = null;
-            File currentReportDir = reportDestination;
-            File markdownFile = null;
-            PrintWriter markdown = null;
-            for (EventData eventData : logdata) {
-                final String action = eventData.getAction();
-                if (EventActions.TEST_START.equals(action)) {
-                    testCase = eventData.getGroupId();
-                    testMethod = eventData.getItem();
-                    currentReportDir =
-                            getTestProtocolDir(reportDestination, testCase,
-                                    testMethod);
-                    currentReportDir.mkdirs();
-                    markdownFile =
-                            new File(currentReportDir,
-                                    getCleanFilename(eventData.getArgument1()
-                                            .toString()) + ".md");
-                    markdown = new PrintWriter(markdownFile);
-                } else {
-                    if (priority == null
-                            || eventData.getPriority().isMoreImportantThan(
-                                    priority)) {
-                        printToMarkdown(currentReportDir, markdown, testMethod,
-                                eventData);
-                    }
-                }
-                if (EventActions.TEST_FINISHED.equals(action)
-                        || EventActions.TEST_SKIPPED.equals(action)
-                        || EventActions.TEST_FINISHED_WITH_FAILURES
-                                .equals(action)
-                        || EventActions.TEST_FINISHED_WITH_EXCEPTION
-                                .equals(action)) {
-                    markdown.close();
-                    if (logOnlyOnError
-                            && currentReportDir.listFiles().length == 1) {
-                        markdownFile.delete();
+                storage.getEvents(testrunId, createQuery())) {
+            if (nrOfThreads > 1) {
+                createReportParallel(reportDestination, logdata);
+            } else {
+                TestReport testReport = null;
+                for (EventData eventData : logdata) {
+                    if (EventActions.TEST_START.equals(eventData.getAction())) {
+                        if (testReport != null) {
+                            testReport.close();
+                        }
+                        testReport =
+                                new TestReport(reportDestination, eventData);
+                    } else if (testReport != null && testReport.add(eventData)) {
+                        testReport = null;
                     }
-                    markdownFile = null;
-                    markdown = null;
                 }
-                if (EventActions.TEST_FINISHED.equals(action)
-                        || EventActions.TEST_SKIPPED.equals(action)) {
-                    deleteDirIfEmpty(currentReportDir);
-                    deleteDirIfEmpty(currentReportDir.getParentFile());
+                if (testReport != null) {
+                    testReport.close();
                 }
-
             }
         } catch (Exception e) {
             throw new IllegalStateException("Problems during report.", e);
@@ -131,6 +137,126 @@ public class MarkdownReporter implements LogReporter {
         deleteDirIfEmpty(reportDestination);
     }
 
+    /**
+     * Delivers the directory of the report of the testrun.
+     *
+     * @param testrunId the id of the testrun.
+     * @return the directory.
+     */
+    protected File getReportDestination(String testrunId) {
+        return new File(reportDestinationParent, testrunId);
+    }
+
+    /**
+     * Creates the query for the events which are reported.
+     *
+     * @return the query.
+     */
+    protected EventQuery createQuery() {
+        return EventQuery.ALL.withMinPriority(priority).withTestBoundaries();
+    }
+
+    /**
+     * Renders the events of one test. Events before the start-event are
+     * ignored.
+     *
+     * @param reportDestination the directory of the report.
+     * @param events the events of the test.
+     * @return the markdown-file or <code>null</code> if none was written.
+     * @throws IOException error writing data.
+     */
+    protected File renderTest(File reportDestination,
+            Iterator<EventData> events) throws IOException {
+        TestReport testReport = null;
+        while (testReport == null && events.hasNext()) {
+            final EventData eventData = events.next();
+            if (EventActions.TEST_START.equals(eventData.getAction())) {
+                testReport = new TestReport(reportDestination, eventData);
+            }
+        }
+        if (testReport == null) {
+            return null;
+        }
+        boolean finished = false;
+        while (!finished && events.hasNext()) {
+            finished = testReport.add(events.next());
+        }
+        if (!finished) {
+            testReport.close();
+        }
+        return testReport.markdownFile.exists() ? testReport.markdownFile
+                : null;
+    }
+
+    /**
+     * Creates the report with {@link #nrOfThreads} threads. The events are
+     * collected per thread until the test is finished, then the test is
+     * rendered by the executor. The screenshots are loaded by the rendering
+     * thread.
+     *
+     * @param reportDestination the directory of the report.
+     * @param logdata the events.
+     * @throws Exception if the report can't be created.
+     */
+    private void createReportParallel(final File reportDestination,
+            Iterable<EventData> logdata) throws Exception {
+        final ThreadPoolExecutor executor =
+                new ThreadPoolExecutor(nrOfThreads, nrOfThreads, 0L,
+                        TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<Runnable>(2 * nrOfThreads),
+                        new ThreadPoolExecutor.CallerRunsPolicy());
+        final List<Future<?>> results = new ArrayList<Future<?>>();
+        final Map<Long, List<EventData>> runningTests =
+                new HashMap<Long, List<EventData>>();
+        try {
+            for (EventData eventData : logdata) {
+                final Long threadId = Long.valueOf(eventData.getThreadId());
+                final String action = eventData.getAction();
+                if (EventActions.TEST_START.equals(action)) {
+                    final List<EventData> unfinished =
+                            runningTests.put(threadId,
+                                    new ArrayList<EventData>());
+                    if (unfinished != null) {
+                        results.add(executor.submit(new RenderTask(
+                                reportDestination, unfinished)));
+                    }
+                }
+                final List<EventData> testEvents = runningTests.get(threadId);
+                if (testEvents == null) {
+                    continue;
+                }
+                testEvents.add(eventData);
+                if (isFinished(action)) {
+                    runningTests.remove(threadId);
+                    results.add(executor.submit(new RenderTask(
+                            reportDestination, testEvents)));
+                }
+            }
+            for (List<EventData> unfinished : runningTests.values()) {
+                results.add(executor.submit(new RenderTask(reportDestination,
+                        unfinished)));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Checks if the action finishes a test.
+     *
+     * @param action the action.
+     * @return true if the action finishes a test.
+     */
+    protected static boolean isFinished(String action) {
+        return EventActions.TEST_FINISHED.equals(action)
+                || EventActions.TEST_SKIPPED.equals(action)
+                || EventActions.TEST_FINISHED_WITH_FAILURES.equals(action)
+                || EventActions.TEST_FINISHED_WITH_EXCEPTION.equals(action);
+    }
+
     /**
      * Create a log to the markdown file.
      *
@@ -152,7 +278,8 @@ public class MarkdownReporter implements LogReporter {
                 eventData.getItem(), eventData.getAction(),
                 eventData.getArgument1(), eventData.getArgument2(),
                 eventData.getArgument3(), eventData.getArgument4()));
-        if (ArrayUtils.isNotEmpty(eventData.getScreenshot())) {
+        final byte[] screenshot = eventData.getScreenshot();
+        if (ArrayUtils.isNotEmpty(screenshot)) {
             final String screenshotName =
                     eventData.getId()
                             + "."
@@ -162,15 +289,146 @@ public class MarkdownReporter implements LogReporter {
                                     + eventData.getDescription() + "_"
                                     + eventData.getArgument1()) + "."
                             + eventData.getScreenShotType();
-            final File screenshotFile =
-                    new File(currentReportDir, screenshotName);
-            FileUtils.writeByteArrayToFile(screenshotFile,
-                    eventData.getScreenshot());
+            writeScreenshot(new File(currentReportDir, screenshotName),
+                    screenshot);
             markdown.print("![Screenshot](" + screenshotName + ")");
         }
         markdown.println();
     }
 
+    /**
+     * Writes the screenshot via a {@link FileChannel}.
+     *
+     * @param screenshotFile the file.
+     * @param screenshot the screenshot.
+     * @throws IOException error writing data.
+     */
+    private static void writeScreenshot(File screenshotFile, byte[] screenshot)
+            throws IOException {
+        try (FileChannel channel =
+                FileChannel.open(screenshotFile.toPath(),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            final ByteBuffer buffer = ByteBuffer.wrap(screenshot);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * The markdown-file of one test.
+     */
+    private final class TestReport {
+
+        /** The report-directory of the test. */
+        private final File reportDir;
+
+        /** The name of the test-method. */
+        private final String testMethod;
+
+        /** The markdown-file. */
+        private final File markdownFile;
+
+        /** The markdown-output. */
+        private final PrintWriter markdown;
+
+        /**
+         * Initiates an object of type TestReport and creates the
+         * markdown-file.
+         *
+         * @param reportDestination the directory of the report.
+         * @param startEvent the start-event of the test.
+         * @throws IOException if the file can't be created.
+         */
+        private TestReport(File reportDestination, EventData startEvent)
+                throws IOException {
+            testMethod = startEvent.getItem();
+            reportDir =
+                    getTestProtocolDir(reportDestination,
+                            startEvent.getGroupId(), testMethod);
+            markdownFile =
+                    new File(reportDir, getCleanFilename(startEvent
+                            .getArgument1().toString()) + ".md");
+            synchronized (dirLock) {
+                reportDir.mkdirs();
+                markdown = new PrintWriter(markdownFile);
+            }
+        }
+
+        /**
+         * Adds the event to the markdown-file.
+         *
+         * @param eventData the event.
+         * @return true if the event finishes the test, then the file is
+         *         closed.
+         * @throws IOException error writing data.
+         */
+        private boolean add(EventData eventData) throws IOException {
+            if (priority == null
+                    || eventData.getPriority().isMoreImportantThan(priority)) {
+                printToMarkdown(reportDir, markdown, testMethod, eventData);
+            }
+            final String action = eventData.getAction();
+            if (!isFinished(action)) {
+                return false;
+            }
+            close();
+            if (EventActions.TEST_FINISHED.equals(action)
+                    || EventActions.TEST_SKIPPED.equals(action)) {
+                synchronized (dirLock) {
+                    deleteDirIfEmpty(reportDir);
+                    deleteDirIfEmpty(reportDir.getParentFile());
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Closes the markdown-file and deletes it if only errors should be
+         * reported and there is no screenshot.
+         */
+        private void close() {
+            markdown.close();
+            if (logOnlyOnError && reportDir.listFiles().length == 1) {
+                markdownFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Renders the events of one test.
+     */
+    private final class RenderTask implements Callable<Void> {
+
+        /** The directory of the report. */
+        private final File reportDestination;
+
+        /** The events of the test, beginning with the start-event. */
+        private final List<EventData> events;
+
+        /**
+         * Initiates an object of type RenderTask.
+         *
+         * @param reportDestination the directory of the report.
+         * @param events the events of the test, beginning with the
+         *            start-event.
+         */
+        private RenderTask(File reportDestination, List<EventData> events) {
+            this.reportDestination = reportDestination;
+            this.events = events;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Void call() throws IOException {
+            renderTest(reportDestination, events.iterator());
+            return null;
+        }
+    }
+
     /**
      * Create the name of the protocol-directory.
      *
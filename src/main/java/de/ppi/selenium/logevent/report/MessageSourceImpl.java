@@ -1,27 +1,105 @@
 package de.ppi.selenium.logevent.report;
 
 import java.text.MessageFormat;
+import java.util.Enumeration;
 import java.util.Locale;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
- * Default-Implementation.
+ * Default-Implementation. The {@link MessageFormat}s are compiled once per key
+ * and locale, the keys of the default locale are compiled at construction.
+ * Keys which aren't defined in the resource bundle, like free-text
+ * descriptions, are formatted without caching, so the cache is limited to the
+ * bundle. The instance is thread-safe.
  *
  */
 public class MessageSourceImpl implements MessageSource {
 
+    /** Name of the resource bundle. */
+    private static final String BUNDLE_NAME = "WebTestMessages";
+
+    /** The compiled formats per locale and key. */
+    private final ConcurrentMap<Locale,
+            ConcurrentMap<String, MessageFormat>> formats =
+            new ConcurrentHashMap<Locale,
+                    ConcurrentMap<String, MessageFormat>>();
+
+    /**
+     * Initiates an object of type MessageSourceImpl.
+     */
+    public MessageSourceImpl() {
+        super();
+        precompile(Locale.getDefault());
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public String getMessage(String key, Locale locale, Object... arguments) {
+        final ConcurrentMap<String, MessageFormat> formatsOfLocale =
+                getFormats(locale);
+        final MessageFormat messageFormat = formatsOfLocale.get(key);
+        if (messageFormat != null) {
+            // MessageFormat isn't thread-safe, so format with a copy.
+            return ((MessageFormat) messageFormat.clone()).format(arguments);
+        }
+        final ResourceBundle resourceBundle =
+                ResourceBundle.getBundle(BUNDLE_NAME, locale);
+        if (!resourceBundle.containsKey(key)) {
+            return new MessageFormat(key, locale).format(arguments);
+        }
+        final MessageFormat created =
+                new MessageFormat(resourceBundle.getString(key), locale);
+        formatsOfLocale.putIfAbsent(key, created);
+        return ((MessageFormat) created.clone()).format(arguments);
+    }
+
+    /**
+     * Checks if the format of the key is cached.
+     *
+     * @param key the key.
+     * @param locale the locale.
+     * @return true if the format is cached.
+     */
+    boolean isCached(String key, Locale locale) {
+        return getFormats(locale).containsKey(key);
+    }
+
+    /**
+     * Compiles all keys of the resource bundle for the given locale.
+     *
+     * @param locale the locale.
+     */
+    private void precompile(Locale locale) {
+        final ConcurrentMap<String, MessageFormat> formatsOfLocale =
+                getFormats(locale);
         final ResourceBundle resourceBundle =
-                ResourceBundle.getBundle("WebTestMessages", locale);
-        final String message =
-                resourceBundle.containsKey(key) ? resourceBundle.getString(key)
-                        : key;
-        MessageFormat messageFormat = new MessageFormat(message, locale);
+                ResourceBundle.getBundle(BUNDLE_NAME, locale);
+        final Enumeration<String> keys = resourceBundle.getKeys();
+        while (keys.hasMoreElements()) {
+            final String key = keys.nextElement();
+            formatsOfLocale.putIfAbsent(key, new MessageFormat(
+                    resourceBundle.getString(key), locale));
+        }
+    }
 
-        return messageFormat.format(arguments);
+    /**
+     * Delivers the compiled formats of the given locale.
+     *
+     * @param locale the locale.
+     * @return the compiled formats.
+     */
+    private ConcurrentMap<String, MessageFormat> getFormats(Locale locale) {
+        ConcurrentMap<String, MessageFormat> formatsOfLocale =
+                formats.get(locale);
+        if (formatsOfLocale == null) {
+            formats.putIfAbsent(locale,
+                    new ConcurrentHashMap<String, MessageFormat>());
+            formatsOfLocale = formats.get(locale);
+        }
+        return formatsOfLocale;
     }
 }
@@ -0,0 +1,461 @@
+package de.ppi.selenium.logevent.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.stream.JsonWriter;
+
+import de.ppi.selenium.logevent.api.ClosableIterable;
+import de.ppi.selenium.logevent.api.EventActions;
+import de.ppi.selenium.logevent.api.EventData;
+import de.ppi.selenium.logevent.api.EventQuery;
+import de.ppi.selenium.logevent.api.EventSource;
+import de.ppi.selenium.logevent.api.EventStorage;
+
+/**
+ * Reports the duration of the webdriver- and webelement-actions and of the
+ * tests. The before- and after-events of an action are paired by thread,
+ * group (the page), item (the field) and action. For each group, item and
+ * action the number of calls, the sum and the percentiles p50, p95, p99 of
+ * the durations in milliseconds are written to timings.csv and timings.json.
+ * The duration of each test is written to tests.csv. Fields of the csv-files
+ * which contain the separator, quotes or line-breaks are quoted.
+ *
+ */
+public class TimingReporter implements LogReporter {
+
+    /** Logger instance. */
+    private static final Logger LOG = LoggerFactory
+            .getLogger(TimingReporter.class);
+
+    /** Separator of the csv-files. */
+    private static final String SEPARATOR = ";";
+
+    /** Parent-Directory for the report. */
+    private final File reportDestinationParent;
+
+    /**
+     * Initiates an object of type TimingReporter.
+     *
+     * @param reportDestination target directory
+     */
+    public TimingReporter(String reportDestination) {
+        super();
+        this.reportDestinationParent = new File(reportDestination);
+        if (!this.reportDestinationParent.exists()
+                && !this.reportDestinationParent.mkdirs()) {
+            throw new IllegalStateException(
+                    this.reportDestinationParent.getAbsolutePath()
+                            + " can't be created.");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void createReport(EventStorage storage, String testrunId) {
+        final File reportDestination =
+                new File(reportDestinationParent, testrunId);
+        if (!reportDestination.exists() && !reportDestination.mkdirs()) {
+            throw new IllegalStateException(
+                    reportDestination.getAbsolutePath() + " can't be created.");
+        }
+        final Timings timings = new Timings();
+        try (ClosableIterable<EventData> logdata =
+                storage.getEvents(testrunId,
+                        EventQuery.ALL.withScreenshots(false))) {
+            for (EventData eventData : logdata) {
+                timings.add(eventData);
+            }
+            writeActionsCsv(new File(reportDestination, "timings.csv"),
+                    timings.actions);
+            writeActionsJson(new File(reportDestination, "timings.json"),
+                    timings.actions);
+            writeTestsCsv(new File(reportDestination, "tests.csv"),
+                    timings.tests);
+        } catch (Exception e) {
+            throw new IllegalStateException("Problems during report.", e);
+        } finally {
+            LOG.info("Write to {}.", reportDestination.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Writes the statistic of the actions as csv.
+     *
+     * @param csvFile the file.
+     * @param actions the statistic of the actions.
+     * @throws IOException error writing data.
+     */
+    private static void writeActionsCsv(File csvFile,
+            Map<ActionKey, Durations> actions) throws IOException {
+        try (PrintWriter csv = new PrintWriter(csvFile, "UTF-8")) {
+            csv.println("group;item;action;count;sum;p50;p95;p99;max");
+            for (Map.Entry<ActionKey, Durations> entry : actions.entrySet()) {
+                final ActionKey key = entry.getKey();
+                final Durations durations = entry.getValue();
+                csv.println(escape(key.group) + SEPARATOR
+                        + escape(key.item) + SEPARATOR + escape(key.action)
+                        + SEPARATOR + durations.count + SEPARATOR
+                        + durations.sum + SEPARATOR
+                        + durations.percentile(50) + SEPARATOR
+                        + durations.percentile(95) + SEPARATOR
+                        + durations.percentile(99) + SEPARATOR
+                        + durations.percentile(100));
+            }
+        }
+    }
+
+    /**
+     * Writes the statistic of the actions as json.
+     *
+     * @param jsonFile the file.
+     * @param actions the statistic of the actions.
+     * @throws IOException error writing data.
+     */
+    private static void writeActionsJson(File jsonFile,
+            Map<ActionKey, Durations> actions) throws IOException {
+        try (Writer out =
+                new OutputStreamWriter(
+                        Files.newOutputStream(jsonFile.toPath()),
+                        StandardCharsets.UTF_8);
+                JsonWriter json = new JsonWriter(out)) {
+            json.setIndent("  ");
+            json.beginArray();
+            for (Map.Entry<ActionKey, Durations> entry : actions.entrySet()) {
+                final ActionKey key = entry.getKey();
+                final Durations durations = entry.getValue();
+                json.beginObject();
+                json.name("group").value(key.group);
+                json.name("item").value(key.item);
+                json.name("action").value(key.action);
+                json.name("count").value(durations.count);
+                json.name("sum").value(durations.sum);
+                json.name("p50").value(durations.percentile(50));
+                json.name("p95").value(durations.percentile(95));
+                json.name("p99").value(durations.percentile(99));
+                json.name("max").value(durations.percentile(100));
+                json.endObject();
+            }
+            json.endArray();
+        }
+    }
+
+    /**
+     * Writes the duration of the tests as csv.
+     *
+     * @param csvFile the file.
+     * @param tests the tests.
+     * @throws IOException error writing data.
+     */
+    private static void writeTestsCsv(File csvFile, List<TestTiming> tests)
+            throws IOException {
+        try (PrintWriter csv = new PrintWriter(csvFile, "UTF-8")) {
+            csv.println("group;item;threadId;result;duration");
+            for (TestTiming test : tests) {
+                csv.println(escape(test.group) + SEPARATOR
+                        + escape(test.item) + SEPARATOR + test.threadId
+                        + SEPARATOR + escape(test.result) + SEPARATOR
+                        + test.duration);
+            }
+        }
+    }
+
+    /**
+     * Quotes a csv-field, if it contains the separator, quotes or
+     * line-breaks. Quotes in the field are doubled.
+     *
+     * @param field the field, could be <code>null</code>.
+     * @return the field for the csv-file.
+     */
+    private static String escape(String field) {
+        if (field == null) {
+            return "";
+        }
+        if (field.contains(SEPARATOR) || field.indexOf('"') >= 0
+                || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0) {
+            return '"' + field.replace("\"", "\"\"") + '"';
+        }
+        return field;
+    }
+
+    /**
+     * Collects the durations while the events are read.
+     */
+    private static final class Timings {
+
+        /** The durations per group, item and action. */
+        private final Map<ActionKey, Durations> actions =
+                new TreeMap<ActionKey, Durations>();
+
+        /** The timestamps of the before-events which aren't finished yet. */
+        private final Map<ThreadActionKey, Deque<Long>> running =
+                new HashMap<ThreadActionKey, Deque<Long>>();
+
+        /** The tests which are started but not finished, per thread. */
+        private final Map<Long, TestTiming> runningTests =
+                new HashMap<Long, TestTiming>();
+
+        /** The finished tests. */
+        private final List<TestTiming> tests = new ArrayList<TestTiming>();
+
+        /**
+         * Adds the event.
+         *
+         * @param eventData the event.
+         */
+        private void add(EventData eventData) {
+            final EventSource source = eventData.getSource();
+            final long ts = eventData.getTs().getTime();
+            if (source == EventSource.TEST) {
+                addTestEvent(eventData, ts);
+            } else if (source == EventSource.WEBDRIVER_BEFORE
+                    || source == EventSource.WEBELEMENT_BEFORE) {
+                final ThreadActionKey key = new ThreadActionKey(eventData);
+                Deque<Long> starts = running.get(key);
+                if (starts == null) {
+                    starts = new ArrayDeque<Long>();
+                    running.put(key, starts);
+                }
+                starts.push(Long.valueOf(ts));
+            } else if (source == EventSource.WEBDRIVER_AFTER
+                    || source == EventSource.WEBELEMENT_AFTER) {
+                final ThreadActionKey key = new ThreadActionKey(eventData);
+                final Deque<Long> starts = running.get(key);
+                if (starts == null || starts.isEmpty()) {
+                    return;
+                }
+                final long start = starts.pop().longValue();
+                Durations durations = actions.get(key.action);
+                if (durations == null) {
+                    durations = new Durations();
+                    actions.put(key.action, durations);
+                }
+                durations.add(ts - start);
+            }
+        }
+
+        /**
+         * Adds the start- or finish-event of a test.
+         *
+         * @param eventData the event.
+         * @param ts the timestamp of the event in milliseconds.
+         */
+        private void addTestEvent(EventData eventData, long ts) {
+            final Long threadId = Long.valueOf(eventData.getThreadId());
+            final String action = eventData.getAction();
+            if (EventActions.TEST_START.equals(action)) {
+                runningTests.put(threadId, new TestTiming(eventData, ts));
+            } else if (MarkdownReporter.isFinished(action)) {
+                final TestTiming test = runningTests.remove(threadId);
+                if (test != null) {
+                    test.result = action;
+                    test.duration = ts - test.start;
+                    tests.add(test);
+                }
+            }
+        }
+    }
+
+    /**
+     * Identifies an action by group, item and action.
+     */
+    private static final class ActionKey implements Comparable<ActionKey> {
+
+        /** The group, i.e. the page. */
+        private final String group;
+
+        /** The item, i.e. the field. */
+        private final String item;
+
+        /** The action. */
+        private final String action;
+
+        /**
+         * Initiates an object of type ActionKey.
+         *
+         * @param eventData the event.
+         */
+        private ActionKey(EventData eventData) {
+            this.group = String.valueOf(eventData.getGroupId());
+            this.item = String.valueOf(eventData.getItem());
+            this.action = String.valueOf(eventData.getAction());
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int compareTo(ActionKey other) {
+            int result = group.compareTo(other.group);
+            if (result == 0) {
+                result = item.compareTo(other.item);
+            }
+            if (result == 0) {
+                result = action.compareTo(other.action);
+            }
+            return result;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof ActionKey
+                    && compareTo((ActionKey) obj) == 0;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(new Object[] {group, item, action});
+        }
+    }
+
+    /**
+     * Identifies a running action by thread, group, item and action.
+     */
+    private static final class ThreadActionKey {
+
+        /** The id of the thread. */
+        private final long threadId;
+
+        /** The action. */
+        private final ActionKey action;
+
+        /**
+         * Initiates an object of type ThreadActionKey.
+         *
+         * @param eventData the event.
+         */
+        private ThreadActionKey(EventData eventData) {
+            this.threadId = eventData.getThreadId();
+            this.action = new ActionKey(eventData);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ThreadActionKey)) {
+                return false;
+            }
+            final ThreadActionKey other = (ThreadActionKey) obj;
+            return threadId == other.threadId && action.equals(other.action);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return 31 * action.hashCode()
+                    + (int) (threadId ^ (threadId >>> 32));
+        }
+    }
+
+    /**
+     * The durations of an action.
+     */
+    private static final class Durations {
+
+        /** The durations in milliseconds. */
+        private long[] values = new long[16];
+
+        /** The number of durations. */
+        private int count;
+
+        /** The sum of the durations. */
+        private long sum;
+
+        /** True if the values are sorted. */
+        private boolean sorted = true;
+
+        /**
+         * Adds a duration.
+         *
+         * @param duration the duration in milliseconds.
+         */
+        private void add(long duration) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, 2 * count);
+            }
+            values[count++] = duration;
+            sum += duration;
+            sorted = false;
+        }
+
+        /**
+         * Delivers the percentile with the nearest-rank method.
+         *
+         * @param percent the percent, 100 delivers the maximum.
+         * @return the percentile.
+         */
+        private long percentile(int percent) {
+            if (!sorted) {
+                Arrays.sort(values, 0, count);
+                sorted = true;
+            }
+            final int rank = (int) Math.ceil(percent / 100.0 * count);
+            return values[Math.max(rank, 1) - 1];
+        }
+    }
+
+    /**
+     * The timing of a test.
+     */
+    private static final class TestTiming {
+
+        /** The group, i.e. the test-class. */
+        private final String group;
+
+        /** The item, i.e. the test-method. */
+        private final String item;
+
+        /** The id of the thread. */
+        private final long threadId;
+
+        /** Timestamp of the start in milliseconds. */
+        private final long start;
+
+        /** The finish-action. */
+        private String result;
+
+        /** The duration in milliseconds. */
+        private long duration;
+
+        /**
+         * Initiates an object of type TestTiming.
+         *
+         * @param startEvent the start-event.
+         * @param start timestamp of the start in milliseconds.
+         */
+        private TestTiming(EventData startEvent, long start) {
+            this.group = startEvent.getGroupId();
+            this.item = startEvent.getItem();
+            this.threadId = startEvent.getThreadId();
+            this.start = start;
+        }
+    }
+}
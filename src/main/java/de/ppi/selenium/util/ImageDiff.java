@@ -0,0 +1,457 @@
+package de.ppi.selenium.util;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Compares two pictures tile by tile. The similarity is calculated like
+ * {@link ScreenshotUtils#similarity(BufferedImage, BufferedImage)}: the sum of
+ * the smaller values of each color-channel of each pixel divided by the sum of
+ * the greater values. Regions which change on each call, like timestamps, can
+ * be ignored. The comparison stops as soon as the threshold can't be reached
+ * anymore, even if all remaining pixels were equal. Pictures of different
+ * sizes are compared on the common area, the rest counts as different.
+ *
+ * <pre>
+ * ImageDiff diff = new ImageDiff(0.95).ignore(new Rectangle(0, 0, 200, 20));
+ * ImageDiff.Result result = diff.compare(actual, expected, diffFile);
+ * </pre>
+ */
+public final class ImageDiff {
+
+    /** Default size of a tile. */
+    public static final int DEFAULT_TILE_SIZE = 32;
+
+    /** Maximal value of the 3 color-channels of a pixel. */
+    private static final int MAX_PIXEL_VALUE = 3 * 0xFF;
+
+    /** Color of the tiles with differences in the diff-image. */
+    private static final Color DIFFERENT_COLOR = Color.RED;
+
+    /** Color of the ignored regions in the diff-image. */
+    private static final Color IGNORED_COLOR = Color.GRAY;
+
+    /** Opacity of the marks in the diff-image. */
+    private static final float MARK_ALPHA = .35f;
+
+    /** The minimal similarity (between 0.0 and 1.0). */
+    private final double threshold;
+
+    /** The size of the tiles. */
+    private int tileSize = DEFAULT_TILE_SIZE;
+
+    /** The ignored regions. */
+    private final List<Rectangle> ignoredRegions = new ArrayList<Rectangle>();
+
+    /**
+     * Initiates an object of type ImageDiff.
+     *
+     * @param threshold the minimal similarity (between 0.0 and 1.0).
+     */
+    public ImageDiff(double threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Sets the size of the tiles.
+     *
+     * @param size the width and height of a tile.
+     * @return this.
+     */
+    public ImageDiff withTileSize(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("The tile size must be "
+                    + "positive, but is " + size + ".");
+        }
+        this.tileSize = size;
+        return this;
+    }
+
+    /**
+     * Adds a region which is ignored.
+     *
+     * @param region the region in pixels of the pictures.
+     * @return this.
+     */
+    public ImageDiff ignore(Rectangle region) {
+        ignoredRegions.add(new Rectangle(region));
+        return this;
+    }
+
+    /**
+     * Compares the pictures and stops as soon as the threshold is missed.
+     *
+     * @param actual the current picture.
+     * @param expected the control picture.
+     * @return the result.
+     */
+    public Result compare(BufferedImage actual, BufferedImage expected) {
+        return compare(actual, expected, true);
+    }
+
+    /**
+     * Compares the pictures completely and writes a png with the marked
+     * differences, if there are any. The tiles with differences are marked
+     * red and the ignored regions gray.
+     *
+     * @param actual the current picture.
+     * @param expected the control picture.
+     * @param diffImage the png, which is written if the pictures differ.
+     * @return the result.
+     * @throws IOException if the png can't be written.
+     */
+    public Result compare(BufferedImage actual, BufferedImage expected,
+            File diffImage) throws IOException {
+        final Result result = compare(actual, expected, false);
+        if (!result.differentTiles.isEmpty()) {
+            ImageIO.write(createDiffImage(actual, result), "png", diffImage);
+        }
+        return result;
+    }
+
+    /**
+     * Compares the pictures.
+     *
+     * @param actual the current picture.
+     * @param expected the control picture.
+     * @param earlyExit true if the comparison should stop when the threshold
+     *            is missed.
+     * @return the result.
+     */
+    private Result compare(BufferedImage actual, BufferedImage expected,
+            boolean earlyExit) {
+        final int width = Math.min(actual.getWidth(), expected.getWidth());
+        final int height = Math.min(actual.getHeight(), expected.getHeight());
+        final Rectangle bounds =
+                new Rectangle(Math.max(actual.getWidth(), expected.getWidth()),
+                        Math.max(actual.getHeight(), expected.getHeight()));
+        final Set<Rectangle> differentTiles = new LinkedHashSet<Rectangle>();
+        long mins = 0;
+        long maxs = 0;
+        // pixels outside of the common area are different.
+        for (Rectangle tile : tiles(bounds)) {
+            final long outside =
+                    countCompared(tile)
+                            - countCompared(tile.intersection(new Rectangle(
+                                    width, height)));
+            if (outside > 0) {
+                maxs += outside * MAX_PIXEL_VALUE;
+                differentTiles.add(tile);
+            }
+        }
+        long remaining = countCompared(new Rectangle(width, height));
+        final RasterRows actualRows = RasterRows.of(actual);
+        final RasterRows expectedRows = RasterRows.of(expected);
+        final int[][] actualBand = new int[tileSize][actual.getWidth()];
+        final int[][] expectedBand = new int[tileSize][expected.getWidth()];
+        boolean complete = true;
+        bands: for (int bandY = 0; bandY < height; bandY += tileSize) {
+            final int bandHeight = Math.min(tileSize, height - bandY);
+            for (int y = 0; y < bandHeight; y++) {
+                actualRows.readRow(bandY + y, actualBand[y]);
+                expectedRows.readRow(bandY + y, expectedBand[y]);
+            }
+            for (int tileX = 0; tileX < width; tileX += tileSize) {
+                final Rectangle tile =
+                        new Rectangle(tileX, bandY, Math.min(tileSize, width
+                                - tileX), bandHeight);
+                final List<Rectangle> ignored = getIgnoredRegions(tile);
+                long tileMins = 0;
+                long tileMaxs = 0;
+                long compared = 0;
+                for (int y = 0; y < tile.height; y++) {
+                    final int[] a = actualBand[y];
+                    final int[] e = expectedBand[y];
+                    for (int x = tile.x; x < tile.x + tile.width; x++) {
+                        if (!ignored.isEmpty()
+                                && isIgnored(ignored, x, bandY + y)) {
+                            continue;
+                        }
+                        compared++;
+                        final int v = a[x];
+                        final int c = e[x];
+                        for (int shift = 0; shift <= 16; shift += 8) {
+                            final int vc = (v >>> shift) & 0xFF;
+                            final int cc = (c >>> shift) & 0xFF;
+                            if (vc > cc) {
+                                tileMins += cc;
+                                tileMaxs += vc;
+                            } else {
+                                tileMins += vc;
+                                tileMaxs += cc;
+                            }
+                        }
+                    }
+                }
+                mins += tileMins;
+                maxs += tileMaxs;
+                remaining -= compared;
+                if (tileMins != tileMaxs) {
+                    final Rectangle gridTile =
+                            tile.union(new Rectangle(tileX, bandY, Math.min(
+                                    tileSize, bounds.width - tileX), Math.min(
+                                    tileSize, bounds.height - bandY)));
+                    differentTiles.add(gridTile);
+                    // the best case: all remaining pixels are equal and white.
+                    final long best = remaining * MAX_PIXEL_VALUE;
+                    if (earlyExit
+                            && ratio(mins + best, maxs + best) < threshold) {
+                        complete = false;
+                        break bands;
+                    }
+                }
+            }
+        }
+        final double similarity = complete ? ratio(mins, maxs) : Double.NaN;
+        return new Result(complete && similarity >= threshold, similarity,
+                complete, differentTiles);
+    }
+
+    /**
+     * Calculates the similarity of the sums.
+     *
+     * @param mins sum of the smaller values.
+     * @param maxs sum of the greater values.
+     * @return the similarity, 1 if both are 0.
+     */
+    private static double ratio(long mins, long maxs) {
+        return maxs == 0 ? 1 : (double) mins / maxs;
+    }
+
+    /**
+     * Splits the area into tiles.
+     *
+     * @param area the area.
+     * @return the tiles.
+     */
+    private List<Rectangle> tiles(Rectangle area) {
+        final List<Rectangle> tiles = new ArrayList<Rectangle>();
+        for (int y = 0; y < area.height; y += tileSize) {
+            for (int x = 0; x < area.width; x += tileSize) {
+                tiles.add(new Rectangle(x, y, Math.min(tileSize, area.width
+                        - x), Math.min(tileSize, area.height - y)));
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Counts the pixels of the area which aren't ignored.
+     *
+     * @param area the area.
+     * @return the number of pixels which are compared.
+     */
+    private long countCompared(Rectangle area) {
+        if (area.isEmpty()) {
+            return 0;
+        }
+        return (long) area.width * area.height - countIgnored(area);
+    }
+
+    /**
+     * Counts the pixels of the area which are ignored. The area is split at
+     * the edges of the ignored regions into cells, which are either
+     * completely ignored or not, so overlapping regions are counted once.
+     *
+     * @param area the area.
+     * @return the number of ignored pixels.
+     */
+    private long countIgnored(Rectangle area) {
+        final List<Rectangle> ignored = new ArrayList<Rectangle>();
+        final TreeSet<Integer> xEdges = new TreeSet<Integer>();
+        final TreeSet<Integer> yEdges = new TreeSet<Integer>();
+        for (Rectangle region : getIgnoredRegions(area)) {
+            final Rectangle clipped = region.intersection(area);
+            if (!clipped.isEmpty()) {
+                ignored.add(clipped);
+                xEdges.add(clipped.x);
+                xEdges.add(clipped.x + clipped.width);
+                yEdges.add(clipped.y);
+                yEdges.add(clipped.y + clipped.height);
+            }
+        }
+        if (ignored.isEmpty()) {
+            return 0;
+        }
+        long count = 0;
+        Integer x = xEdges.first();
+        for (Integer nextX : xEdges.tailSet(x, false)) {
+            Integer y = yEdges.first();
+            for (Integer nextY : yEdges.tailSet(y, false)) {
+                if (isIgnored(ignored, x, y)) {
+                    count += (long) (nextX - x) * (nextY - y);
+                }
+                y = nextY;
+            }
+            x = nextX;
+        }
+        return count;
+    }
+
+    /**
+     * Delivers the ignored regions which intersect the area.
+     *
+     * @param area the area.
+     * @return the ignored regions.
+     */
+    private List<Rectangle> getIgnoredRegions(Rectangle area) {
+        if (ignoredRegions.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final List<Rectangle> result = new ArrayList<Rectangle>();
+        for (Rectangle region : ignoredRegions) {
+            if (region.intersects(area)) {
+                result.add(region);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks if the pixel is ignored.
+     *
+     * @param ignored the ignored regions.
+     * @param x the x-coordinate.
+     * @param y the y-coordinate.
+     * @return true if the pixel is in one of the regions.
+     */
+    private static boolean isIgnored(List<Rectangle> ignored, int x, int y) {
+        for (Rectangle region : ignored) {
+            if (region.contains(x, y)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates a copy of the actual picture with the marked differences.
+     *
+     * @param actual the current picture.
+     * @param result the result of the comparison.
+     * @return the diff-image.
+     */
+    private BufferedImage createDiffImage(BufferedImage actual, Result result) {
+        final Rectangle bounds = new Rectangle();
+        for (Rectangle tile : result.differentTiles) {
+            bounds.add(tile);
+        }
+        final BufferedImage diff =
+                new BufferedImage(Math.max(actual.getWidth(), bounds.x
+                        + bounds.width), Math.max(actual.getHeight(),
+                        bounds.y + bounds.height), BufferedImage.TYPE_INT_RGB);
+        final Graphics2D graphics = diff.createGraphics();
+        try {
+            graphics.drawImage(actual, 0, 0, null);
+            graphics.setComposite(AlphaComposite.getInstance(
+                    AlphaComposite.SRC_OVER, MARK_ALPHA));
+            graphics.setColor(IGNORED_COLOR);
+            for (Rectangle region : ignoredRegions) {
+                graphics.fill(region);
+            }
+            graphics.setColor(DIFFERENT_COLOR);
+            for (Rectangle tile : result.differentTiles) {
+                graphics.fill(tile);
+            }
+            graphics.setComposite(AlphaComposite.SrcOver);
+            for (Rectangle tile : result.differentTiles) {
+                graphics.drawRect(tile.x, tile.y, tile.width - 1,
+                        tile.height - 1);
+            }
+        } finally {
+            graphics.dispose();
+        }
+        return diff;
+    }
+
+    /**
+     * The result of a comparison.
+     */
+    public static final class Result {
+
+        /** True if the pictures are similar. */
+        private final boolean similar;
+
+        /** The similarity. */
+        private final double similarity;
+
+        /** True if all tiles were compared. */
+        private final boolean complete;
+
+        /** The tiles with differences. */
+        private final List<Rectangle> differentTiles;
+
+        /**
+         * Initiates an object of type Result.
+         *
+         * @param similar true if the pictures are similar.
+         * @param similarity the similarity.
+         * @param complete true if all tiles were compared.
+         * @param differentTiles the tiles with differences.
+         */
+        private Result(boolean similar, double similarity, boolean complete,
+                Collection<Rectangle> differentTiles) {
+            this.similar = similar;
+            this.similarity = similarity;
+            this.complete = complete;
+            this.differentTiles =
+                    Collections.unmodifiableList(new ArrayList<Rectangle>(
+                            differentTiles));
+        }
+
+        /**
+         * @return true if the similarity reaches the threshold.
+         */
+        public boolean isSimilar() {
+            return similar;
+        }
+
+        /**
+         * @return the similarity between 0.0 and 1.0 or NaN if the comparison
+         *         stopped early.
+         */
+        public double getSimilarity() {
+            return similarity;
+        }
+
+        /**
+         * @return true if all tiles were compared, false if the comparison
+         *         stopped because the threshold couldn't be reached.
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+
+        /**
+         * @return the tiles with differences, if the comparison stopped early
+         *         only the tiles found so far.
+         */
+        public List<Rectangle> getDifferentTiles() {
+            return differentTiles;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return "Result [similar=" + similar + ", similarity=" + similarity
+                    + ", complete=" + complete + ", differentTiles="
+                    + differentTiles.size() + "]";
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package de.ppi.selenium.util;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Helper to convert and scale images in memory.
+ *
+ */
+public final class ImageUtils {
+
+    /**
+     * Initiates an object of type ImageUtils.
+     */
+    private ImageUtils() {
+        super();
+    }
+
+    /**
+     * Reads an image from the bytes.
+     *
+     * @param bytes the encoded image, i.e. png.
+     * @return the image.
+     * @throws IOException if the bytes can't be decoded.
+     */
+    public static BufferedImage read(byte[] bytes) throws IOException {
+        final BufferedImage image =
+                ImageIO.read(new ByteArrayInputStream(bytes));
+        if (image == null) {
+            throw new IOException("Unknown image format.");
+        }
+        return image;
+    }
+
+    /**
+     * Encodes the image as png.
+     *
+     * @param image the image.
+     * @return the png as bytes.
+     * @throws IOException if the image can't be encoded.
+     */
+    public static byte[] toPng(BufferedImage image) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Scales the image down, so that it isn't wider than maxWidth. The aspect
+     * ratio is kept.
+     *
+     * @param image the image.
+     * @param maxWidth the maximal width.
+     * @return the image itself, if it isn't wider than maxWidth, otherwise a
+     *         scaled copy.
+     */
+    public static BufferedImage scaleToWidth(BufferedImage image, int maxWidth) {
+        if (maxWidth <= 0 || image.getWidth() <= maxWidth) {
+            return image;
+        }
+        final int height =
+                Math.max(1, (int) ((long) image.getHeight() * maxWidth / image
+                        .getWidth()));
+        final BufferedImage scaled =
+                new BufferedImage(maxWidth, height, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                    RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, maxWidth, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+}
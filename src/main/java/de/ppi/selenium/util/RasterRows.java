@@ -0,0 +1,235 @@
+package de.ppi.selenium.util;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+/**
+ * Reads the rows of an image as packed RGB-values (0xRRGGBB) without creating
+ * objects per pixel. For images with an int- or byte-buffer, which are the
+ * usual types of screenshots, the rows are read directly from the buffer,
+ * otherwise {@link BufferedImage#getRGB(int, int, int, int, int[], int, int)}
+ * is used. Sub-images are supported.
+ *
+ */
+abstract class RasterRows {
+
+    /** Mask for the RGB-value without alpha. */
+    static final int RGB_MASK = 0xFFFFFF;
+
+    /** Width of the image. */
+    private final int width;
+
+    /** Height of the image. */
+    private final int height;
+
+    /**
+     * Initiates an object of type RasterRows.
+     *
+     * @param image the image.
+     */
+    private RasterRows(BufferedImage image) {
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+    }
+
+    /**
+     * Creates the fastest reader for the image.
+     *
+     * @param image the image.
+     * @return the reader.
+     */
+    static RasterRows of(BufferedImage image) {
+        final Raster raster = image.getRaster();
+        final DataBuffer dataBuffer = raster.getDataBuffer();
+        final SampleModel sampleModel = raster.getSampleModel();
+        if (dataBuffer instanceof DataBufferInt
+                && sampleModel instanceof SinglePixelPackedSampleModel
+                && (image.getType() == BufferedImage.TYPE_INT_RGB || image
+                        .getType() == BufferedImage.TYPE_INT_ARGB)) {
+            return new IntRows(image);
+        }
+        final ColorModel colorModel = image.getColorModel();
+        if (dataBuffer instanceof DataBufferByte
+                && sampleModel instanceof PixelInterleavedSampleModel
+                && colorModel instanceof ComponentColorModel
+                && colorModel.getColorSpace().getType() == ColorSpace.TYPE_RGB
+                && colorModel.getColorSpace().isCS_sRGB()
+                && sampleModel.getNumBands() >= 3) {
+            return new ByteRows(image);
+        }
+        return new GenericRows(image);
+    }
+
+    /**
+     * @return the width of the image.
+     */
+    int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the image.
+     */
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * Reads a row, the alpha-bits of the values are undefined.
+     *
+     * @param y the number of the row.
+     * @param rgb the target with at least {@link #getWidth()} elements.
+     */
+    abstract void readRow(int y, int[] rgb);
+
+    /**
+     * Reads directly from the int-buffer of TYPE_INT_RGB or TYPE_INT_ARGB.
+     */
+    private static final class IntRows extends RasterRows {
+
+        /** The data of the buffer. */
+        private final int[] data;
+
+        /** Offset of the first pixel. */
+        private final int offset;
+
+        /** Distance between two rows. */
+        private final int scanlineStride;
+
+        /**
+         * Initiates an object of type IntRows.
+         *
+         * @param image the image.
+         */
+        private IntRows(BufferedImage image) {
+            super(image);
+            final Raster raster = image.getRaster();
+            final DataBufferInt dataBuffer =
+                    (DataBufferInt) raster.getDataBuffer();
+            this.data = dataBuffer.getData();
+            this.scanlineStride =
+                    ((SinglePixelPackedSampleModel) raster.getSampleModel())
+                            .getScanlineStride();
+            this.offset =
+                    dataBuffer.getOffset()
+                            - raster.getSampleModelTranslateY()
+                            * scanlineStride
+                            - raster.getSampleModelTranslateX();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        void readRow(int y, int[] rgb) {
+            System.arraycopy(data, offset + y * scanlineStride, rgb, 0,
+                    getWidth());
+        }
+    }
+
+    /**
+     * Reads directly from an interleaved byte-buffer like TYPE_3BYTE_BGR or
+     * TYPE_4BYTE_ABGR.
+     */
+    private static final class ByteRows extends RasterRows {
+
+        /** The data of the buffer. */
+        private final byte[] data;
+
+        /** Offset of the first pixel. */
+        private final int offset;
+
+        /** Distance between two rows. */
+        private final int scanlineStride;
+
+        /** Distance between two pixels. */
+        private final int pixelStride;
+
+        /** Offset of red within a pixel. */
+        private final int redOffset;
+
+        /** Offset of green within a pixel. */
+        private final int greenOffset;
+
+        /** Offset of blue within a pixel. */
+        private final int blueOffset;
+
+        /**
+         * Initiates an object of type ByteRows.
+         *
+         * @param image the image.
+         */
+        private ByteRows(BufferedImage image) {
+            super(image);
+            final Raster raster = image.getRaster();
+            final DataBufferByte dataBuffer =
+                    (DataBufferByte) raster.getDataBuffer();
+            final PixelInterleavedSampleModel sampleModel =
+                    (PixelInterleavedSampleModel) raster.getSampleModel();
+            final int[] bandOffsets = sampleModel.getBandOffsets();
+            this.data = dataBuffer.getData();
+            this.scanlineStride = sampleModel.getScanlineStride();
+            this.pixelStride = sampleModel.getPixelStride();
+            this.redOffset = bandOffsets[0];
+            this.greenOffset = bandOffsets[1];
+            this.blueOffset = bandOffsets[2];
+            this.offset =
+                    dataBuffer.getOffset()
+                            - raster.getSampleModelTranslateY()
+                            * scanlineStride
+                            - raster.getSampleModelTranslateX() * pixelStride;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        void readRow(int y, int[] rgb) {
+            int pos = offset + y * scanlineStride;
+            final int width = getWidth();
+            for (int x = 0; x < width; x++) {
+                rgb[x] =
+                        (data[pos + redOffset] & 0xFF) << 16
+                                | (data[pos + greenOffset] & 0xFF) << 8
+                                | (data[pos + blueOffset] & 0xFF);
+                pos += pixelStride;
+            }
+        }
+    }
+
+    /**
+     * Reads the rows with {@link BufferedImage#getRGB}.
+     */
+    private static final class GenericRows extends RasterRows {
+
+        /** The image. */
+        private final BufferedImage image;
+
+        /**
+         * Initiates an object of type GenericRows.
+         *
+         * @param image the image.
+         */
+        private GenericRows(BufferedImage image) {
+            super(image);
+            this.image = image;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        void readRow(int y, int[] rgb) {
+            image.getRGB(0, y, getWidth(), 1, rgb, 0, getWidth());
+        }
+    }
+}
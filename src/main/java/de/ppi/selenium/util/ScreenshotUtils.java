@@ -17,10 +17,11 @@
 
 package de.ppi.selenium.util;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import javax.imageio.ImageIO;
 
@@ -59,6 +60,17 @@ public final class ScreenshotUtils {
      */
     private static final double DEFAULT_THRESHOLD = .85;
 
+    /**
+     * Number of pixels from which the similarity is calculated by several
+     * threads.
+     */
+    private static final long PARALLEL_THRESHOLD = 256 * 1024;
+
+    /**
+     * The threads for the calculation of the similarity.
+     */
+    private static final ForkJoinPool FORK_JOIN_POOL = new ForkJoinPool();
+
     /**
      *
      * Initiates an object of type ScreenshotUtils.
@@ -109,6 +121,25 @@ public final class ScreenshotUtils {
      */
     public static void takeScreenshotOfElement(WebElement element,
             File toSaveAs, WebDriver wd) throws IOException {
+        final BufferedImage eleScreenshot = captureElement(element, wd);
+        if (eleScreenshot != null) {
+            ImageIO.write(eleScreenshot, "png", toSaveAs);
+        }
+    }
+
+    /***
+     * Takes a screenshot of the element in memory. The screenshot of the page
+     * is decoded once and the element is a view of it, nothing is written to
+     * disk.
+     *
+     * @param element the webelement
+     * @param wd the webdriver.
+     * @return the picture of the element or <code>null</code> if all pictures
+     *         were black.
+     * @throws IOException if the screenshot can't be decoded.
+     */
+    public static BufferedImage captureElement(WebElement element,
+            WebDriver wd) throws IOException {
 
         for (int i = 0; i < MAXIMAL_NR_OF_RETRIES; i++) { // Loop up to 10x to
                                                           // ensure a clean
@@ -120,19 +151,20 @@ public final class ScreenshotUtils {
             // TODO Improvement element.scrollTo();
 
             // Take picture of the page
-            File screenshot;
+            byte[] screenshot;
             boolean isRemote = false;
             if (!(wd instanceof RemoteWebDriver)) {
                 screenshot =
-                        ((TakesScreenshot) wd).getScreenshotAs(OutputType.FILE);
+                        ((TakesScreenshot) wd)
+                                .getScreenshotAs(OutputType.BYTES);
             } else {
                 Augmenter augmenter = new Augmenter();
                 screenshot =
                         ((TakesScreenshot) augmenter.augment(wd))
-                                .getScreenshotAs(OutputType.FILE);
+                                .getScreenshotAs(OutputType.BYTES);
                 isRemote = true;
             }
-            BufferedImage fullImage = ImageIO.read(screenshot);
+            BufferedImage fullImage = ImageUtils.read(screenshot);
 
             // Parse out the picture of the element
             Point point = element.getLocation();
@@ -150,15 +182,14 @@ public final class ScreenshotUtils {
             LOG.debug("Screenshot coordinates x: " + x + ", y: " + y);
             BufferedImage eleScreenshot =
                     fullImage.getSubimage(x, y, eleWidth, eleHeight);
-            ImageIO.write(eleScreenshot, "png", screenshot);
 
             // Ensure clean snapshot (sometimes WebDriver takes bad pictures and
             // they turn out all black)
-            if (!isBlack(ImageIO.read(screenshot))) {
-                FileUtils.copyFile(screenshot, toSaveAs);
-                break;
+            if (!isBlack(eleScreenshot)) {
+                return eleScreenshot;
             }
         }
+        return null;
     }
 
     /***
@@ -185,11 +216,15 @@ public final class ScreenshotUtils {
             WebElement element, File controlPicture, File toSaveAs,
             double threshold) throws IOException {
 
-        takeScreenshotOfElement(element, toSaveAs, wd);
+        BufferedImage var = captureElement(element, wd);
+        if (var == null) {
+            LOG.warn("No screenshot of " + element + " which isn't black.");
+            return false;
+        }
+        ImageIO.write(var, "png", toSaveAs);
 
         LOG.info("Screenshot was successful. Comparing against control...");
 
-        BufferedImage var = ImageIO.read(toSaveAs);
         BufferedImage cont = ImageIO.read(controlPicture);
 
         return isSimilar(var, cont, threshold);
@@ -219,31 +254,87 @@ public final class ScreenshotUtils {
                 DEFAULT_THRESHOLD);
     }
 
+    /***
+     * Prereq: The page on which you are taking the screenshot is fully loaded
+     *
+     * Take a screenshot of the element, save it as toSaveAs and compare it
+     * with the control picture by the {@link ImageDiff}, which may ignore
+     * regions. If the pictures differ, the differences are marked in
+     * diffImage.
+     *
+     * @param wd the webdriver.
+     * @param element - the element to be tested
+     * @param controlPicture - the file of the picture that will serve as the
+     *            control
+     * @param toSaveAs - for example, save the file at
+     *            "testData/textFieldWidget/screenshot.png"
+     * @param diff - the configured comparison.
+     * @param diffImage - the png with the marked differences.
+     * @return the result of the comparison.
+     * @throws IOException if something goes wrong writing or reading.
+     */
+    public static ImageDiff.Result compareWithScreenshot(WebDriver wd,
+            WebElement element, File controlPicture, File toSaveAs,
+            ImageDiff diff, File diffImage) throws IOException {
+        BufferedImage var = captureElement(element, wd);
+        if (var == null) {
+            throw new IOException("No screenshot of " + element
+                    + " which isn't black.");
+        }
+        ImageIO.write(var, "png", toSaveAs);
+        BufferedImage cont = ImageIO.read(controlPicture);
+        return diff.compare(var, cont, diffImage);
+    }
+
+    /***
+     * Prereq: The page on which you are taking the screenshot is fully loaded
+     *
+     * Take a screenshot of the element and compare it with the baseline of
+     * the {@link VisualBaselineIndex}. If there is no baseline yet, the
+     * screenshot becomes the baseline.
+     *
+     * @param wd the webdriver.
+     * @param element - the element to be tested
+     * @param baselines - the baselines.
+     * @param name - the name of the baseline, i.e. "textFieldWidget/empty".
+     * @param threshold - you are asserting that the similarity between the two
+     *            pictures is a double greater than or equal to this double
+     *            (between 0.0 and 1.0)
+     * @return true is the pictures are similar.
+     * @throws IOException if something goes wrong writing or reading.
+     */
+    public static boolean isSimilarToBaseline(WebDriver wd,
+            WebElement element, VisualBaselineIndex baselines, String name,
+            double threshold) throws IOException {
+        BufferedImage var = captureElement(element, wd);
+        if (var == null) {
+            LOG.warn("No screenshot of " + element + " which isn't black.");
+            return false;
+        }
+        if (!baselines.contains(name)) {
+            LOG.info("New baseline " + name + ".");
+            baselines.put(name, var);
+            return true;
+        }
+        return baselines.isSimilar(name, var, threshold);
+    }
+
     /**
-     * Checks if a screenshot is complete black.
+     * Checks if a screenshot is complete black. Stops at the first pixel which
+     * isn't black.
      *
      * @param var the image.
      * @return true if it is black.
      */
-    private static boolean isBlack(BufferedImage var) {
-        final int scale = 3;
-        double[] varArr = new double[var.getWidth() * var.getHeight() * scale];
-        // unroll pixels
-        for (int i = 0; i < var.getHeight(); i++) {
-            for (int j = 0; j < var.getWidth(); j++) {
-                varArr[i * var.getWidth() + j + 0] =
-                        new Color(var.getRGB(j, i)).getRed();
-                varArr[i * var.getWidth() + j + 1] =
-                        new Color(var.getRGB(j, i)).getGreen();
-                varArr[i * var.getWidth() + j + 2] =
-                        new Color(var.getRGB(j, i)).getBlue();
-            }
-        }
-
-        // test if all are black
-        for (int i = 0; i != varArr.length; i++) {
-            if (varArr[i] != 0) {
-                return false;
+    static boolean isBlack(BufferedImage var) {
+        final RasterRows rows = RasterRows.of(var);
+        final int[] row = new int[rows.getWidth()];
+        for (int y = 0; y < rows.getHeight(); y++) {
+            rows.readRow(y, row);
+            for (int x = 0; x < row.length; x++) {
+                if ((row[x] & RasterRows.RGB_MASK) != 0) {
+                    return false;
+                }
             }
         }
         return true;
@@ -266,53 +357,121 @@ public final class ScreenshotUtils {
     }
 
     /**
-     * Calculate how similar the 2 immages are.
+     * Calculate how similar the 2 immages are: the sum of the smaller values
+     * of each color-channel of each pixel divided by the sum of the greater
+     * values. Large images are compared with several threads.
      *
      * @param var picture1
      * @param cont picture2
      * @return a value between 0 and 1.
      */
-    private static double similarity(BufferedImage var, BufferedImage cont) {
-
-        final int scale = 3;
-        double[] varArr = new double[var.getWidth() * var.getHeight() * scale];
-        double[] contArr =
-                new double[cont.getWidth() * cont.getHeight() * scale];
-
-        if (varArr.length != contArr.length) {
+    static double similarity(BufferedImage var, BufferedImage cont) {
+        if (var.getWidth() != cont.getWidth()
+                || var.getHeight() != cont.getHeight()) {
             throw new IllegalStateException("The pictures are different sizes!");
         }
+        final RasterRows varRows = RasterRows.of(var);
+        final RasterRows contRows = RasterRows.of(cont);
+        final long[] sums;
+        if ((long) var.getWidth() * var.getHeight() < PARALLEL_THRESHOLD) {
+            sums =
+                    new SimilarityTask(varRows, contRows, 0, var.getHeight())
+                            .compute();
+        } else {
+            sums =
+                    FORK_JOIN_POOL.invoke(new SimilarityTask(varRows,
+                            contRows, 0, var.getHeight()));
+        }
+        if (sums[1] == 0) {
+            // both are black.
+            return 1;
+        }
+        return (double) sums[0] / sums[1];
+    }
 
-        // unroll pixels
-        for (int i = 0; i < var.getHeight(); i++) {
-            for (int j = 0; j < var.getWidth(); j++) {
-                varArr[i * var.getWidth() + j + 0] =
-                        new Color(var.getRGB(j, i)).getRed();
-                contArr[i * cont.getWidth() + j + 0] =
-                        new Color(cont.getRGB(j, i)).getRed();
-                varArr[i * var.getWidth() + j + 1] =
-                        new Color(var.getRGB(j, i)).getGreen();
-                contArr[i * cont.getWidth() + j + 1] =
-                        new Color(cont.getRGB(j, i)).getGreen();
-                varArr[i * var.getWidth() + j + 2] =
-                        new Color(var.getRGB(j, i)).getBlue();
-                contArr[i * cont.getWidth() + j + 2] =
-                        new Color(cont.getRGB(j, i)).getBlue();
-            }
+    /**
+     * Sums the smaller and the greater values of each color-channel of the
+     * pixels of a range of rows. Large ranges are split.
+     */
+    private static final class SimilarityTask extends RecursiveTask<long[]> {
+
+        /** Serial-Version-UID. */
+        private static final long serialVersionUID = 1L;
+
+        /** The rows of picture1. */
+        private final RasterRows varRows;
+
+        /** The rows of picture2. */
+        private final RasterRows contRows;
+
+        /** First row. */
+        private final int fromY;
+
+        /** Row after the last row. */
+        private final int toY;
+
+        /**
+         * Initiates an object of type SimilarityTask.
+         *
+         * @param varRows the rows of picture1.
+         * @param contRows the rows of picture2.
+         * @param fromY first row.
+         * @param toY row after the last row.
+         */
+        private SimilarityTask(RasterRows varRows, RasterRows contRows,
+                int fromY, int toY) {
+            this.varRows = varRows;
+            this.contRows = contRows;
+            this.fromY = fromY;
+            this.toY = toY;
         }
 
-        double mins = 0;
-        double maxs = 0;
-        for (int i = 0; i != varArr.length; i++) {
-            if (varArr[i] > contArr[i]) {
-                mins += contArr[i];
-                maxs += varArr[i];
-            } else {
-                mins += varArr[i];
-                maxs += contArr[i];
+        /**
+         * {@inheritDoc}
+         *
+         * @return the sum of the smaller and the sum of the greater values.
+         */
+        @Override
+        protected long[] compute() {
+            final int width = varRows.getWidth();
+            if ((long) (toY - fromY) * width > PARALLEL_THRESHOLD) {
+                final int middle = (fromY + toY) >>> 1;
+                final SimilarityTask upper =
+                        new SimilarityTask(varRows, contRows, fromY, middle);
+                upper.fork();
+                final long[] lower =
+                        new SimilarityTask(varRows, contRows, middle, toY)
+                                .compute();
+                final long[] result = upper.join();
+                result[0] += lower[0];
+                result[1] += lower[1];
+                return result;
+            }
+            final int[] varRow = new int[width];
+            final int[] contRow = new int[width];
+            long mins = 0;
+            long maxs = 0;
+            for (int y = fromY; y < toY; y++) {
+                varRows.readRow(y, varRow);
+                contRows.readRow(y, contRow);
+                for (int x = 0; x < width; x++) {
+                    final int v = varRow[x];
+                    final int c = contRow[x];
+                    for (int shift = 0; shift <= 16; shift += 8) {
+                        final int vc = (v >>> shift) & 0xFF;
+                        final int cc = (c >>> shift) & 0xFF;
+                        if (vc > cc) {
+                            mins += cc;
+                            maxs += vc;
+                        } else {
+                            mins += vc;
+                            maxs += cc;
+                        }
+                    }
+                }
             }
+            return new long[] {mins, maxs};
         }
-        return mins / maxs;
     }
 
 }
@@ -0,0 +1,593 @@
+package de.ppi.selenium.util;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.imageio.ImageIO;
+
+import org.apache.commons.codec.binary.Hex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Directory of baseline screenshots with an index of their fingerprints. Each
+ * baseline is stored as <code>&lt;name&gt;.png</code>, the index-file
+ * <code>baselines.idx</code> keeps the size, the perceptual hashes, a digest
+ * of the pixels and the color-sums of a 4x4 grid of each baseline.
+ *
+ * A screenshot is only compared pixel by pixel with its baseline, if the
+ * fingerprints can't decide it exactly: if the digests are equal the pictures
+ * are identical, and if the similarity calculated from the color-sums of the
+ * cells, which is an upper bound of the real similarity, misses the threshold
+ * the pictures are different. The perceptual hashes are only informative,
+ * small changes like a price don't change them.
+ *
+ * The index is only a cache, baselines which were changed or added without
+ * the index are hashed when they are used for the first time.
+ */
+public final class VisualBaselineIndex {
+
+    /** The LOG-Instance. */
+    private static final Logger LOG = LoggerFactory
+            .getLogger(VisualBaselineIndex.class);
+
+    /** Name of the index-file. */
+    public static final String INDEX_FILE = "baselines.idx";
+
+    /** Default threshold so that 2 pictures are similar. */
+    private static final double DEFAULT_THRESHOLD = .85;
+
+    /** Separator of the columns of the index. */
+    private static final char SEPARATOR = ';';
+
+    /** Separator of the color-sums in the index. */
+    private static final char SUM_SEPARATOR = ',';
+
+    /** Ending of the baseline-files. */
+    private static final String ENDING = ".png";
+
+    /** Number of rows and columns of the average-hash. */
+    private static final int GRID = 8;
+
+    /** Number of rows and columns of the grid of the color-sums. */
+    private static final int SUM_GRID = 4;
+
+    /** Number of color-channels. */
+    private static final int CHANNELS = 3;
+
+    /** Radix of the hashes in the index. */
+    private static final int HEX = 16;
+
+    /** The directory of the baselines. */
+    private final File directory;
+
+    /** The entries by name of the baseline. */
+    private final ConcurrentMap<String, Entry> entries =
+            new ConcurrentHashMap<String, Entry>();
+
+    /** True if the index has changed since it was saved. */
+    private volatile boolean dirty;
+
+    /**
+     * Initiates an object of type VisualBaselineIndex.
+     *
+     * @param directory the directory of the baselines.
+     */
+    public VisualBaselineIndex(File directory) {
+        this.directory = directory;
+        load();
+    }
+
+    /**
+     * Stores the image as baseline and adds it to the index.
+     *
+     * @param name the name of the baseline, i.e. "textField/empty".
+     * @param image the image.
+     * @throws IOException if the baseline or the index can't be written.
+     */
+    public void put(String name, BufferedImage image) throws IOException {
+        if (name.indexOf(SEPARATOR) >= 0 || name.indexOf('\n') >= 0) {
+            throw new IllegalArgumentException("The name " + name
+                    + " mustn't contain '" + SEPARATOR + "' or newlines.");
+        }
+        final File baseline = getBaselineFile(name);
+        baseline.getParentFile().mkdirs();
+        ImageIO.write(image, "png", baseline);
+        entries.put(name,
+                new Entry(Fingerprint.of(image), baseline.lastModified()));
+        dirty = true;
+        save();
+    }
+
+    /**
+     * Checks if a baseline with the name exists.
+     *
+     * @param name the name of the baseline.
+     * @return true if the baseline exists.
+     */
+    public boolean contains(String name) {
+        return getBaselineFile(name).isFile();
+    }
+
+    /**
+     * Delivers the baseline-file.
+     *
+     * @param name the name of the baseline.
+     * @return the file, which may not exist.
+     */
+    public File getBaselineFile(String name) {
+        return new File(directory, name + ENDING);
+    }
+
+    /**
+     * Checks if the image is similar to the baseline with the default
+     * threshold of .85.
+     *
+     * @param name the name of the baseline.
+     * @param actual the image.
+     * @return true if the pictures are similar.
+     * @throws IOException if the baseline can't be read.
+     */
+    public boolean isSimilar(String name, BufferedImage actual)
+            throws IOException {
+        return isSimilar(name, actual, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Checks if the image is similar to the baseline, so the similarity like
+     * {@link ScreenshotUtils#similarity(BufferedImage, BufferedImage)} is
+     * greater or equal to the threshold. Pictures with different sizes are
+     * never similar. Identical pictures and pictures whose upper bound of the
+     * similarity misses the threshold are decided without reading the
+     * baseline, all others are compared pixel by pixel.
+     *
+     * @param name the name of the baseline.
+     * @param actual the image.
+     * @param threshold the minimal similarity (between 0.0 and 1.0).
+     * @return true if the pictures are similar.
+     * @throws IOException if the baseline can't be read.
+     */
+    public boolean isSimilar(String name, BufferedImage actual,
+            double threshold) throws IOException {
+        final Fingerprint baseline = getFingerprint(name);
+        if (baseline.width != actual.getWidth()
+                || baseline.height != actual.getHeight()) {
+            LOG.debug("{} has a different size.", name);
+            return false;
+        }
+        final Fingerprint fingerprint = Fingerprint.of(actual);
+        if (baseline.digest.equals(fingerprint.digest)) {
+            LOG.debug("{} is identical.", name);
+            return true;
+        }
+        final double upperBound = baseline.maxSimilarity(fingerprint);
+        if (upperBound < threshold) {
+            LOG.debug("{} differs, the similarity is at most {}.", name,
+                    Double.valueOf(upperBound));
+            return false;
+        }
+        final BufferedImage control = ImageIO.read(getBaselineFile(name));
+        return ScreenshotUtils.similarity(actual, control) >= threshold;
+    }
+
+    /**
+     * Delivers the fingerprint of the baseline. If the baseline isn't in the
+     * index or has changed, it's hashed.
+     *
+     * @param name the name of the baseline.
+     * @return the fingerprint.
+     * @throws IOException if the baseline can't be read.
+     */
+    public Fingerprint getFingerprint(String name) throws IOException {
+        final File baseline = getBaselineFile(name);
+        final long lastModified = baseline.lastModified();
+        if (lastModified == 0) {
+            throw new IllegalArgumentException("There is no baseline "
+                    + baseline + ".");
+        }
+        final Entry entry = entries.get(name);
+        if (entry != null && entry.lastModified == lastModified) {
+            return entry.fingerprint;
+        }
+        final BufferedImage image = ImageIO.read(baseline);
+        if (image == null) {
+            throw new IOException("Unknown image format of " + baseline + ".");
+        }
+        final Fingerprint fingerprint = Fingerprint.of(image);
+        entries.put(name, new Entry(fingerprint, lastModified));
+        dirty = true;
+        return fingerprint;
+    }
+
+    /**
+     * Writes the index, if it has changed.
+     *
+     * @throws IOException if the index can't be written.
+     */
+    public synchronized void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        directory.mkdirs();
+        final Map<String, Entry> sorted = new TreeMap<String, Entry>(entries);
+        final File tmp = new File(directory, INDEX_FILE + ".tmp");
+        try (BufferedWriter writer =
+                new BufferedWriter(new OutputStreamWriter(
+                        new FileOutputStream(tmp),
+                        StandardCharsets.UTF_8))) {
+            writer.write("# name;width;height;averageHash;differenceHash;"
+                    + "digest;colorSums;lastModified");
+            writer.newLine();
+            for (Map.Entry<String, Entry> entry : sorted.entrySet()) {
+                final Fingerprint fingerprint = entry.getValue().fingerprint;
+                final StringBuilder line =
+                        new StringBuilder(entry.getKey()).append(SEPARATOR)
+                                .append(fingerprint.width).append(SEPARATOR)
+                                .append(fingerprint.height).append(SEPARATOR)
+                                .append(Long.toHexString(
+                                        fingerprint.averageHash))
+                                .append(SEPARATOR)
+                                .append(Long.toHexString(
+                                        fingerprint.differenceHash))
+                                .append(SEPARATOR).append(fingerprint.digest)
+                                .append(SEPARATOR);
+                for (int i = 0; i < fingerprint.colorSums.length; i++) {
+                    if (i > 0) {
+                        line.append(SUM_SEPARATOR);
+                    }
+                    line.append(fingerprint.colorSums[i]);
+                }
+                line.append(SEPARATOR).append(entry.getValue().lastModified);
+                writer.write(line.toString());
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            dirty = true;
+            throw e;
+        }
+        Files.move(tmp.toPath(), new File(directory, INDEX_FILE).toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads the index, if it exists.
+     */
+    private void load() {
+        final File index = new File(directory, INDEX_FILE);
+        if (!index.isFile()) {
+            return;
+        }
+        try (BufferedReader reader =
+                new BufferedReader(new InputStreamReader(
+                        new FileInputStream(index),
+                        StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.charAt(0) == '#') {
+                    continue;
+                }
+                final String[] columns = line.split(String.valueOf(SEPARATOR));
+                final String[] sums =
+                        columns[6].split(String.valueOf(SUM_SEPARATOR));
+                final long[] colorSums = new long[sums.length];
+                for (int i = 0; i < sums.length; i++) {
+                    colorSums[i] = Long.parseLong(sums[i]);
+                }
+                if (colorSums.length != SUM_GRID * SUM_GRID * CHANNELS) {
+                    throw new IllegalStateException("Wrong number of "
+                            + "color-sums for " + columns[0] + ".");
+                }
+                final Fingerprint fingerprint =
+                        new Fingerprint(Integer.parseInt(columns[1]),
+                                Integer.parseInt(columns[2]),
+                                parseHash(columns[3]), parseHash(columns[4]),
+                                columns[5], colorSums);
+                entries.put(columns[0], new Entry(fingerprint,
+                        Long.parseLong(columns[7])));
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("The index " + index + " couldn't be read, the "
+                    + "baselines are hashed again.", e);
+            entries.clear();
+        }
+    }
+
+    /**
+     * Parses a hash written by {@link Long#toHexString(long)}.
+     *
+     * @param hex the hash as unsigned hexadecimal number.
+     * @return the hash.
+     */
+    private static long parseHash(String hex) {
+        return new BigInteger(hex, HEX).longValue();
+    }
+
+    /**
+     * Entry of the index.
+     */
+    private static final class Entry {
+
+        /** The fingerprint of the baseline. */
+        private final Fingerprint fingerprint;
+
+        /** The modification-time of the baseline when it was hashed. */
+        private final long lastModified;
+
+        /**
+         * Initiates an object of type Entry.
+         *
+         * @param fingerprint the fingerprint of the baseline.
+         * @param lastModified the modification-time of the baseline.
+         */
+        private Entry(Fingerprint fingerprint, long lastModified) {
+            this.fingerprint = fingerprint;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * Size, perceptual hashes, digest and color-sums of a picture. The
+     * average-hash has a bit for each cell of a 8x8 grid, which is set if the
+     * cell is brighter than the average. The difference-hash has a bit for
+     * each pair of neighbouring cells of a 9x8 grid, which is set if the left
+     * one is brighter. The digest is the SHA-1 of the RGB-values. The
+     * color-sums are the sums of each color-channel in each cell of a 4x4
+     * grid.
+     */
+    public static final class Fingerprint {
+
+        /** Width of the picture. */
+        private final int width;
+
+        /** Height of the picture. */
+        private final int height;
+
+        /** The average-hash. */
+        private final long averageHash;
+
+        /** The difference-hash. */
+        private final long differenceHash;
+
+        /** SHA-1 of the RGB-values as hex-string. */
+        private final String digest;
+
+        /** The sums of the color-channels per cell. */
+        private final long[] colorSums;
+
+        /**
+         * Initiates an object of type Fingerprint.
+         *
+         * @param width width of the picture.
+         * @param height height of the picture.
+         * @param averageHash the average-hash.
+         * @param differenceHash the difference-hash.
+         * @param digest SHA-1 of the RGB-values as hex-string.
+         * @param colorSums the sums of the color-channels per cell.
+         */
+        Fingerprint(int width, int height, long averageHash,
+                long differenceHash, String digest, long[] colorSums) {
+            this.width = width;
+            this.height = height;
+            this.averageHash = averageHash;
+            this.differenceHash = differenceHash;
+            this.digest = digest;
+            this.colorSums = colorSums;
+        }
+
+        /**
+         * Calculates the fingerprint of the picture. The picture is read
+         * once.
+         *
+         * @param image the picture.
+         * @return the fingerprint.
+         */
+        public static Fingerprint of(BufferedImage image) {
+            final MessageDigest sha1;
+            try {
+                sha1 = MessageDigest.getInstance("SHA-1");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-1 isn't available.", e);
+            }
+            final RasterRows rows = RasterRows.of(image);
+            final int width = rows.getWidth();
+            final int height = rows.getHeight();
+            final int dColumns = GRID + 1;
+            final long[] aSums = new long[GRID * GRID];
+            final long[] dSums = new long[GRID * dColumns];
+            final long[] colorSums =
+                    new long[SUM_GRID * SUM_GRID * CHANNELS];
+            final int[] aColumn = new int[width];
+            final int[] dColumn = new int[width];
+            final int[] sumColumn = new int[width];
+            for (int x = 0; x < width; x++) {
+                aColumn[x] = (int) ((long) x * GRID / width);
+                dColumn[x] = (int) ((long) x * dColumns / width);
+                sumColumn[x] = (int) ((long) x * SUM_GRID / width) * CHANNELS;
+            }
+            final int[] row = new int[width];
+            final byte[] rowBytes = new byte[width * CHANNELS];
+            for (int y = 0; y < height; y++) {
+                rows.readRow(y, row);
+                final int cellRow = (int) ((long) y * GRID / height);
+                final int aOffset = cellRow * GRID;
+                final int dOffset = cellRow * dColumns;
+                final int sumOffset =
+                        (int) ((long) y * SUM_GRID / height) * SUM_GRID
+                                * CHANNELS;
+                for (int x = 0; x < width; x++) {
+                    final int rgb = row[x];
+                    final int red = (rgb >>> 16) & 0xFF;
+                    final int green = (rgb >>> 8) & 0xFF;
+                    final int blue = rgb & 0xFF;
+                    // ITU-R 601 luma with integer weights.
+                    final int luma = (red * 77 + green * 150 + blue * 29) >>> 8;
+                    aSums[aOffset + aColumn[x]] += luma;
+                    dSums[dOffset + dColumn[x]] += luma;
+                    final int cell = sumOffset + sumColumn[x];
+                    colorSums[cell] += red;
+                    colorSums[cell + 1] += green;
+                    colorSums[cell + 2] += blue;
+                    rowBytes[x * CHANNELS] = (byte) red;
+                    rowBytes[x * CHANNELS + 1] = (byte) green;
+                    rowBytes[x * CHANNELS + 2] = (byte) blue;
+                }
+                sha1.update(rowBytes);
+            }
+            final double[] aCells =
+                    averages(aSums, width, height, GRID, GRID);
+            final double[] dCells =
+                    averages(dSums, width, height, dColumns, GRID);
+            double mean = 0;
+            for (double cell : aCells) {
+                mean += cell;
+            }
+            mean /= aCells.length;
+            long averageHash = 0;
+            for (int i = 0; i < aCells.length; i++) {
+                if (aCells[i] > mean) {
+                    averageHash |= 1L << i;
+                }
+            }
+            long differenceHash = 0;
+            for (int r = 0; r < GRID; r++) {
+                for (int c = 0; c < GRID; c++) {
+                    if (dCells[r * dColumns + c] > dCells[r * dColumns + c
+                            + 1]) {
+                        differenceHash |= 1L << (r * GRID + c);
+                    }
+                }
+            }
+            return new Fingerprint(width, height, averageHash,
+                    differenceHash, Hex.encodeHexString(sha1.digest()),
+                    colorSums);
+        }
+
+        /**
+         * Divides the sums of the cells by the number of their pixels.
+         *
+         * @param sums the sums of the cells.
+         * @param width width of the picture.
+         * @param height height of the picture.
+         * @param columns number of columns of the grid.
+         * @param cellRows number of rows of the grid.
+         * @return the average brightness of the cells.
+         */
+        private static double[] averages(long[] sums, int width, int height,
+                int columns, int cellRows) {
+            final int[] columnWidths = new int[columns];
+            for (int x = 0; x < width; x++) {
+                columnWidths[(int) ((long) x * columns / width)]++;
+            }
+            final int[] rowHeights = new int[cellRows];
+            for (int y = 0; y < height; y++) {
+                rowHeights[(int) ((long) y * cellRows / height)]++;
+            }
+            final double[] result = new double[sums.length];
+            for (int r = 0; r < cellRows; r++) {
+                for (int c = 0; c < columns; c++) {
+                    final long pixels = (long) rowHeights[r] * columnWidths[c];
+                    if (pixels > 0) {
+                        result[r * columns + c] =
+                                (double) sums[r * columns + c] / pixels;
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Calculates the number of different bits of both perceptual hashes.
+         *
+         * @param other the other fingerprint.
+         * @return the distance between 0 and 128.
+         */
+        public int distance(Fingerprint other) {
+            return Long.bitCount(averageHash ^ other.averageHash)
+                    + Long.bitCount(differenceHash ^ other.differenceHash);
+        }
+
+        /**
+         * Calculates an upper bound of the similarity of two pictures of the
+         * same size. The sum of the smaller values of the pixels of a cell
+         * can't be greater than the smaller color-sum of the cell, and the sum
+         * of the greater values can't be smaller than the greater color-sum.
+         *
+         * @param other the other fingerprint.
+         * @return the maximal similarity between 0 and 1.
+         */
+        public double maxSimilarity(Fingerprint other) {
+            if (width != other.width || height != other.height) {
+                throw new IllegalArgumentException("The pictures have "
+                        + "different sizes.");
+            }
+            long mins = 0;
+            long maxs = 0;
+            for (int i = 0; i < colorSums.length; i++) {
+                mins += Math.min(colorSums[i], other.colorSums[i]);
+                maxs += Math.max(colorSums[i], other.colorSums[i]);
+            }
+            return maxs == 0 ? 1 : (double) mins / maxs;
+        }
+
+        /**
+         * @return the width of the picture.
+         */
+        public int getWidth() {
+            return width;
+        }
+
+        /**
+         * @return the height of the picture.
+         */
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * @return the average-hash.
+         */
+        public long getAverageHash() {
+            return averageHash;
+        }
+
+        /**
+         * @return the difference-hash.
+         */
+        public long getDifferenceHash() {
+            return differenceHash;
+        }
+
+        /**
+         * @return the SHA-1 of the RGB-values as hex-string.
+         */
+        public String getDigest() {
+            return digest;
+        }
+
+        /**
+         * @return a copy of the sums of the color-channels per cell.
+         */
+        public long[] getColorSums() {
+            return Arrays.copyOf(colorSums, colorSums.length);
+        }
+    }
+}
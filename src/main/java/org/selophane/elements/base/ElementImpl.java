@@ -55,14 +55,12 @@ public class ElementImpl implements Element {
      */
     public ElementImpl(final UniqueElementLocator elementLocator) {
         this.uniqueElementLocator = elementLocator;
+        final String pageName = elementLocator.getPageName();
+        final String fieldDescription = elementLocator.getFieldDescription();
         eventLoggerBefore =
-                BEFORE_EVENT_LOGGER_FACTORY.onDebug(
-                        elementLocator.getPageName(),
-                        elementLocator.getFieldDescription());
+                BEFORE_EVENT_LOGGER_FACTORY.onDebug(pageName, fieldDescription);
         eventLoggerAfter =
-                AFTER_EVENT_LOGGER_FACTORY.onDebug(
-                        elementLocator.getPageName(),
-                        elementLocator.getFieldDescription());
+                AFTER_EVENT_LOGGER_FACTORY.onDebug(pageName, fieldDescription);
     }
 
     /**
@@ -75,73 +73,89 @@ public class ElementImpl implements Element {
     @Override
     public void click() {
         final String method = "element.click";
-        eventLoggerBefore.withScreenshot(Priority.DEBUG,
-                uniqueElementLocator.getWebDriver()).log(
-                EventActions.ELEMENT_CLICK, method,
-                uniqueElementLocator.getPageName(),
-                uniqueElementLocator.getFieldDescription());
+        if (eventLoggerBefore.willLogged()) {
+            eventLoggerBefore.withScreenshot(Priority.DEBUG,
+                    uniqueElementLocator.getWebDriver()).log(
+                    EventActions.ELEMENT_CLICK, method,
+                    uniqueElementLocator.getPageName(),
+                    uniqueElementLocator.getFieldDescription());
+        }
         getElement().click();
-        eventLoggerAfter.withScreenshot(Priority.DEBUG,
-                uniqueElementLocator.getWebDriver()).log(
-                EventActions.ELEMENT_CLICK, method,
-                uniqueElementLocator.getPageName(),
-                uniqueElementLocator.getFieldDescription());
+        if (eventLoggerAfter.willLogged()) {
+            eventLoggerAfter.withScreenshot(Priority.DEBUG,
+                    uniqueElementLocator.getWebDriver()).log(
+                    EventActions.ELEMENT_CLICK, method,
+                    uniqueElementLocator.getPageName(),
+                    uniqueElementLocator.getFieldDescription());
+        }
 
     }
 
     @Override
     public void sendKeys(CharSequence... keysToSend) {
         final String method = "element.sendKeys";
-        eventLoggerBefore.withScreenshot(Priority.DEBUG,
-                uniqueElementLocator.getWebDriver()).log(
-                EventActions.ELEMENT_SEND_KEYS, method,
-                uniqueElementLocator.getPageName(),
-                uniqueElementLocator.getFieldDescription(),
-                StringUtils.join(keysToSend));
+        if (eventLoggerBefore.willLogged()) {
+            eventLoggerBefore.withScreenshot(Priority.DEBUG,
+                    uniqueElementLocator.getWebDriver()).log(
+                    EventActions.ELEMENT_SEND_KEYS, method,
+                    uniqueElementLocator.getPageName(),
+                    uniqueElementLocator.getFieldDescription(),
+                    StringUtils.join(keysToSend));
+        }
         getElement().sendKeys(keysToSend);
-        eventLoggerAfter.withScreenshot(Priority.DEBUG,
-                uniqueElementLocator.getWebDriver()).log(
-                EventActions.ELEMENT_SEND_KEYS, method,
-                uniqueElementLocator.getPageName(),
-                uniqueElementLocator.getFieldDescription(),
-                StringUtils.join(keysToSend));
+        if (eventLoggerAfter.willLogged()) {
+            eventLoggerAfter.withScreenshot(Priority.DEBUG,
+                    uniqueElementLocator.getWebDriver()).log(
+                    EventActions.ELEMENT_SEND_KEYS, method,
+                    uniqueElementLocator.getPageName(),
+                    uniqueElementLocator.getFieldDescription(),
+                    StringUtils.join(keysToSend));
+        }
     }
 
     @Override
     public Point getLocation() {
         final String method = "element.getLocation";
         final Point result = getElement().getLocation();
-        eventLoggerAfter.withScreenshot(Priority.DEBUG,
-                uniqueElementLocator.getWebDriver()).log(
-                EventActions.ELEMENT_SEND_KEYS, method,
-                uniqueElementLocator.getPageName(),
-                uniqueElementLocator.getFieldDescription(), result);
+        if (eventLoggerAfter.willLogged()) {
+            eventLoggerAfter.withScreenshot(Priority.DEBUG,
+                    uniqueElementLocator.getWebDriver()).log(
+                    EventActions.ELEMENT_SEND_KEYS, method,
+                    uniqueElementLocator.getPageName(),
+                    uniqueElementLocator.getFieldDescription(), result);
+        }
         return result;
     }
 
     @Override
     public void submit() {
-        eventLoggerBefore.withScreenshot(Priority.DEBUG,
-                uniqueElementLocator.getWebDriver()).log(
-                EventActions.ELEMENT_SUBMIT, "element.submit",
-                uniqueElementLocator.getPageName(),
-                uniqueElementLocator.getFieldDescription());
+        if (eventLoggerBefore.willLogged()) {
+            eventLoggerBefore.withScreenshot(Priority.DEBUG,
+                    uniqueElementLocator.getWebDriver()).log(
+                    EventActions.ELEMENT_SUBMIT, "element.submit",
+                    uniqueElementLocator.getPageName(),
+                    uniqueElementLocator.getFieldDescription());
+        }
         getElement().submit();
-        eventLoggerAfter.withScreenshot(Priority.DEBUG,
-                uniqueElementLocator.getWebDriver()).log(
-                EventActions.ELEMENT_SUBMIT, "element.submit",
-                uniqueElementLocator.getPageName(),
-                uniqueElementLocator.getFieldDescription());
+        if (eventLoggerAfter.willLogged()) {
+            eventLoggerAfter.withScreenshot(Priority.DEBUG,
+                    uniqueElementLocator.getWebDriver()).log(
+                    EventActions.ELEMENT_SUBMIT, "element.submit",
+                    uniqueElementLocator.getPageName(),
+                    uniqueElementLocator.getFieldDescription());
+        }
     }
 
     @Override
     public String getAttribute(String name) {
         final String result = getElement().getAttribute(name);
-        eventLoggerAfter.withScreenshot(Priority.DEBUG,
-                uniqueElementLocator.getWebDriver()).log(
-                EventActions.ELEMENT_GET_ATTRIBUTE, "element.getAttribute",
-                uniqueElementLocator.getPageName(),
-                uniqueElementLocator.getFieldDescription(), name, result);
+        if (eventLoggerAfter.willLogged()) {
+            eventLoggerAfter.withScreenshot(Priority.DEBUG,
+                    uniqueElementLocator.getWebDriver()).log(
+                    EventActions.ELEMENT_GET_ATTRIBUTE, "element.getAttribute",
+                    uniqueElementLocator.getPageName(),
+                    uniqueElementLocator.getFieldDescription(), name, result);
+        }
         return result;
     }
 
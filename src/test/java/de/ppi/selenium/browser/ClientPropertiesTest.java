@@ -0,0 +1,56 @@
+package de.ppi.selenium.browser;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for {@link ClientProperties}.
+ *
+ */
+public class ClientPropertiesTest {
+
+    /**
+     * Test that the properties are loaded once per file and again after the
+     * cache is cleared.
+     */
+    @Test
+    public void testCache() {
+        final ClientProperties properties =
+                ClientProperties.getInstance("client.properties");
+        Assert.assertSame(properties,
+                ClientProperties.getInstance("client.properties"));
+        ClientProperties.clearCache();
+        final ClientProperties reloaded =
+                ClientProperties.getInstance("client.properties");
+        Assert.assertNotSame(properties, reloaded);
+        Assert.assertEquals(properties.getBrowser(), reloaded.getBrowser());
+    }
+
+    /**
+     * Test that properties whose defaults are saved to the file while loading
+     * aren't loaded again.
+     *
+     * @throws Exception if the file can't be written.
+     */
+    @Test
+    public void testCacheAfterSavingDefaults() throws Exception {
+        final File classpath =
+                new File(ClientPropertiesTest.class.getResource(
+                        "/client.properties").toURI()).getParentFile();
+        final File file = new File(classpath, "defaults-client.properties");
+        FileUtils.writeStringToFile(file, "browser=htmlunit\n", "UTF-8");
+        Assert.assertTrue(file.setLastModified(file.lastModified() - 10000));
+        try {
+            final ClientProperties properties =
+                    ClientProperties.getInstance(file.getName());
+            Assert.assertSame(properties,
+                    ClientProperties.getInstance(file.getName()));
+        } finally {
+            ClientProperties.clearCache();
+            Assert.assertTrue(file.delete());
+        }
+    }
+}
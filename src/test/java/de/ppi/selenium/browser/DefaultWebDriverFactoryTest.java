@@ -0,0 +1,61 @@
+package de.ppi.selenium.browser;
+
+import java.io.File;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openqa.selenium.firefox.FirefoxProfile;
+
+/**
+ * Test for {@link DefaultWebDriverFactory}.
+ *
+ */
+public class DefaultWebDriverFactoryTest {
+
+    /** The name of the properties-file. */
+    private static final String PROPERTIES_FILE = "client.properties";
+
+    /**
+     * Test that each session gets its own copy of the firefox-profile
+     * template and that reloaded properties get a new template without
+     * deleting the old one.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testFirefoxProfileTemplate() throws Exception {
+        final ClientProperties properties =
+                new ClientProperties(PROPERTIES_FILE);
+        final File template =
+                DefaultWebDriverFactory.getFirefoxProfileTemplate(
+                        PROPERTIES_FILE, properties);
+        Assert.assertTrue(template.isDirectory());
+        Assert.assertEquals(template, DefaultWebDriverFactory
+                .getFirefoxProfileTemplate(PROPERTIES_FILE, properties));
+
+        final File first =
+                DefaultWebDriverFactory.createFirefoxProfile(PROPERTIES_FILE,
+                        properties).layoutOnDisk();
+        final File second =
+                DefaultWebDriverFactory.createFirefoxProfile(PROPERTIES_FILE,
+                        properties).layoutOnDisk();
+        Assert.assertNotEquals(first, second);
+        Assert.assertNotEquals(template, first);
+        Assert.assertTrue(new File(first, "user.js").isFile());
+        Assert.assertTrue(new File(second, "user.js").isFile());
+
+        final ClientProperties reloaded =
+                new ClientProperties(PROPERTIES_FILE);
+        final FirefoxProfile pending =
+                DefaultWebDriverFactory.createFirefoxProfile(PROPERTIES_FILE,
+                        properties);
+        final File newTemplate =
+                DefaultWebDriverFactory.getFirefoxProfileTemplate(
+                        PROPERTIES_FILE, reloaded);
+        Assert.assertNotEquals(template, newTemplate);
+        Assert.assertTrue(newTemplate.isDirectory());
+        Assert.assertTrue(template.isDirectory());
+        Assert.assertTrue(new File(pending.layoutOnDisk(), "user.js")
+                .isFile());
+    }
+}
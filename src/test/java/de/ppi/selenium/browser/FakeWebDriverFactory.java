@@ -0,0 +1,159 @@
+package de.ppi.selenium.browser;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.remote.DesiredCapabilities;
+
+/**
+ * {@link WebDriverFactory} which creates fake drivers without a browser, the
+ * drivers record if they are quit.
+ *
+ */
+class FakeWebDriverFactory implements WebDriverFactory {
+
+    /** The base-url of the default options. */
+    private final String baseUrl;
+
+    /** The created drivers. */
+    private final List<WebDriver> drivers =
+            new CopyOnWriteArrayList<WebDriver>();
+
+    /** The quit drivers. */
+    private final List<WebDriver> quitDrivers =
+            new CopyOnWriteArrayList<WebDriver>();
+
+    /** Latch which must be open before a driver is created. */
+    private volatile CountDownLatch startSignal = new CountDownLatch(0);
+
+    /**
+     * Initiates an object of type FakeWebDriverFactory.
+     *
+     * @param baseUrl the base-url of the default options.
+     */
+    FakeWebDriverFactory(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    @Override
+    public Map<String, String> createDefaultOptions() {
+        final Map<String, String> options = new HashMap<String, String>();
+        options.put(SessionManager.BASE_URL_KEY, baseUrl);
+        return options;
+    }
+
+    @Override
+    public void cleanup(Map<String, String> options) {
+        // Nothing to clean up.
+    }
+
+    @Override
+    public DesiredCapabilities createCapabilities(Map<String, String> options) {
+        return new DesiredCapabilities();
+    }
+
+    @Override
+    public WebDriver createWebDriver(Map<String, String> options,
+            DesiredCapabilities capabilities) {
+        try {
+            startSignal.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        final String name = "fake" + drivers.size();
+        final WebDriver driver =
+                (WebDriver) Proxy.newProxyInstance(
+                        FakeWebDriverFactory.class.getClassLoader(),
+                        new Class<?>[] {WebDriver.class },
+                        new DriverHandler(name));
+        drivers.add(driver);
+        return driver;
+    }
+
+    /**
+     * Holds the creation of drivers until the returned latch is opened.
+     *
+     * @return the latch.
+     */
+    CountDownLatch holdStarts() {
+        startSignal = new CountDownLatch(1);
+        return startSignal;
+    }
+
+    /**
+     * Delivers the created drivers.
+     *
+     * @return the created drivers.
+     */
+    List<WebDriver> getDrivers() {
+        return drivers;
+    }
+
+    /**
+     * Waits until the given number of drivers are quit.
+     *
+     * @param count the expected number of quit drivers.
+     * @return the quit drivers.
+     * @throws InterruptedException if the thread is interrupted.
+     */
+    List<WebDriver> awaitQuit(int count) throws InterruptedException {
+        final long deadline =
+                System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (quitDrivers.size() < count
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return quitDrivers;
+    }
+
+    /**
+     * Handler of a fake driver and its sub-interfaces, which has one window.
+     */
+    private final class DriverHandler implements InvocationHandler {
+
+        /** The name of the driver. */
+        private final String name;
+
+        /**
+         * Initiates an object of type DriverHandler.
+         *
+         * @param name the name of the driver.
+         */
+        private DriverHandler(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            final String methodName = method.getName();
+            if ("hashCode".equals(methodName)) {
+                return Integer.valueOf(System.identityHashCode(proxy));
+            } else if ("equals".equals(methodName)) {
+                return Boolean.valueOf(proxy == args[0]);
+            } else if ("toString".equals(methodName)) {
+                return name;
+            } else if ("getWindowHandles".equals(methodName)) {
+                return Collections.singleton("window");
+            } else if ("quit".equals(methodName)) {
+                quitDrivers.add((WebDriver) proxy);
+                return null;
+            } else if (method.getReturnType().isInterface()) {
+                // switchTo(), manage() and so on.
+                return Proxy.newProxyInstance(
+                        FakeWebDriverFactory.class.getClassLoader(),
+                        new Class<?>[] {method.getReturnType() }, this);
+            }
+            return null;
+        }
+    }
+}
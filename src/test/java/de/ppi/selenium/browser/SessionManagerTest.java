@@ -0,0 +1,113 @@
+package de.ppi.selenium.browser;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openqa.selenium.WebDriver;
+
+import de.ppi.selenium.logevent.api.EventLoggerFactory;
+import de.ppi.selenium.logevent.backend.JournalEventStorage;
+
+/**
+ * Test for {@link SessionManager}.
+ *
+ */
+public class SessionManagerTest {
+
+    /** Folder of the event-storage. */
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    /** The storage of the events of the manager. */
+    private JournalEventStorage storage;
+
+    /** The factory of the fake browsers. */
+    private FakeWebDriverFactory factory;
+
+    /** The manager of the test-thread. */
+    private SessionManager manager;
+
+    /**
+     * Sets the fake factory and the event-storage.
+     *
+     * @throws Exception if the storage can't be created.
+     */
+    @Before
+    public void setUp() throws Exception {
+        storage =
+                new JournalEventStorage(tempFolder.newFolder("journal")
+                        .getAbsolutePath());
+        EventLoggerFactory.setStorage(storage);
+        factory = new FakeWebDriverFactory("http://localhost:8080");
+        manager = SessionManager.getInstance().setWebDriverFactory(factory);
+    }
+
+    /**
+     * Quits the sessions and restores the default factory.
+     */
+    @After
+    public void tearDown() {
+        manager.quitAllSessions();
+        manager.setWebDriverFactory(new DefaultWebDriverFactory());
+        EventLoggerFactory.setStorage(null);
+        storage.close();
+    }
+
+    /**
+     * Test that the prepared browser becomes the current session and the old
+     * one is quit.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testPrepareAndSwap() throws Exception {
+        final WebBrowser old = manager.getNewSession();
+        manager.prepareReplacementSession();
+        manager.prepareReplacementSession();
+        final WebBrowser replacement = manager.swapToReplacementSession();
+        Assert.assertNotSame(old, replacement);
+        Assert.assertSame(replacement, manager.getCurrentSession());
+        Assert.assertNull(manager.getSession(old.getSessionId()));
+        Assert.assertEquals(2, factory.getDrivers().size());
+        Assert.assertEquals(factory.getDrivers().get(1),
+                replacement.getWrappedDriver());
+        Assert.assertEquals(old.getWrappedDriver(), factory.awaitQuit(1)
+                .get(0));
+    }
+
+    /**
+     * Test that a prepared browser, which isn't swapped, is quit with the
+     * sessions and doesn't block the next preparation.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testQuitDiscardsReplacement() throws Exception {
+        final WebBrowser old = manager.getNewSession();
+        final CountDownLatch startSignal = factory.holdStarts();
+        manager.prepareReplacementSession();
+        manager.quitSession(old);
+        startSignal.countDown();
+        final List<WebDriver> quitDrivers = factory.awaitQuit(2);
+        Assert.assertEquals(2, quitDrivers.size());
+        Assert.assertTrue(quitDrivers.containsAll(factory.getDrivers()));
+
+        manager.getNewSession();
+        manager.prepareReplacementSession();
+        manager.quitAllSessions();
+        Assert.assertEquals(4, factory.awaitQuit(4).size());
+        Assert.assertTrue(manager.getSessions().isEmpty());
+
+        manager.prepareReplacementSession();
+        final WebBrowser replacement = manager.swapToReplacementSession();
+        Assert.assertEquals(5, factory.getDrivers().size());
+        Assert.assertEquals(factory.getDrivers().get(4),
+                replacement.getWrappedDriver());
+    }
+}
@@ -0,0 +1,109 @@
+package de.ppi.selenium.browser;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test for {@link TempFolderJanitor}.
+ *
+ */
+public class TempFolderJanitorTest {
+
+    /**
+     * Temporary folder which is cleaned.
+     */
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    /**
+     * Test that only old folders with a matching name are deleted and the
+     * reclaimed bytes are counted.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testClean() throws Exception {
+        final long old =
+                System.currentTimeMillis() - TimeUnit.DAYS.toMillis(10);
+        final File oldMatching = createFolder("anonymous123", old);
+        final File newMatching =
+                createFolder("scoped_dir456", System.currentTimeMillis());
+        final File oldOther = createFolder("other", old);
+        final long reclaimed =
+                TempFolderJanitor.clean(tempFolder.getRoot().toPath(),
+                        TempFolderJanitor.compile(Arrays.asList("anonymous",
+                                "scoped_dir", "")),
+                        System.currentTimeMillis()
+                                - TimeUnit.DAYS.toMillis(7), Long.MAX_VALUE);
+        Assert.assertEquals(2 * 100, reclaimed);
+        Assert.assertFalse(oldMatching.exists());
+        Assert.assertTrue(newMatching.exists());
+        Assert.assertTrue(oldOther.exists());
+    }
+
+    /**
+     * Test that nothing is deleted if the deadline is passed.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testDeadlinePassed() throws Exception {
+        final long old =
+                System.currentTimeMillis() - TimeUnit.DAYS.toMillis(10);
+        final File oldMatching = createFolder("anonymous123", old);
+        final long reclaimed =
+                TempFolderJanitor.clean(tempFolder.getRoot().toPath(),
+                        TempFolderJanitor.compile(Arrays.asList("anonymous")),
+                        System.currentTimeMillis(),
+                        System.currentTimeMillis() - 1, 0);
+        Assert.assertEquals(0, reclaimed);
+        Assert.assertTrue(new File(oldMatching, "a").exists());
+        Assert.assertTrue(new File(new File(oldMatching, "sub"), "b").exists());
+    }
+
+    /**
+     * Test that the number of folders per second is limited.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testRateLimit() throws Exception {
+        final long old =
+                System.currentTimeMillis() - TimeUnit.DAYS.toMillis(10);
+        for (int i = 0; i < 3; i++) {
+            createFolder("anonymous" + i, old);
+        }
+        final long start = System.currentTimeMillis();
+        final long reclaimed =
+                TempFolderJanitor.clean(tempFolder.getRoot().toPath(),
+                        TempFolderJanitor.compile(Arrays.asList("anonymous")),
+                        start, Long.MAX_VALUE, 10);
+        Assert.assertEquals(3 * 2 * 100, reclaimed);
+        Assert.assertTrue(System.currentTimeMillis() - start >= 200);
+    }
+
+    /**
+     * Creates a folder with a sub-folder and two files of 100 bytes.
+     *
+     * @param name the name of the folder.
+     * @param lastModified the modification time of the folder.
+     * @return the folder.
+     * @throws Exception if something goes wrong.
+     */
+    private File createFolder(String name, long lastModified)
+            throws Exception {
+        final File folder = tempFolder.newFolder(name);
+        FileUtils.writeByteArrayToFile(new File(folder, "a"), new byte[100]);
+        FileUtils.writeByteArrayToFile(new File(new File(folder, "sub"), "b"),
+                new byte[100]);
+        Assert.assertTrue(folder.setLastModified(lastModified));
+        return folder;
+    }
+}
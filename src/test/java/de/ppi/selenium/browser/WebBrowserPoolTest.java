@@ -0,0 +1,175 @@
+package de.ppi.selenium.browser;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test for {@link WebBrowserPool}.
+ *
+ */
+public class WebBrowserPoolTest {
+
+    /** The base-url of the factory. */
+    private static final String BASE_URL = "http://localhost:8080";
+
+    /** The factory of the fake browsers. */
+    private FakeWebDriverFactory factory;
+
+    /** Thread which checks out browsers in the background. */
+    private ExecutorService executor;
+
+    /**
+     * Creates the factory.
+     */
+    @Before
+    public void setUp() {
+        factory = new FakeWebDriverFactory(BASE_URL + "/");
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * Stops the background thread.
+     */
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Test that a checkout waits at the maximal size until a browser is
+     * returned and fails after the timeout.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testCheckoutBlocksAtMaxSize() throws Exception {
+        final WebBrowserPool pool = createPool(1, 2000L, 100L);
+        final WebBrowser browser = pool.checkout();
+        final Future<WebBrowser> waiting = checkoutInBackground(pool);
+        Thread.sleep(100);
+        Assert.assertFalse(waiting.isDone());
+        Assert.assertEquals(1, factory.getDrivers().size());
+        pool.release(browser, 1);
+        Assert.assertSame(browser, waiting.get(5, TimeUnit.SECONDS));
+
+        final WebBrowserPool shortPool = createPool(1, 50L, 100L);
+        shortPool.checkout();
+        try {
+            shortPool.checkout();
+            Assert.fail("The pool is exhausted.");
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().startsWith("No browser"));
+        }
+    }
+
+    /**
+     * Test that a returned browser is reused with the base-url of the
+     * factory.
+     */
+    @Test
+    public void testReleaseRecycles() {
+        final WebBrowserPool pool = createPool(2, 1000L, 100L);
+        final WebBrowser browser = pool.checkout();
+        Assert.assertEquals(BASE_URL, browser.getBaseUrl());
+        ((WebBrowserImpl) browser).setBaseUrl("http://other");
+        pool.release(browser, 1);
+        final WebBrowser reused = pool.checkout();
+        Assert.assertSame(browser, reused);
+        Assert.assertEquals(BASE_URL, reused.getBaseUrl());
+        Assert.assertEquals(1, pool.getSize());
+        Assert.assertEquals(1, factory.getDrivers().size());
+    }
+
+    /**
+     * Test that a browser which reached the maximal costs is quit and
+     * replaced.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testCostLimitRetiresBrowser() throws Exception {
+        final WebBrowserPool pool = createPool(1, 1000L, 2L);
+        final WebBrowser browser = pool.checkout();
+        pool.release(browser, 2);
+        Assert.assertSame(browser, pool.checkout());
+        pool.release(browser, 1);
+        Assert.assertFalse(pool.isPooled(browser));
+        Assert.assertEquals(browser.getWrappedDriver(), factory.awaitQuit(1)
+                .get(0));
+        final WebBrowser replacement = pool.checkout();
+        Assert.assertNotSame(browser, replacement);
+        Assert.assertEquals(2, factory.getDrivers().size());
+    }
+
+    /**
+     * Test that a discarded browser is quit and leaves the pool.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testDiscardShrinksPool() throws Exception {
+        final WebBrowserPool pool = createPool(2, 1000L, 100L);
+        final WebBrowser first = pool.checkout();
+        final WebBrowser second = pool.checkout();
+        Assert.assertEquals(2, pool.getSize());
+        pool.discard(first);
+        Assert.assertEquals(1, pool.getSize());
+        Assert.assertFalse(pool.isPooled(first));
+        Assert.assertTrue(pool.isPooled(second));
+        Assert.assertEquals(first.getWrappedDriver(), factory.awaitQuit(1)
+                .get(0));
+        pool.discard(first);
+        Assert.assertEquals(1, pool.getSize());
+    }
+
+    /**
+     * Test that a fresh checkout never delivers a browser which was used by a
+     * test.
+     */
+    @Test
+    public void testCheckoutFresh() {
+        final WebBrowserPool pool = createPool(1, 1000L, 100L);
+        final WebBrowser used = pool.checkout();
+        pool.release(used, 1);
+        final WebBrowser fresh = pool.checkoutFresh();
+        Assert.assertNotSame(used, fresh);
+        Assert.assertFalse(pool.isPooled(used));
+        Assert.assertEquals(1, pool.getSize());
+    }
+
+    /**
+     * Creates a pool without spare browsers.
+     *
+     * @param maxSize maximal number of browsers.
+     * @param timeout milliseconds to wait for a browser.
+     * @param maxReuse costs after which a browser is quit.
+     * @return the pool.
+     */
+    private WebBrowserPool createPool(int maxSize, long timeout,
+            long maxReuse) {
+        return new WebBrowserPool(factory, maxSize, 0, 0, timeout, maxReuse);
+    }
+
+    /**
+     * Checks out a browser in the background.
+     *
+     * @param pool the pool.
+     * @return the future of the browser.
+     */
+    private Future<WebBrowser> checkoutInBackground(final WebBrowserPool pool) {
+        return executor.submit(new Callable<WebBrowser>() {
+            @Override
+            public WebBrowser call() {
+                return pool.checkout();
+            }
+        });
+    }
+}
@@ -0,0 +1,123 @@
+package de.ppi.selenium.logevent.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for {@link AbstractEventStorage}.
+ *
+ */
+public class AbstractEventStorageTest {
+
+    /**
+     * Test that the events of {@link EventStorage#getAllEvents(String)} are
+     * filtered by the query and the screenshots are left out on demand.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testGetEvents() throws Exception {
+        final ListStorage storage = new ListStorage();
+        storage.insert(EventData.builder().action(EventActions.TEST_START)
+                .priority(Priority.DEBUG).build());
+        storage.insert(EventData.builder().action("A1")
+                .priority(Priority.DEBUG).build());
+        // Events without priority don't match a minimal priority.
+        storage.insert(EventData.builder().action("A3").build());
+        storage.insert(EventData.builder().action("A2")
+                .priority(Priority.FAILURE)
+                .screenshot("html", new byte[] {1 }).build());
+        final EventQuery query =
+                EventQuery.ALL.withMinPriority(Priority.FAILURE)
+                        .withTestBoundaries();
+        Assert.assertEquals(Arrays.asList(EventActions.TEST_START, "A2"),
+                readActions(storage, query));
+        try (ClosableIterable<EventData> events =
+                storage.getEvents("run", query.withScreenshots(false))) {
+            final Iterator<EventData> iterator = events.iterator();
+            iterator.next();
+            Assert.assertNull(iterator.next().getScreenshot());
+            Assert.assertFalse(iterator.hasNext());
+        }
+        Assert.assertTrue(storage.closed);
+    }
+
+    /**
+     * Reads the actions of the events which match the query.
+     *
+     * @param storage the storage.
+     * @param query the query.
+     * @return the actions.
+     * @throws Exception if something goes wrong.
+     */
+    private static List<String> readActions(EventStorage storage,
+            EventQuery query) throws Exception {
+        final List<String> actions = new ArrayList<String>();
+        try (ClosableIterable<EventData> events =
+                storage.getEvents("run", query)) {
+            for (EventData event : events) {
+                actions.add(event.getAction());
+            }
+        }
+        return actions;
+    }
+
+    /**
+     * Storage which keeps the events in a list and can't filter.
+     */
+    private static final class ListStorage extends AbstractEventStorage {
+
+        /** The events. */
+        private final List<EventData> events = new ArrayList<EventData>();
+
+        /** True if the last iterable is closed. */
+        private boolean closed;
+
+        @Override
+        public void open() {
+            // Nothing to open.
+        }
+
+        @Override
+        public void insert(EventData eventData) {
+            events.add(eventData);
+        }
+
+        @Override
+        public void write() {
+            // Nothing to write.
+        }
+
+        @Override
+        public void close() {
+            // Nothing to close.
+        }
+
+        @Override
+        public ClosableIterable<EventData> getAllEvents(String testrunId) {
+            closed = false;
+            return new ClosableIterable<EventData>() {
+
+                @Override
+                public Iterator<EventData> iterator() {
+                    return events.iterator();
+                }
+
+                @Override
+                public void close() {
+                    closed = true;
+                }
+            };
+        }
+
+        @Override
+        public ClosableIterable<EventData> getAllStartAndFinishEvents() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
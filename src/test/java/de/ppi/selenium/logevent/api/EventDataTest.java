@@ -0,0 +1,67 @@
+package de.ppi.selenium.logevent.api;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for {@link EventData}.
+ *
+ */
+public class EventDataTest {
+
+    /**
+     * Test that an event isn't affected by later changes of its builder.
+     */
+    @Test
+    public void testBuilderChangesDontAffectEvent() {
+        final byte[] screenshot = {1, 2, 3 };
+        final EventData.Builder builder =
+                EventData.builder().id(Long.valueOf(1)).action("A1")
+                        .priority(Priority.DEBUG)
+                        .arguments("a", "b", null, null)
+                        .screenshot("png", screenshot);
+        final EventData event = builder.build();
+        builder.id(Long.valueOf(2)).action("A2").priority(Priority.FAILURE)
+                .arguments("c", null, null, null)
+                .screenshot("html", (byte[]) null);
+        final EventData other = builder.build();
+
+        Assert.assertEquals(Long.valueOf(1), event.getId());
+        Assert.assertEquals("A1", event.getAction());
+        Assert.assertEquals(Priority.DEBUG, event.getPriority());
+        Assert.assertEquals("a", event.getArgument1());
+        Assert.assertEquals("b", event.getArgument2());
+        Assert.assertEquals("png", event.getScreenShotType());
+        Assert.assertSame(screenshot, event.getScreenshot());
+        Assert.assertEquals("A2", other.getAction());
+        Assert.assertNull(other.getArgument2());
+        Assert.assertNull(other.getScreenshot());
+    }
+
+    /**
+     * Test that a copy of an event could be changed without changing the
+     * source.
+     */
+    @Test
+    public void testCopyDoesntAffectSource() {
+        final EventData source =
+                EventData.builder().testrunId("run").action("A1")
+                        .description("first").screenshot("png", new byte[] {1 })
+                        .build();
+        final EventData.Builder copyBuilder = EventData.builder(source);
+        final EventData copy =
+                copyBuilder.id(Long.valueOf(5)).description("second")
+                        .screenshot("png", (byte[]) null).build();
+        copyBuilder.action("A2");
+
+        Assert.assertNull(source.getId());
+        Assert.assertEquals("first", source.getDescription());
+        Assert.assertEquals("A1", source.getAction());
+        Assert.assertArrayEquals(new byte[] {1 }, source.getScreenshot());
+        Assert.assertEquals(Long.valueOf(5), copy.getId());
+        Assert.assertEquals("run", copy.getTestrunId());
+        Assert.assertEquals("A1", copy.getAction());
+        Assert.assertEquals("second", copy.getDescription());
+        Assert.assertNull(copy.getScreenshot());
+    }
+}
@@ -0,0 +1,31 @@
+package de.ppi.selenium.logevent.api;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for {@link EventLoggerFactory}.
+ *
+ */
+public class EventLoggerFactoryTest {
+
+    /**
+     * Test that filtered events share the {@link EmptyLogger}, so no logger is
+     * created for them.
+     */
+    @Test
+    public void testFilteredLoggerIsShared() {
+        EventLoggerFactory.setPriority(Priority.FAILURE, EventSource.PAGE,
+                "filteredPage", null);
+        final EventLoggerFactory factory =
+                EventLoggerFactory.getInstance(EventSource.PAGE);
+        Assert.assertFalse(factory.isEnabled(Priority.DOCUMENTATION,
+                "filteredPage", "field"));
+        Assert.assertSame(EmptyLogger.INSTANCE,
+                factory.onDebug("filteredPage", "field"));
+        Assert.assertSame(EmptyLogger.INSTANCE,
+                factory.onDoku("filteredPage", "other"));
+        Assert.assertSame(EmptyLogger.INSTANCE,
+                factory.on(Priority.DEBUG, "filteredPage", null));
+    }
+}
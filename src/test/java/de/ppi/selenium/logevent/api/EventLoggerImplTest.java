@@ -0,0 +1,148 @@
+package de.ppi.selenium.logevent.api;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Test for {@link EventLoggerImpl}.
+ *
+ */
+public class EventLoggerImplTest {
+
+    /**
+     * Test that an unchanged screenshot is only encoded once, so the events
+     * share the same screenshot.
+     */
+    @Test
+    public void testUnchangedScreenshot() {
+        final RecordingStorage storage = new RecordingStorage();
+        final EventLogger logger =
+                new EventLoggerImpl(storage, "run", Priority.FAILURE,
+                        Priority.DEBUG, EventSource.TEST, "group", "item");
+        final String[] base64 = {"AAEC" };
+        final WebDriver driver = driver(base64);
+        logger.withScreenshot(Priority.FAILURE, driver).log("A1", "first");
+        logger.withScreenshot(Priority.FAILURE, driver).log("A2", "second");
+        base64[0] = "AwQF";
+        logger.withScreenshot(Priority.FAILURE, driver).log("A3", "third");
+        logger.withScreenshot(Priority.FAILURE, driver(base64)).log("A4",
+                "other driver");
+
+        final byte[] first = storage.events.get(0).getScreenshot();
+        Assert.assertArrayEquals(new byte[] {0, 1, 2 }, first);
+        Assert.assertSame(first, storage.events.get(1).getScreenshot());
+        final byte[] changed = storage.events.get(2).getScreenshot();
+        Assert.assertArrayEquals(new byte[] {3, 4, 5 }, changed);
+        Assert.assertNotSame(changed, storage.events.get(3).getScreenshot());
+        Assert.assertArrayEquals(changed, storage.events.get(3)
+                .getScreenshot());
+    }
+
+    /**
+     * Test that a changed screenshot is encoded again, even if the length and
+     * the sample of the raw output are the same.
+     */
+    @Test
+    public void testChangeOutsideOfSample() {
+        final RecordingStorage storage = new RecordingStorage();
+        final EventLogger logger =
+                new EventLoggerImpl(storage, "run", Priority.FAILURE,
+                        Priority.DEBUG, EventSource.TEST, "group", "item");
+        final StringBuilder raw = new StringBuilder();
+        for (int i = 0; i < 1024; i++) {
+            raw.append('A');
+        }
+        final String[] base64 = {raw.toString() };
+        final WebDriver driver = driver(base64);
+        logger.withScreenshot(Priority.FAILURE, driver).log("A1", "first");
+        // Only every 4. character is sampled.
+        raw.setCharAt(1, 'B');
+        base64[0] = raw.toString();
+        logger.withScreenshot(Priority.FAILURE, driver).log("A2", "second");
+
+        final byte[] first = storage.events.get(0).getScreenshot();
+        final byte[] second = storage.events.get(1).getScreenshot();
+        Assert.assertEquals(0, first[1]);
+        Assert.assertEquals(16, second[1]);
+    }
+
+    /**
+     * Creates a driver which delivers the current screenshot.
+     *
+     * @param base64 holder of the screenshot as base64-string.
+     * @return the driver.
+     */
+    private static WebDriver driver(final String[] base64) {
+        return (WebDriver) Proxy.newProxyInstance(
+                EventLoggerImplTest.class.getClassLoader(), new Class<?>[] {
+                        WebDriver.class, TakesScreenshot.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method,
+                            Object[] args) {
+                        if ("getScreenshotAs".equals(method.getName())
+                                && args[0] == OutputType.BASE64) {
+                            return base64[0];
+                        } else if ("hashCode".equals(method.getName())) {
+                            return Integer.valueOf(System
+                                    .identityHashCode(proxy));
+                        } else if ("equals".equals(method.getName())) {
+                            return Boolean.valueOf(proxy == args[0]);
+                        }
+                        throw new UnsupportedOperationException(method
+                                .getName());
+                    }
+                });
+    }
+
+    /**
+     * {@link EventStorage} which records the events.
+     */
+    private static final class RecordingStorage implements EventStorage {
+
+        /** The inserted events. */
+        private final List<EventData> events = new ArrayList<EventData>();
+
+        @Override
+        public void open() {
+        }
+
+        @Override
+        public void insert(EventData eventData) {
+            events.add(eventData);
+        }
+
+        @Override
+        public void write() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public ClosableIterable<EventData> getAllEvents(String testrunId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ClosableIterable<EventData> getEvents(String testrunId,
+                EventQuery query) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ClosableIterable<EventData> getAllStartAndFinishEvents() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
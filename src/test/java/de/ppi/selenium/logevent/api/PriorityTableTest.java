@@ -0,0 +1,72 @@
+package de.ppi.selenium.logevent.api;
+
+import static de.ppi.selenium.logevent.api.Priority.DEBUG;
+import static de.ppi.selenium.logevent.api.Priority.DOCUMENTATION;
+import static de.ppi.selenium.logevent.api.Priority.EXCEPTION;
+import static de.ppi.selenium.logevent.api.Priority.FAILURE;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for {@link PriorityTable}.
+ *
+ */
+public class PriorityTableTest {
+
+    /**
+     * Test that the most specific definition wins.
+     */
+    @Test
+    public void testMostSpecificWins() {
+        final PriorityTable table =
+                PriorityTable.EMPTY.withDefault(DEBUG)
+                        .with(DOCUMENTATION, EventSource.PAGE, "page", null)
+                        .with(FAILURE, EventSource.PAGE, "page", "field");
+        Assert.assertEquals(FAILURE,
+                table.get(EventSource.PAGE, "page", "field"));
+        Assert.assertEquals(DOCUMENTATION,
+                table.get(EventSource.PAGE, "page", "other"));
+        Assert.assertEquals(DOCUMENTATION,
+                table.get(EventSource.PAGE, "page", null));
+        Assert.assertEquals(DEBUG,
+                table.get(EventSource.PAGE, "otherPage", "field"));
+        Assert.assertEquals(DEBUG, table.get(EventSource.TEST, "page", "field"));
+    }
+
+    /**
+     * Test that a change creates a new table and keeps the old one.
+     */
+    @Test
+    public void testCopyOnWrite() {
+        final PriorityTable table =
+                PriorityTable.EMPTY.withDefault(DEBUG).with(DOCUMENTATION,
+                        EventSource.PAGE, "page", "field");
+        final PriorityTable changed =
+                table.withDefault(EXCEPTION).with(FAILURE, EventSource.PAGE,
+                        "page", "other");
+        Assert.assertEquals(DEBUG, table.get(EventSource.PAGE, "page", null));
+        Assert.assertEquals(DEBUG, table.get(EventSource.PAGE, "page", "other"));
+        Assert.assertEquals(EXCEPTION,
+                changed.get(EventSource.PAGE, "page", null));
+        Assert.assertEquals(DOCUMENTATION,
+                changed.get(EventSource.PAGE, "page", "field"));
+        Assert.assertEquals(FAILURE,
+                changed.get(EventSource.PAGE, "page", "other"));
+    }
+
+    /**
+     * Test for {@link PriorityTable#isDefined(EventSource, String, String)}.
+     */
+    @Test
+    public void testIsDefined() {
+        final PriorityTable table =
+                PriorityTable.EMPTY.with(DEBUG, EventSource.PAGE, "page",
+                        "field");
+        Assert.assertTrue(table.isDefined(EventSource.PAGE, "page", "field"));
+        Assert.assertFalse(table.isDefined(EventSource.PAGE, "page", null));
+        Assert.assertFalse(table.isDefined(EventSource.PAGE, null, null));
+        Assert.assertFalse(table.isDefined(EventSource.TEST, null, null));
+        Assert.assertTrue(PriorityTable.EMPTY.isEmpty());
+    }
+}
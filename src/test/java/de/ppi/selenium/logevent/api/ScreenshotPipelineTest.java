@@ -0,0 +1,64 @@
+package de.ppi.selenium.logevent.api;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.ppi.selenium.util.ImageUtils;
+
+/**
+ * Test for {@link ScreenshotPipeline}.
+ *
+ */
+public class ScreenshotPipelineTest {
+
+    /**
+     * Test that the future delivers the decoded png.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testSubmitPng() throws Exception {
+        final byte[] png = createPng(200, 100);
+        final byte[] screenshot =
+                ScreenshotPipeline
+                        .submitPng(Base64.encodeBase64String(png))
+                        .get(5, TimeUnit.SECONDS);
+        Assert.assertArrayEquals(png, screenshot);
+    }
+
+    /**
+     * Test that a png is scaled down to the maximal width and narrower pngs
+     * are kept.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testEncodePngMaxWidth() throws Exception {
+        final byte[] png = createPng(200, 100);
+        final String base64 = Base64.encodeBase64String(png);
+        Assert.assertArrayEquals(png, ScreenshotPipeline.encodePng(base64, 0));
+        Assert.assertArrayEquals(png,
+                ScreenshotPipeline.encodePng(base64, 200));
+        final BufferedImage scaled =
+                ImageUtils.read(ScreenshotPipeline.encodePng(base64, 50));
+        Assert.assertEquals(50, scaled.getWidth());
+        Assert.assertEquals(25, scaled.getHeight());
+    }
+
+    /**
+     * Creates a png.
+     *
+     * @param width the width.
+     * @param height the height.
+     * @return the png-bytes.
+     * @throws Exception if the png can't be written.
+     */
+    private static byte[] createPng(int width, int height) throws Exception {
+        return ImageUtils.toPng(new BufferedImage(width, height,
+                BufferedImage.TYPE_INT_RGB));
+    }
+}
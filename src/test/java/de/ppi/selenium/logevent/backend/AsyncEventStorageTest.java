@@ -0,0 +1,230 @@
+package de.ppi.selenium.logevent.backend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.ppi.selenium.logevent.api.ClosableIterable;
+import de.ppi.selenium.logevent.api.EventData;
+import de.ppi.selenium.logevent.api.EventQuery;
+import de.ppi.selenium.logevent.api.EventStorage;
+import de.ppi.selenium.logevent.api.Priority;
+import de.ppi.selenium.logevent.backend.AsyncEventStorage.OverflowPolicy;
+
+/**
+ * Test for {@link AsyncEventStorage}.
+ *
+ */
+public class AsyncEventStorageTest {
+
+    /**
+     * Test that all events are delivered in order, even if they are spilled.
+     */
+    @Test
+    public void testSpillKeepsOrder() {
+        final RecordingStorage recorder = new RecordingStorage();
+        final AsyncEventStorage storage =
+                new AsyncEventStorage(recorder, 2,
+                        OverflowPolicy.SPILL_TO_DISK);
+        recorder.block();
+        for (int i = 0; i < 50; i++) {
+            storage.insert(createEvent(i, Priority.DEBUG));
+        }
+        recorder.release();
+        storage.write();
+        Assert.assertEquals(50, recorder.actions.size());
+        for (int i = 0; i < 50; i++) {
+            Assert.assertEquals("A" + i, recorder.actions.get(i));
+        }
+        Assert.assertEquals(1, recorder.writes);
+        storage.close();
+        Assert.assertTrue(recorder.closed);
+    }
+
+    /**
+     * Test that spilling doesn't resolve pending screenshots on the
+     * test-thread.
+     */
+    @Test
+    public void testSpillDoesntWaitForScreenshots() {
+        final RecordingStorage recorder = new RecordingStorage();
+        final AsyncEventStorage storage =
+                new AsyncEventStorage(recorder, 2,
+                        OverflowPolicy.SPILL_TO_DISK);
+        recorder.block();
+        final Thread testThread = Thread.currentThread();
+        final List<Thread> encoders = new CopyOnWriteArrayList<Thread>();
+        for (int i = 0; i < 10; i++) {
+            final FutureTask<byte[]> screenshot =
+                    new FutureTask<byte[]>(new Callable<byte[]>() {
+                        @Override
+                        public byte[] call() {
+                            encoders.add(Thread.currentThread());
+                            return new byte[] {1, 2, 3 };
+                        }
+                    });
+            storage.insert(EventData.builder().action("A" + i)
+                    .priority(Priority.DEBUG).screenshot("png", screenshot)
+                    .build());
+        }
+        recorder.release();
+        storage.close();
+        Assert.assertEquals(10, recorder.actions.size());
+        // Only the spilled events are encoded.
+        Assert.assertFalse(encoders.isEmpty());
+        Assert.assertFalse(encoders.contains(testThread));
+    }
+
+    /**
+     * Test that debug-events are dropped if the queue is full.
+     */
+    @Test
+    public void testDropDebug() {
+        final RecordingStorage recorder = new RecordingStorage();
+        final AsyncEventStorage storage =
+                new AsyncEventStorage(recorder, 2, OverflowPolicy.DROP_DEBUG);
+        recorder.block();
+        for (int i = 0; i < 10; i++) {
+            storage.insert(createEvent(i, Priority.DEBUG));
+        }
+        storage.insert(createEvent(10, Priority.DOCUMENTATION));
+        recorder.release();
+        storage.close();
+        Assert.assertTrue(storage.getDroppedEvents() > 0);
+        Assert.assertTrue(recorder.actions.contains("A10"));
+        Assert.assertEquals(11,
+                recorder.actions.size() + storage.getDroppedEvents());
+    }
+
+    /**
+     * Test that writing fails instead of waiting forever, if the storage is
+     * closed.
+     */
+    @Test(timeout = 10000)
+    public void testWriteAfterClose() {
+        final RecordingStorage recorder = new RecordingStorage();
+        final AsyncEventStorage storage = new AsyncEventStorage(recorder);
+        storage.close();
+        try {
+            storage.write();
+            Assert.fail("Closed storage accepted write.");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("The storage is closed.", e.getMessage());
+        }
+        storage.close();
+        Assert.assertEquals(0, recorder.writes);
+    }
+
+    /**
+     * Test that writing fails instead of waiting forever, if the writer-thread
+     * was interrupted.
+     *
+     * @throws InterruptedException if the test is interrupted.
+     */
+    @Test(timeout = 10000)
+    public void testWriteAfterInterrupt() throws InterruptedException {
+        final RecordingStorage recorder = new RecordingStorage();
+        final AsyncEventStorage storage = new AsyncEventStorage(recorder);
+        storage.write();
+        recorder.writerThread.interrupt();
+        recorder.writerThread.join();
+        try {
+            storage.write();
+            Assert.fail("Stopped writer accepted write.");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("The storage is closed.", e.getMessage());
+        }
+        Assert.assertEquals(1, recorder.writes);
+    }
+
+    /**
+     * Creates an event.
+     *
+     * @param nr the number of the event.
+     * @param priority the priority.
+     * @return the event.
+     */
+    private static EventData createEvent(int nr, Priority priority) {
+        return EventData.builder().action("A" + nr).priority(priority)
+                .build();
+    }
+
+    /**
+     * {@link EventStorage} which records the calls and could be blocked.
+     */
+    private static final class RecordingStorage implements EventStorage {
+
+        /** The inserted actions. */
+        private final List<String> actions = new ArrayList<String>();
+
+        /** Number of writes. */
+        private int writes;
+
+        /** The thread which called {@link #write()}. */
+        private volatile Thread writerThread;
+
+        /** True if closed. */
+        private boolean closed;
+
+        /** Latch to block the first insert. */
+        private volatile CountDownLatch blocker;
+
+        /** Blocks the next insert until {@link #release()}. */
+        void block() {
+            blocker = new CountDownLatch(1);
+        }
+
+        /** Release the blocked insert. */
+        void release() {
+            blocker.countDown();
+        }
+
+        @Override
+        public void open() {
+            closed = false;
+        }
+
+        @Override
+        public void insert(EventData eventData) {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            actions.add(eventData.getAction());
+        }
+
+        @Override
+        public void write() {
+            writerThread = Thread.currentThread();
+            writes++;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        @Override
+        public ClosableIterable<EventData> getAllEvents(String testrunId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ClosableIterable<EventData> getEvents(String testrunId,
+                EventQuery query) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ClosableIterable<EventData> getAllStartAndFinishEvents() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,452 @@
+package de.ppi.selenium.logevent.backend;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.ppi.selenium.logevent.api.ClosableIterable;
+import de.ppi.selenium.logevent.api.EventActions;
+import de.ppi.selenium.logevent.api.EventData;
+import de.ppi.selenium.logevent.api.EventQuery;
+import de.ppi.selenium.logevent.api.EventSource;
+import de.ppi.selenium.logevent.api.Priority;
+
+/**
+ * Test for {@link H2EventStorage}.
+ *
+ */
+public class H2EventStorageTest {
+
+    /** Number of parallel threads. */
+    private static final int NR_OF_THREADS = 4;
+
+    /** Number of events per thread. */
+    private static final int NR_OF_EVENTS = 250;
+
+    /**
+     * Test that parallel threads with own connections store all events.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testParallelInsert() throws Exception {
+        final H2EventStorage storage =
+                new H2EventStorage("jdbc:h2:mem:parallel;MODE=PostgreSQL", "",
+                        "", NR_OF_THREADS);
+        final List<Thread> threads = new ArrayList<Thread>();
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        for (int t = 0; t < NR_OF_THREADS; t++) {
+            final Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < NR_OF_EVENTS; i++) {
+                            storage.insert(createEvent("parallel", i));
+                        }
+                        storage.write();
+                    } catch (Throwable e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(new ArrayList<Throwable>(), errors);
+        Assert.assertEquals(NR_OF_THREADS * NR_OF_EVENTS,
+                count(storage, "parallel"));
+        storage.close();
+    }
+
+    /**
+     * Temporary folder for the screenshots.
+     */
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    /**
+     * Test that screenshots are stored once in the {@link ScreenshotStore} and
+     * read back from it.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testScreenshotStore() throws Exception {
+        final File baseDir = tempFolder.newFolder("screenshots");
+        final H2EventStorage storage =
+                new H2EventStorage("jdbc:h2:mem:screenshots;MODE=PostgreSQL",
+                        "", "", 1, new FileScreenshotStore(
+                                baseDir.getAbsolutePath()));
+        final byte[] screenshot = "<html></html>".getBytes("UTF-8");
+        for (int i = 0; i < 3; i++) {
+            storage.insert(eventBuilder("screenshots", i).screenshot("html",
+                    screenshot).build());
+        }
+        storage.write();
+        Assert.assertEquals(1, baseDir.listFiles().length);
+        try (ClosableIterable<EventData> events =
+                storage.getAllEvents("screenshots")) {
+            for (EventData event : events) {
+                Assert.assertNotNull(event.getScreenshotHash());
+                Assert.assertEquals(Integer.valueOf(screenshot.length),
+                        event.getScreenshotSize());
+                Assert.assertArrayEquals(screenshot, event.getScreenshot());
+            }
+        }
+        storage.close();
+    }
+
+    /**
+     * Test that a screenshot which is the same as the previous one is stored
+     * only as hash and resolved when it's read.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testUnchangedScreenshots() throws Exception {
+        final String url = "jdbc:h2:mem:unchanged;MODE=PostgreSQL";
+        final H2EventStorage storage = new H2EventStorage(url, "", "");
+        final String[] pages =
+                {"<html>1</html>", "<html>1</html>", "<html>1</html>",
+                        "<html>2</html>", "<html>1</html>" };
+        for (int i = 0; i < pages.length; i++) {
+            storage.insert(eventBuilder("unchanged", i).screenshot("html",
+                    pages[i].getBytes("UTF-8")).build());
+        }
+        storage.write();
+        try (Connection connection = DriverManager.getConnection(url, "", "");
+                Statement statement = connection.createStatement();
+                ResultSet result =
+                        statement.executeQuery("select count(*) from EVENTS "
+                                + "where screenshot is not null")) {
+            result.next();
+            Assert.assertEquals(3, result.getInt(1));
+        }
+        int i = 0;
+        try (ClosableIterable<EventData> events =
+                storage.getAllEvents("unchanged")) {
+            for (EventData event : events) {
+                Assert.assertEquals(pages[i], new String(event.getScreenshot(),
+                        "UTF-8"));
+                Assert.assertNotNull(event.getScreenshotHash());
+                i++;
+            }
+        }
+        Assert.assertEquals(pages.length, i);
+        i = 0;
+        try (ClosableIterable<EventData> events =
+                storage.getEvents("unchanged", EventQuery.ALL)) {
+            for (EventData event : events) {
+                Assert.assertEquals(pages[i], new String(event.getScreenshot(),
+                        "UTF-8"));
+                i++;
+            }
+        }
+        Assert.assertEquals(pages.length, i);
+        storage.close();
+    }
+
+    /**
+     * Test that all screenshots are stored completely, if the storage has no
+     * query to select a screenshot by its hash.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testUnchangedScreenshotsWithoutReferences() throws Exception {
+        final String url = "jdbc:h2:mem:noreferences;MODE=PostgreSQL";
+        final H2EventStorage storage = new H2EventStorage(url, "", "") {
+            @Override
+            protected String getScreenshotByHashSql() {
+                return null;
+            }
+        };
+        for (int i = 0; i < 3; i++) {
+            storage.insert(eventBuilder("noreferences", i).screenshot("html",
+                    "<html>1</html>".getBytes("UTF-8")).build());
+        }
+        storage.write();
+        try (Connection connection = DriverManager.getConnection(url, "", "");
+                Statement statement = connection.createStatement();
+                ResultSet result =
+                        statement.executeQuery("select count(*) from EVENTS "
+                                + "where screenshot is not null")) {
+            result.next();
+            Assert.assertEquals(3, result.getInt(1));
+        }
+        storage.close();
+    }
+
+    /**
+     * Test that a storage with several connections rejects events after it's
+     * closed, like a storage with one connection.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testInsertAfterClose() throws Exception {
+        final String url = "jdbc:h2:mem:closed;MODE=PostgreSQL";
+        final H2EventStorage storage =
+                new H2EventStorage(url, "", "", NR_OF_THREADS);
+        storage.insert(createEvent("closed", 0));
+        storage.close();
+        try {
+            storage.insert(createEvent("closed", 1));
+            Assert.fail("Closed storage accepted an event.");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("The storage is closed.", e.getMessage());
+        }
+    }
+
+    /**
+     * Test that closing the storage while another thread inserts into its
+     * borrowed batch keeps all accepted events.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testCloseDuringInsert() throws Exception {
+        final String url =
+                "jdbc:h2:mem:closeDuringInsert;MODE=PostgreSQL;"
+                        + "DB_CLOSE_DELAY=-1";
+        final H2EventStorage storage =
+                new H2EventStorage(url, "", "", NR_OF_THREADS);
+        final AtomicInteger accepted = new AtomicInteger();
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        final Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0;; i++) {
+                        storage.insert(createEvent("closeDuringInsert", i));
+                        accepted.incrementAndGet();
+                    }
+                } catch (IllegalStateException e) {
+                    if (!"The storage is closed.".equals(e.getMessage())) {
+                        errors.add(e);
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            }
+        };
+        thread.start();
+        while (accepted.get() < NR_OF_EVENTS) {
+            Thread.sleep(1);
+        }
+        storage.close();
+        thread.join();
+        Assert.assertEquals(new ArrayList<Throwable>(), errors);
+        Assert.assertEquals(accepted.get(),
+                count(storage, "closeDuringInsert"));
+    }
+
+    /**
+     * Test that a table of an older version with priority and source as
+     * VARCHAR is migrated.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testMigration() throws Exception {
+        final String url = "jdbc:h2:mem:migration;MODE=PostgreSQL";
+        try (Connection connection = DriverManager.getConnection(url, "", "");
+                Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE EVENTS (id IDENTITY, "
+                    + "ts TIMESTAMP NOT NULL, testrunid VARCHAR(100) NOT NULL, "
+                    + "threadid BIGINT NOT NULL, source VARCHAR(30) NOT NULL, "
+                    + "groupid VARCHAR(500) NOT NULL, "
+                    + "item VARCHAR(500) NOT NULL, "
+                    + "action VARCHAR(500) NOT NULL, "
+                    + "priority VARCHAR(20) NOT NULL, "
+                    + "description VARCHAR(5000) NOT NULL, "
+                    + "argument1 VARCHAR(5000), argument2 VARCHAR(5000), "
+                    + "argument3 VARCHAR(5000), argument4 VARCHAR(5000), "
+                    + "screenShotType VARCHAR(20), screenshot BINARY)");
+            statement.executeUpdate("INSERT INTO EVENTS(ts, testrunid, "
+                    + "threadid, source, groupid, item, action, priority, "
+                    + "description) VALUES(CURRENT_TIMESTAMP, 'migration', 1, "
+                    + "'PAGE', 'group', 'item', 'TEST_START', 'FAILURE', "
+                    + "'test.start')");
+            final H2EventStorage storage = new H2EventStorage(url, "", "");
+            storage.insert(createEvent("migration", 1));
+            storage.write();
+            final List<EventData> events = new ArrayList<EventData>();
+            try (ClosableIterable<EventData> allEvents =
+                    storage.getAllEvents("migration")) {
+                for (EventData event : allEvents) {
+                    events.add(event);
+                }
+            }
+            Assert.assertEquals(2, events.size());
+            Assert.assertEquals(Priority.FAILURE, events.get(0).getPriority());
+            Assert.assertEquals(EventSource.PAGE, events.get(0).getSource());
+            Assert.assertEquals(Priority.DOCUMENTATION, events.get(1)
+                    .getPriority());
+            Assert.assertEquals(EventSource.TEST, events.get(1).getSource());
+            storage.close();
+        }
+    }
+
+    /**
+     * Test that {@link H2EventStorage#getEvents(String, EventQuery)} filters
+     * in the database and loads the screenshots on demand.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testGetEvents() throws Exception {
+        final H2EventStorage storage =
+                new H2EventStorage("jdbc:h2:mem:query;MODE=PostgreSQL", "", "");
+        storage.insert(eventBuilder("query", 0).action(
+                EventActions.TEST_START).build());
+        storage.insert(createEvent("query", 1));
+        final EventData failure =
+                eventBuilder("query", 2).priority(Priority.FAILURE)
+                        .action(EventActions.ASSERTION_FAILED)
+                        .screenshot("html", "<html></html>".getBytes("UTF-8"))
+                        .build();
+        storage.insert(failure);
+        storage.write();
+        final EventQuery query =
+                EventQuery.ALL.withMinPriority(Priority.FAILURE);
+        Assert.assertEquals(Arrays.asList("item2"),
+                readItems(storage, query));
+        Assert.assertEquals(Arrays.asList("item0", "item2"),
+                readItems(storage, query.withTestBoundaries()));
+        Assert.assertEquals(Arrays.asList("item0"), readItems(storage,
+                EventQuery.ALL.withActions(EventActions.TEST_START)));
+        try (ClosableIterable<EventData> events =
+                storage.getEvents("query", query)) {
+            final EventData event = events.iterator().next();
+            Assert.assertArrayEquals(failure.getScreenshot(),
+                    event.getScreenshot());
+        }
+        try (ClosableIterable<EventData> events =
+                storage.getEvents("query", query.withScreenshots(false))) {
+            Assert.assertNull(events.iterator().next().getScreenshot());
+        }
+        storage.close();
+    }
+
+    /**
+     * Test that the screenshots of {@link H2EventStorage#getEvents(String,
+     * EventQuery)} are loaded correctly for several pages, also if they are
+     * resolved in another order or stored only as reference.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testGetEventsLoadsScreenshotsPerPage() throws Exception {
+        final H2EventStorage storage =
+                new H2EventStorage("jdbc:h2:mem:pages;MODE=PostgreSQL", "",
+                        "");
+        final int nrOfEvents = 45;
+        for (int i = 0; i < nrOfEvents; i++) {
+            // Every 3 events share the same screenshot.
+            storage.insert(eventBuilder("pages", i).screenshot("html",
+                    ("<html>" + i / 3 + "</html>").getBytes("UTF-8")).build());
+        }
+        storage.write();
+        final List<EventData> events = new ArrayList<EventData>();
+        try (ClosableIterable<EventData> result =
+                storage.getEvents("pages", EventQuery.ALL)) {
+            for (EventData event : result) {
+                events.add(event);
+            }
+        }
+        Assert.assertEquals(nrOfEvents, events.size());
+        for (int i = nrOfEvents - 1; i >= 0; i--) {
+            Assert.assertEquals("<html>" + i / 3 + "</html>", new String(
+                    events.get(i).getScreenshot(), "UTF-8"));
+        }
+        storage.close();
+    }
+
+    /**
+     * Reads the items of the events which match the query.
+     *
+     * @param storage the storage.
+     * @param query the query.
+     * @return the items.
+     * @throws Exception if something goes wrong.
+     */
+    private static List<String> readItems(H2EventStorage storage,
+            EventQuery query) throws Exception {
+        final List<String> items = new ArrayList<String>();
+        try (ClosableIterable<EventData> events =
+                storage.getEvents("query", query)) {
+            for (EventData event : events) {
+                items.add(event.getItem());
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Counts the events of the testrun.
+     *
+     * @param storage the storage.
+     * @param testrunId the id of the testrun.
+     * @return the number of events.
+     * @throws Exception if something goes wrong.
+     */
+    static int count(H2EventStorage storage, String testrunId)
+            throws Exception {
+        int count = 0;
+        try (ClosableIterable<EventData> events =
+                storage.getAllEvents(testrunId)) {
+            for (EventData eventData : events) {
+                Assert.assertEquals(testrunId, eventData.getTestrunId());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Creates an event.
+     *
+     * @param testrunId the id of the testrun.
+     * @param nr the number of the event.
+     * @return the event.
+     */
+    static EventData createEvent(String testrunId, int nr) {
+        return eventBuilder(testrunId, nr).build();
+    }
+
+    /**
+     * Creates a builder with the values of an event.
+     *
+     * @param testrunId the id of the testrun.
+     * @param nr the number of the event.
+     * @return the builder.
+     */
+    static EventData.Builder eventBuilder(String testrunId, int nr) {
+        return EventData.builder()
+                .ts(new Timestamp(System.currentTimeMillis()))
+                .testrunId(testrunId)
+                .threadId(Thread.currentThread().getId())
+                .source(EventSource.TEST).groupId("group").item("item" + nr)
+                .action(EventActions.TEST_DOCUMENTATION)
+                .priority(Priority.DOCUMENTATION).description("test.doku")
+                .arguments(Integer.valueOf(nr), null, null, null);
+    }
+}
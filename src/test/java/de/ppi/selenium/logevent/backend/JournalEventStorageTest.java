@@ -0,0 +1,121 @@
+package de.ppi.selenium.logevent.backend;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.ppi.selenium.logevent.api.ClosableIterable;
+import de.ppi.selenium.logevent.api.EventActions;
+import de.ppi.selenium.logevent.api.EventData;
+
+/**
+ * Test for {@link JournalEventStorage}.
+ *
+ */
+public class JournalEventStorageTest {
+
+    /** Small segments, so that the journal rolls. */
+    private static final int SEGMENT_SIZE = 1024;
+
+    /** Number of events per testrun. */
+    private static final int NR_OF_EVENTS = 100;
+
+    /**
+     * Temporary folder for the journal.
+     */
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    /**
+     * Test that the events are delivered per testrun in the order of insert,
+     * even after close.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testGetAllEvents() throws Exception {
+        final File dir = tempFolder.newFolder("journal");
+        final JournalEventStorage storage =
+                new JournalEventStorage(dir.getAbsolutePath(), SEGMENT_SIZE);
+        for (int i = 0; i < NR_OF_EVENTS; i++) {
+            storage.insert(H2EventStorageTest.createEvent("run1", i));
+            storage.insert(H2EventStorageTest.createEvent("run2", i));
+        }
+        storage.insert(H2EventStorageTest.eventBuilder("run1", -1)
+                .action(EventActions.TEST_START).build());
+        storage.close();
+        Assert.assertTrue(dir.list().length > 2);
+        Assert.assertEquals(NR_OF_EVENTS + 1, readItems(storage, "run1")
+                .size());
+        final List<String> items = readItems(storage, "run2");
+        Assert.assertEquals(NR_OF_EVENTS, items.size());
+        for (int i = 0; i < NR_OF_EVENTS; i++) {
+            Assert.assertEquals("item" + i, items.get(i));
+        }
+        try (ClosableIterable<EventData> events =
+                storage.getAllStartAndFinishEvents()) {
+            int count = 0;
+            for (EventData event : events) {
+                Assert.assertEquals(EventActions.TEST_START, event.getAction());
+                count++;
+            }
+            Assert.assertEquals(1, count);
+        }
+    }
+
+    /**
+     * Test that a new instance finds the events, also those which are
+     * inserted after the last write.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testRecover() throws Exception {
+        final File dir = tempFolder.newFolder("recover");
+        final JournalEventStorage storage =
+                new JournalEventStorage(dir.getAbsolutePath(), SEGMENT_SIZE);
+        for (int i = 0; i < NR_OF_EVENTS; i++) {
+            storage.insert(H2EventStorageTest.createEvent("run", i));
+            if (i == NR_OF_EVENTS / 2) {
+                storage.write();
+            }
+        }
+        final JournalEventStorage recovered =
+                new JournalEventStorage(dir.getAbsolutePath(), SEGMENT_SIZE);
+        Assert.assertEquals(NR_OF_EVENTS, readItems(recovered, "run").size());
+        final EventData next = H2EventStorageTest.createEvent("run2", 0);
+        recovered.insert(next);
+        Assert.assertNull("The event of the caller is changed.", next.getId());
+        try (ClosableIterable<EventData> events =
+                recovered.getAllEvents("run2")) {
+            Assert.assertEquals(Long.valueOf(NR_OF_EVENTS + 1), events
+                    .iterator().next().getId());
+        }
+        recovered.close();
+    }
+
+    /**
+     * Reads the items of all events of the testrun.
+     *
+     * @param storage the storage.
+     * @param testrunId the id of the testrun.
+     * @return the items.
+     * @throws Exception if something goes wrong.
+     */
+    private static List<String> readItems(JournalEventStorage storage,
+            String testrunId) throws Exception {
+        final List<String> items = new ArrayList<String>();
+        try (ClosableIterable<EventData> events =
+                storage.getAllEvents(testrunId)) {
+            for (EventData event : events) {
+                items.add(event.getItem());
+            }
+        }
+        return items;
+    }
+}
@@ -0,0 +1,93 @@
+package de.ppi.selenium.logevent.report;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.sql.Timestamp;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.ppi.selenium.logevent.api.EventActions;
+import de.ppi.selenium.logevent.api.EventData;
+import de.ppi.selenium.logevent.api.EventSource;
+import de.ppi.selenium.logevent.api.Priority;
+import de.ppi.selenium.logevent.backend.JournalEventStorage;
+import de.ppi.selenium.util.ImageUtils;
+
+/**
+ * Test for {@link HtmlReporter}.
+ *
+ */
+public class HtmlReporterTest {
+
+    /** Number of tests in the testrun. */
+    private static final int NR_OF_TESTS = 10;
+
+    /**
+     * Temporary folder for the journal and the report.
+     */
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    /**
+     * Test that the events are split into pages and that the same screenshot
+     * is written only once with one thumbnail.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testReport() throws Exception {
+        final JournalEventStorage storage =
+                new JournalEventStorage(tempFolder.newFolder("journal")
+                        .getAbsolutePath());
+        final byte[] screenshot =
+                ImageUtils.toPng(new BufferedImage(800, 600,
+                        BufferedImage.TYPE_INT_RGB));
+        for (int i = 0; i < NR_OF_TESTS; i++) {
+            storage.insert(createEvent(i, EventActions.TEST_START, null));
+            storage.insert(createEvent(i, EventActions.TEST_DOCUMENTATION,
+                    screenshot));
+            storage.insert(createEvent(i,
+                    EventActions.TEST_FINISHED_WITH_FAILURES, null));
+        }
+        storage.close();
+        final File reportDir = tempFolder.newFolder("report");
+        new HtmlReporter(reportDir.getAbsolutePath(), Priority.DEBUG, 10, 100)
+                .createReport(storage, "run");
+        final File runDir = new File(reportDir, "run");
+        Assert.assertTrue(new File(runDir, "index.html").exists());
+        Assert.assertTrue(new File(runDir, "page-0003.html").exists());
+        Assert.assertFalse(new File(runDir, "page-0004.html").exists());
+        Assert.assertEquals(1, new File(runDir, "images").listFiles().length);
+        final File[] thumbnails = new File(runDir, "thumbnails").listFiles();
+        Assert.assertEquals(1, thumbnails.length);
+        Assert.assertTrue(thumbnails[0].length() < screenshot.length);
+    }
+
+    /**
+     * Creates an event.
+     *
+     * @param testNr the number of the test.
+     * @param action the action.
+     * @param screenshot the screenshot or <code>null</code>.
+     * @return the event.
+     */
+    private static EventData createEvent(int testNr, String action,
+            byte[] screenshot) {
+        final EventData.Builder builder =
+                EventData.builder()
+                        .ts(new Timestamp(System.currentTimeMillis()))
+                        .testrunId("run").threadId(1)
+                        .source(EventSource.TEST).groupId("Test")
+                        .item("test" + testNr).action(action)
+                        .priority(Priority.DOCUMENTATION)
+                        .description("test.doku")
+                        .arguments("test" + testNr, null, null, null);
+        if (screenshot != null) {
+            builder.screenshot("png", screenshot);
+        }
+        return builder.build();
+    }
+}
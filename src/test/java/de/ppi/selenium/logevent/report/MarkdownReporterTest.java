@@ -0,0 +1,118 @@
+package de.ppi.selenium.logevent.report;
+
+import java.io.File;
+import java.sql.Timestamp;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.ppi.selenium.logevent.api.EventActions;
+import de.ppi.selenium.logevent.api.EventData;
+import de.ppi.selenium.logevent.api.EventSource;
+import de.ppi.selenium.logevent.api.Priority;
+import de.ppi.selenium.logevent.backend.JournalEventStorage;
+
+/**
+ * Test for {@link MarkdownReporter}.
+ *
+ */
+public class MarkdownReporterTest {
+
+    /** Number of tests in the testrun. */
+    private static final int NR_OF_TESTS = 20;
+
+    /**
+     * Temporary folder for the journal and the report.
+     */
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    /**
+     * Test that the parallel mode creates a file per test, also if the tests
+     * are interleaved.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testParallelReport() throws Exception {
+        final JournalEventStorage storage =
+                new JournalEventStorage(tempFolder.newFolder("journal")
+                        .getAbsolutePath());
+        // 2 threads, whose tests are interleaved.
+        for (int i = 0; i < NR_OF_TESTS; i += 2) {
+            storage.insert(createEvent(1, i, EventActions.TEST_START));
+            storage.insert(createEvent(2, i + 1, EventActions.TEST_START));
+            storage.insert(createEvent(1, i, EventActions.TEST_DOCUMENTATION));
+            storage.insert(createEvent(2, i + 1,
+                    EventActions.TEST_DOCUMENTATION));
+            storage.insert(createEvent(2, i + 1,
+                    EventActions.TEST_FINISHED_WITH_FAILURES));
+            storage.insert(createEvent(1, i,
+                    EventActions.TEST_FINISHED_WITH_FAILURES));
+        }
+        storage.close();
+        final File reportDir = tempFolder.newFolder("report");
+        new MarkdownReporter(reportDir.getAbsolutePath(), false,
+                Priority.DEBUG, 4).createReport(storage, "run");
+        final File testClassDir = new File(new File(reportDir, "run"), "Test");
+        Assert.assertEquals(NR_OF_TESTS, testClassDir.listFiles().length);
+        for (File testDir : testClassDir.listFiles()) {
+            Assert.assertEquals(1, testDir.listFiles().length);
+        }
+    }
+
+    /**
+     * Test that the incremental mode writes the report of a test when it's
+     * finished and an index at the end.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testIncrementalReport() throws Exception {
+        final JournalEventStorage storage =
+                new JournalEventStorage(tempFolder.newFolder("journal")
+                        .getAbsolutePath());
+        final File reportDir = tempFolder.newFolder("report");
+        final IncrementalMarkdownReporter reporter =
+                new IncrementalMarkdownReporter(reportDir.getAbsolutePath(),
+                        false, Priority.DEBUG);
+        final File testClassDir = new File(new File(reportDir, "run"), "Test");
+        for (int i = 0; i < NR_OF_TESTS; i++) {
+            storage.insert(createEvent(1, i, EventActions.TEST_START));
+            storage.insert(createEvent(1, i, EventActions.TEST_DOCUMENTATION));
+            storage.insert(createEvent(1, i,
+                    EventActions.TEST_FINISHED_WITH_FAILURES));
+            storage.write();
+            reporter.testFinished(storage, "run", 1);
+            Assert.assertEquals(i + 1, testClassDir.listFiles().length);
+        }
+        storage.close();
+        reporter.finishReport(storage, "run");
+        final File index = new File(new File(reportDir, "run"), "index.md");
+        Assert.assertTrue(index.exists());
+        Assert.assertEquals(NR_OF_TESTS + 2,
+                FileUtils.readLines(index, "UTF-8").size());
+    }
+
+    /**
+     * Creates an event.
+     *
+     * @param threadId the id of the thread.
+     * @param testNr the number of the test.
+     * @param action the action.
+     * @return the event.
+     */
+    private static EventData createEvent(long threadId, int testNr,
+            String action) {
+        return EventData.builder()
+                .ts(new Timestamp(System.currentTimeMillis()))
+                .testrunId("run").threadId(threadId)
+                .source(EventSource.TEST).groupId("Test")
+                .item("test" + testNr).action(action)
+                .priority(Priority.DOCUMENTATION).description("test.doku")
+                .arguments("test" + testNr, null, null, null).build();
+    }
+}
@@ -0,0 +1,86 @@
+package de.ppi.selenium.logevent.report;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for {@link MessageSourceImpl}.
+ *
+ */
+public class MessageSourceImplTest {
+
+    /** The message source. */
+    private final MessageSourceImpl messageSource = new MessageSourceImpl();
+
+    /**
+     * Test that defined and undefined keys are formatted.
+     */
+    @Test
+    public void testGetMessage() {
+        Assert.assertEquals("Start test myTest.", messageSource.getMessage(
+                "test.start", Locale.ENGLISH, null, null, null, null,
+                "myTest"));
+        Assert.assertEquals("unknown a", messageSource.getMessage(
+                "unknown {0}", Locale.ENGLISH, "a"));
+    }
+
+    /**
+     * Test that only keys of the resource bundle are cached, not free-text
+     * descriptions.
+     */
+    @Test
+    public void testCacheOnlyDefinedKeys() {
+        messageSource.getMessage("test.start", Locale.GERMAN, null, null,
+                null, null, "myTest");
+        Assert.assertTrue(messageSource.isCached("test.start", Locale.GERMAN));
+        Assert.assertEquals("free text 1", messageSource.getMessage(
+                "free text {0}", Locale.GERMAN, "1"));
+        Assert.assertFalse(messageSource.isCached("free text {0}",
+                Locale.GERMAN));
+    }
+
+    /**
+     * Test that the cached formats could be used in parallel.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testParallelGetMessage() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Boolean>> results =
+                    new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < 8; i++) {
+                final String testName = "test" + i;
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        for (int j = 0; j < 1000; j++) {
+                            if (!("Start test " + testName + ".")
+                                    .equals(messageSource.getMessage(
+                                            "test.start", Locale.ENGLISH,
+                                            null, null, null, null,
+                                            testName))) {
+                                return Boolean.FALSE;
+                            }
+                        }
+                        return Boolean.TRUE;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                Assert.assertTrue(result.get().booleanValue());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
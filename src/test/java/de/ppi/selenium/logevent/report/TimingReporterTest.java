@@ -0,0 +1,140 @@
+package de.ppi.selenium.logevent.report;
+
+import java.io.File;
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.ppi.selenium.logevent.api.EventActions;
+import de.ppi.selenium.logevent.api.EventData;
+import de.ppi.selenium.logevent.api.EventSource;
+import de.ppi.selenium.logevent.api.Priority;
+import de.ppi.selenium.logevent.backend.JournalEventStorage;
+
+/**
+ * Test for {@link TimingReporter}.
+ *
+ */
+public class TimingReporterTest {
+
+    /**
+     * Temporary folder for the journal and the report.
+     */
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    /**
+     * Test that before- and after-events are paired per thread and the
+     * percentiles are calculated.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testReport() throws Exception {
+        final JournalEventStorage storage =
+                new JournalEventStorage(tempFolder.newFolder("journal")
+                        .getAbsolutePath());
+        storage.insert(createEvent(1, EventSource.TEST, 0,
+                EventActions.TEST_START));
+        // 100 clicks with 1..100 ms, interleaved with a second thread.
+        for (int i = 1; i <= 100; i++) {
+            final long start = i * 1000L;
+            storage.insert(createEvent(1, EventSource.WEBELEMENT_BEFORE,
+                    start, EventActions.ELEMENT_CLICK));
+            storage.insert(createEvent(2, EventSource.WEBELEMENT_BEFORE,
+                    start, EventActions.ELEMENT_CLICK));
+            storage.insert(createEvent(1, EventSource.WEBELEMENT_AFTER,
+                    start + i, EventActions.ELEMENT_CLICK));
+            storage.insert(createEvent(2, EventSource.WEBELEMENT_AFTER,
+                    start + i, EventActions.ELEMENT_CLICK));
+        }
+        storage.insert(createEvent(1, EventSource.TEST, 200000,
+                EventActions.TEST_FINISHED));
+        storage.close();
+        final File reportDir = tempFolder.newFolder("report");
+        new TimingReporter(reportDir.getAbsolutePath()).createReport(storage,
+                "run");
+        final File runDir = new File(reportDir, "run");
+        final List<String> timings =
+                FileUtils.readLines(new File(runDir, "timings.csv"), "UTF-8");
+        Assert.assertEquals(2, timings.size());
+        Assert.assertEquals("Page;field;ELEMENT_CLICK;200;10100;50;95;99;100",
+                timings.get(1));
+        final List<String> tests =
+                FileUtils.readLines(new File(runDir, "tests.csv"), "UTF-8");
+        Assert.assertEquals(2, tests.size());
+        Assert.assertEquals("Page;field;1;TEST_FINISHED;200000", tests.get(1));
+        Assert.assertTrue(new File(runDir, "timings.json").exists());
+    }
+
+    /**
+     * Test that names with the separator or quotes are quoted.
+     *
+     * @throws Exception if something goes wrong.
+     */
+    @Test
+    public void testCsvEscaping() throws Exception {
+        final JournalEventStorage storage =
+                new JournalEventStorage(tempFolder.newFolder("journal")
+                        .getAbsolutePath());
+        final String group = "Page;\"A\"";
+        storage.insert(createEvent(1, EventSource.TEST, group, 0,
+                EventActions.TEST_START));
+        storage.insert(createEvent(1, EventSource.WEBELEMENT_BEFORE, group,
+                1000, EventActions.ELEMENT_CLICK));
+        storage.insert(createEvent(1, EventSource.WEBELEMENT_AFTER, group,
+                1005, EventActions.ELEMENT_CLICK));
+        storage.insert(createEvent(1, EventSource.TEST, group, 2000,
+                EventActions.TEST_FINISHED));
+        storage.close();
+        final File reportDir = tempFolder.newFolder("report");
+        new TimingReporter(reportDir.getAbsolutePath()).createReport(storage,
+                "run");
+        final File runDir = new File(reportDir, "run");
+        final String quotedGroup = "\"Page;\"\"A\"\"\"";
+        Assert.assertEquals(quotedGroup + ";field;ELEMENT_CLICK;1;5;5;5;5;5",
+                FileUtils.readLines(new File(runDir, "timings.csv"), "UTF-8")
+                        .get(1));
+        Assert.assertEquals(quotedGroup + ";field;1;TEST_FINISHED;2000",
+                FileUtils.readLines(new File(runDir, "tests.csv"), "UTF-8")
+                        .get(1));
+    }
+
+    /**
+     * Creates an event.
+     *
+     * @param threadId the id of the thread.
+     * @param source the source.
+     * @param ts the timestamp.
+     * @param action the action.
+     * @return the event.
+     */
+    private static EventData createEvent(long threadId, EventSource source,
+            long ts, String action) {
+        return createEvent(threadId, source, "Page", ts, action);
+    }
+
+    /**
+     * Creates an event.
+     *
+     * @param threadId the id of the thread.
+     * @param source the source.
+     * @param group the group.
+     * @param ts the timestamp.
+     * @param action the action.
+     * @return the event.
+     */
+    private static EventData createEvent(long threadId, EventSource source,
+            String group, long ts, String action) {
+        return EventData.builder().ts(new Timestamp(ts)).testrunId("run")
+                .threadId(threadId).source(source).groupId(group)
+                .item("field").action(action).priority(Priority.DEBUG)
+                .description("test.doku")
+                .arguments(null, null, null, null).build();
+    }
+}
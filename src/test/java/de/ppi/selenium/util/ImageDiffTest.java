@@ -0,0 +1,177 @@
+package de.ppi.selenium.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link ImageDiff}.
+ *
+ */
+public class ImageDiffTest {
+
+    /**
+     * Folder for the diff-images.
+     */
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * Test method for {@link ImageDiff#compare(BufferedImage, BufferedImage)}
+     * with equal pictures.
+     */
+    @Test
+    public void testEqual() {
+        final ImageDiff.Result result =
+                new ImageDiff(1.0).compare(page(Color.WHITE),
+                        page(Color.WHITE));
+        assertTrue(result.isSimilar());
+        assertTrue(result.isComplete());
+        assertEquals(1.0, result.getSimilarity(), 0);
+        assertTrue(result.getDifferentTiles().isEmpty());
+    }
+
+    /**
+     * Test method for {@link ImageDiff#compare(BufferedImage, BufferedImage)}
+     * with a different, but ignored region.
+     */
+    @Test
+    public void testIgnoredRegion() {
+        final BufferedImage actual = page(Color.WHITE);
+        paint(actual, new Rectangle(70, 10, 20, 10), Color.BLACK);
+        final ImageDiff diff = new ImageDiff(1.0);
+        assertFalse(diff.compare(actual, page(Color.WHITE)).isSimilar());
+        diff.ignore(new Rectangle(64, 0, 40, 30));
+        final ImageDiff.Result result = diff.compare(actual, page(Color.WHITE));
+        assertTrue(result.isSimilar());
+        assertEquals(1.0, result.getSimilarity(), 0);
+    }
+
+    /**
+     * Test method for {@link ImageDiff#compare(BufferedImage, BufferedImage)}
+     * which stops, because the threshold can't be reached.
+     */
+    @Test
+    public void testEarlyExit() {
+        final ImageDiff.Result result =
+                new ImageDiff(0.9).compare(page(Color.WHITE),
+                        page(Color.BLACK));
+        assertFalse(result.isSimilar());
+        assertFalse(result.isComplete());
+        assertTrue(Double.isNaN(result.getSimilarity()));
+        assertTrue(result.getDifferentTiles().size() < 4 * 3);
+    }
+
+    /**
+     * Test method for
+     * {@link ImageDiff#compare(BufferedImage, BufferedImage, File)}.
+     *
+     * @throws IOException if the diff-image can't be written.
+     */
+    @Test
+    public void testDiffImage() throws IOException {
+        final BufferedImage actual = page(Color.WHITE);
+        paint(actual, new Rectangle(40, 40, 10, 10), Color.BLACK);
+        final File diffFile = new File(temp.getRoot(), "diff.png");
+        final ImageDiff.Result result =
+                new ImageDiff(0.999).withTileSize(32).compare(actual,
+                        page(Color.WHITE), diffFile);
+        assertFalse(result.isSimilar());
+        assertTrue(result.isComplete());
+        assertEquals(1 - 100.0 / (128 * 96), result.getSimilarity(), 1e-9);
+        assertEquals(Arrays.asList(new Rectangle(32, 32, 32, 32)),
+                result.getDifferentTiles());
+        final BufferedImage diffImage = ImageIO.read(diffFile);
+        assertEquals(128, diffImage.getWidth());
+        assertEquals(96, diffImage.getHeight());
+        final Color marked = new Color(diffImage.getRGB(60, 33));
+        assertTrue(marked.getRed() > marked.getGreen());
+
+        final File noDiffFile = new File(temp.getRoot(), "nodiff.png");
+        new ImageDiff(0.999).compare(actual, actual, noDiffFile);
+        assertFalse(noDiffFile.exists());
+    }
+
+    /**
+     * Test method for {@link ImageDiff#compare(BufferedImage, BufferedImage)}
+     * with pictures of different sizes.
+     */
+    @Test
+    public void testDifferentSizes() {
+        final BufferedImage larger =
+                new BufferedImage(128, 100, BufferedImage.TYPE_INT_RGB);
+        paint(larger, new Rectangle(0, 0, 128, 100), Color.WHITE);
+        final ImageDiff.Result result =
+                new ImageDiff(0.5).compare(page(Color.WHITE), larger);
+        assertTrue(result.isSimilar());
+        assertEquals(96.0 / 100, result.getSimilarity(), 1e-9);
+        assertEquals(Arrays.asList(new Rectangle(0, 96, 32, 4),
+                new Rectangle(32, 96, 32, 4), new Rectangle(64, 96, 32, 4),
+                new Rectangle(96, 96, 32, 4)), result.getDifferentTiles());
+    }
+
+    /**
+     * Test method for {@link ImageDiff#compare(BufferedImage, BufferedImage)}
+     * with overlapping ignored regions, which are counted once.
+     */
+    @Test
+    public void testOverlappingIgnoredRegions() {
+        final BufferedImage larger =
+                new BufferedImage(128, 100, BufferedImage.TYPE_INT_RGB);
+        paint(larger, new Rectangle(0, 0, 128, 100), Color.WHITE);
+        final ImageDiff.Result result =
+                new ImageDiff(0.5).ignore(new Rectangle(0, 90, 64, 10))
+                        .ignore(new Rectangle(32, 90, 64, 10))
+                        .compare(page(Color.WHITE), larger);
+        // 96x10 pixels are ignored, 32x4 pixels outside remain different.
+        final double equal = 128 * 96 - 96 * 6;
+        assertEquals(equal / (equal + 32 * 4), result.getSimilarity(), 1e-9);
+        assertEquals(Arrays.asList(new Rectangle(96, 96, 32, 4)),
+                result.getDifferentTiles());
+    }
+
+    /**
+     * Creates a page of 128x96 pixels.
+     *
+     * @param background the color of the page.
+     * @return the page.
+     */
+    private static BufferedImage page(Color background) {
+        final BufferedImage page =
+                new BufferedImage(128, 96, BufferedImage.TYPE_INT_RGB);
+        paint(page, new Rectangle(0, 0, 128, 96), background);
+        return page;
+    }
+
+    /**
+     * Paints a region.
+     *
+     * @param image the image.
+     * @param region the region.
+     * @param color the color.
+     */
+    private static void paint(BufferedImage image, Rectangle region,
+            Color color) {
+        final Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(color);
+            graphics.fill(region);
+        } finally {
+            graphics.dispose();
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package de.ppi.selenium.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+/**
+ * Tests for {@link ScreenshotUtils}.
+ *
+ */
+public class ScreenshotUtilsTest {
+
+    /**
+     * Folder for the screenshots.
+     */
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * The types of images which are tested.
+     */
+    private static final int[] TYPES = {BufferedImage.TYPE_INT_RGB,
+            BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_3BYTE_BGR,
+            BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_USHORT_565_RGB };
+
+    /**
+     * Test method for {@link ScreenshotUtils#isBlack(BufferedImage)}.
+     */
+    @Test
+    public void testIsBlack() {
+        for (int type : TYPES) {
+            final BufferedImage image = new BufferedImage(40, 30, type);
+            assertTrue(ScreenshotUtils.isBlack(image));
+            image.setRGB(39, 29, 0xFF000008);
+            assertFalse(ScreenshotUtils.isBlack(image));
+            assertTrue(ScreenshotUtils.isBlack(image.getSubimage(10, 5, 20,
+                    20)));
+            assertFalse(ScreenshotUtils.isBlack(image.getSubimage(30, 20, 10,
+                    10)));
+        }
+    }
+
+    /**
+     * Test method for
+     * {@link ScreenshotUtils#similarity(BufferedImage, BufferedImage)}.
+     */
+    @Test
+    public void testSimilarity() {
+        for (int type : TYPES) {
+            final BufferedImage first = fill(new BufferedImage(4, 2, type));
+            final BufferedImage second = fill(new BufferedImage(4, 2, type));
+            assertEquals(1.0, ScreenshotUtils.similarity(first, second), 0);
+            final BufferedImage black = new BufferedImage(4, 2, type);
+            assertEquals(1.0, ScreenshotUtils.similarity(black, black), 0);
+            assertEquals(0.0, ScreenshotUtils.similarity(first, black), 0);
+            assertEquals(expectedSimilarity(first, black),
+                    ScreenshotUtils.similarity(first, black), 1e-9);
+            second.setRGB(1, 1, 0xFFFFFFFF);
+            assertEquals(expectedSimilarity(first, second),
+                    ScreenshotUtils.similarity(first, second), 1e-9);
+            assertEquals(
+                    expectedSimilarity(first.getSubimage(1, 1, 3, 1),
+                            second.getSubimage(1, 1, 3, 1)),
+                    ScreenshotUtils.similarity(first.getSubimage(1, 1, 3, 1),
+                            second.getSubimage(1, 1, 3, 1)), 1e-9);
+        }
+    }
+
+    /**
+     * Test method for
+     * {@link ScreenshotUtils#similarity(BufferedImage, BufferedImage)} with
+     * images which are compared by several threads.
+     */
+    @Test
+    public void testSimilarityOfLargeImages() {
+        final BufferedImage first =
+                fill(new BufferedImage(1024, 768, BufferedImage.TYPE_INT_RGB));
+        final BufferedImage second =
+                fill(new BufferedImage(1024, 768,
+                        BufferedImage.TYPE_3BYTE_BGR));
+        for (int y = 0; y < 768; y += 3) {
+            second.setRGB(y, y / 2, 0x123456);
+        }
+        assertEquals(expectedSimilarity(first, second),
+                ScreenshotUtils.similarity(first, second), 1e-9);
+    }
+
+    /**
+     * Test method for
+     * {@link ScreenshotUtils#similarity(BufferedImage, BufferedImage)} with
+     * different sizes.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testSimilarityOfDifferentSizes() {
+        ScreenshotUtils.similarity(new BufferedImage(4, 2,
+                BufferedImage.TYPE_INT_RGB), new BufferedImage(2, 4,
+                BufferedImage.TYPE_INT_RGB));
+    }
+
+    /**
+     * Test method for
+     * {@link ScreenshotUtils#takeScreenshotOfElement(WebElement, File, WebDriver)}
+     * .
+     *
+     * @throws IOException if the screenshot can't be written.
+     */
+    @Test
+    public void testTakeScreenshotOfElement() throws IOException {
+        final BufferedImage page =
+                fill(new BufferedImage(60, 40, BufferedImage.TYPE_INT_RGB));
+        final ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(page, "png", png);
+        final File target = temp.newFile("element.png");
+        ScreenshotUtils.takeScreenshotOfElement(
+                element(new Point(10, 5), new Dimension(30, 20)), target,
+                driver(png.toByteArray()));
+        final BufferedImage element = ImageIO.read(target);
+        assertEquals(30, element.getWidth());
+        assertEquals(20, element.getHeight());
+        assertEquals(1.0, ScreenshotUtils.similarity(element,
+                page.getSubimage(10, 5, 30, 20)), 0);
+    }
+
+    /**
+     * Test method for
+     * {@link ScreenshotUtils#captureElement(WebElement, WebDriver)} with a
+     * black screenshot.
+     *
+     * @throws IOException if the screenshot can't be decoded.
+     */
+    @Test
+    public void testCaptureBlackElement() throws IOException {
+        final ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(60, 40, BufferedImage.TYPE_INT_RGB),
+                "png", png);
+        assertNull(ScreenshotUtils.captureElement(element(new Point(0, 0),
+                new Dimension(10, 10)), driver(png.toByteArray())));
+    }
+
+    /**
+     * Creates a driver which delivers the screenshot.
+     *
+     * @param screenshot the screenshot as png.
+     * @return the driver.
+     */
+    private static WebDriver driver(final byte[] screenshot) {
+        return (WebDriver) Proxy.newProxyInstance(
+                ScreenshotUtilsTest.class.getClassLoader(), new Class<?>[] {
+                        WebDriver.class, TakesScreenshot.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method,
+                            Object[] args) {
+                        if ("getScreenshotAs".equals(method.getName())
+                                && args[0] == OutputType.BYTES) {
+                            return screenshot.clone();
+                        }
+                        throw new UnsupportedOperationException(method
+                                .getName());
+                    }
+                });
+    }
+
+    /**
+     * Creates an element with the location and size.
+     *
+     * @param location the location.
+     * @param size the size.
+     * @return the element.
+     */
+    private static WebElement element(final Point location,
+            final Dimension size) {
+        return (WebElement) Proxy.newProxyInstance(
+                ScreenshotUtilsTest.class.getClassLoader(),
+                new Class<?>[] {WebElement.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method,
+                            Object[] args) {
+                        if ("getLocation".equals(method.getName())) {
+                            return location;
+                        } else if ("getSize".equals(method.getName())) {
+                            return size;
+                        } else if ("toString".equals(method.getName())) {
+                            return "element";
+                        }
+                        throw new UnsupportedOperationException(method
+                                .getName());
+                    }
+                });
+    }
+
+    /**
+     * Fills the image with a pattern.
+     *
+     * @param image the image.
+     * @return the image.
+     */
+    private static BufferedImage fill(BufferedImage image) {
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, 0xFF000000 | (x * 7 + y * 13) * 0x010305);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Calculates the similarity pixel by pixel.
+     *
+     * @param var picture1
+     * @param cont picture2
+     * @return the expected similarity.
+     */
+    private static double expectedSimilarity(BufferedImage var,
+            BufferedImage cont) {
+        double mins = 0;
+        double maxs = 0;
+        for (int y = 0; y < var.getHeight(); y++) {
+            for (int x = 0; x < var.getWidth(); x++) {
+                final int v = var.getRGB(x, y);
+                final int c = cont.getRGB(x, y);
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    mins += Math.min((v >> shift) & 0xFF, (c >> shift) & 0xFF);
+                    maxs += Math.max((v >> shift) & 0xFF, (c >> shift) & 0xFF);
+                }
+            }
+        }
+        return maxs == 0 ? 1 : mins / maxs;
+    }
+}
@@ -0,0 +1,205 @@
+package de.ppi.selenium.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.ppi.selenium.util.VisualBaselineIndex.Fingerprint;
+
+/**
+ * Tests for {@link VisualBaselineIndex}.
+ *
+ */
+public class VisualBaselineIndexTest {
+
+    /**
+     * Folder for the baselines.
+     */
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * Test method for
+     * {@link VisualBaselineIndex#isSimilar(String, BufferedImage)}.
+     *
+     * @throws IOException if the baselines can't be written.
+     */
+    @Test
+    public void testIsSimilar() throws IOException {
+        final File directory = temp.newFolder("baselines");
+        final VisualBaselineIndex index = new VisualBaselineIndex(directory);
+        final BufferedImage baseline = gradient(64, 48, false);
+        index.put("widget/gradient", baseline);
+        assertTrue(index.contains("widget/gradient"));
+        assertTrue(new File(directory, "widget/gradient.png").isFile());
+        assertTrue(new File(directory, VisualBaselineIndex.INDEX_FILE)
+                .isFile());
+
+        assertTrue(index.isSimilar("widget/gradient", gradient(64, 48, false)));
+        assertFalse(index.isSimilar("widget/gradient", gradient(64, 48, true)));
+        assertFalse(index.isSimilar("widget/gradient",
+                gradient(48, 64, false)));
+    }
+
+    /**
+     * Test method for {@link VisualBaselineIndex#getFingerprint(String)} with
+     * an index which was written before and a baseline which was changed.
+     *
+     * @throws IOException if the baselines can't be written.
+     */
+    @Test
+    public void testIndexIsReloaded() throws IOException {
+        final File directory = temp.newFolder("baselines");
+        final BufferedImage baseline = gradient(64, 48, false);
+        final VisualBaselineIndex index = new VisualBaselineIndex(directory);
+        index.put("gradient", baseline);
+        final Fingerprint expected = index.getFingerprint("gradient");
+
+        final Fingerprint reloaded =
+                new VisualBaselineIndex(directory).getFingerprint("gradient");
+        assertEquals(expected.getAverageHash(), reloaded.getAverageHash());
+        assertEquals(expected.getDifferenceHash(),
+                reloaded.getDifferenceHash());
+        assertEquals(64, reloaded.getWidth());
+        assertEquals(48, reloaded.getHeight());
+
+        final File file = index.getBaselineFile("gradient");
+        ImageIO.write(gradient(64, 48, true), "png", file);
+        assertTrue(file.setLastModified(file.lastModified() + 2000));
+        final VisualBaselineIndex changed = new VisualBaselineIndex(directory);
+        assertTrue(changed.isSimilar("gradient", gradient(64, 48, true)));
+        assertFalse(changed.isSimilar("gradient", baseline));
+    }
+
+    /**
+     * Test method for
+     * {@link VisualBaselineIndex#isSimilar(String, BufferedImage, double)}
+     * with flat pictures, whose perceptual hashes differ a lot although the
+     * pictures are nearly identical.
+     *
+     * @throws IOException if the baselines can't be written.
+     */
+    @Test
+    public void testFlatPictures() throws IOException {
+        final VisualBaselineIndex index =
+                new VisualBaselineIndex(temp.newFolder("baselines"));
+        index.put("flat", flat(200, 100, 200));
+        assertTrue(index.isSimilar("flat", flat(200, 100, 200), 1.0));
+        assertTrue(index.isSimilar("flat", flat(200, 100, 198), 0.85));
+        assertTrue(index.isSimilar("flat", flat(200, 100, 198), 0.98));
+        assertFalse(index.isSimilar("flat", flat(200, 100, 198), 0.995));
+        assertFalse(index.isSimilar("flat", flat(200, 100, 0)));
+    }
+
+    /**
+     * Test method for
+     * {@link VisualBaselineIndex#isSimilar(String, BufferedImage, double)}
+     * with small local changes.
+     *
+     * @throws IOException if the baselines can't be written.
+     */
+    @Test
+    public void testLocalChanges() throws IOException {
+        final VisualBaselineIndex index =
+                new VisualBaselineIndex(temp.newFolder("baselines"));
+        index.put("white", flat(60, 20, 255));
+        final BufferedImage changed = flat(60, 20, 255);
+        paint(changed, 20, 5, 6, 10, 0);
+        assertFalse(index.isSimilar("white", changed, 0.99));
+        assertTrue(index.isSimilar("white", changed, 0.9));
+
+        // The color-sums of the cells are equal, only the pixels differ.
+        final BufferedImage left = flat(64, 48, 255);
+        paint(left, 0, 0, 8, 12, 0);
+        final BufferedImage right = flat(64, 48, 255);
+        paint(right, 8, 0, 8, 12, 0);
+        index.put("left", left);
+        assertEquals(1.0, index.getFingerprint("left").maxSimilarity(
+                Fingerprint.of(right)), 0);
+        assertFalse(index.isSimilar("left", right, 0.99));
+        assertTrue(index.isSimilar("left", left, 1.0));
+    }
+
+    /**
+     * Test method for {@link Fingerprint#distance(Fingerprint)}.
+     */
+    @Test
+    public void testDistance() {
+        final Fingerprint gradient = Fingerprint.of(gradient(64, 48, false));
+        assertEquals(0, gradient.distance(Fingerprint
+                .of(gradient(64, 48, false))));
+        assertEquals(0, gradient.distance(Fingerprint.of(gradient(128, 96,
+                false))));
+        assertTrue(gradient.distance(Fingerprint
+                .of(gradient(64, 48, true))) > 64);
+    }
+
+    /**
+     * Creates a picture of one gray.
+     *
+     * @param width the width.
+     * @param height the height.
+     * @param gray the gray between 0 and 255.
+     * @return the image.
+     */
+    private static BufferedImage flat(int width, int height, int gray) {
+        final BufferedImage image =
+                new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        paint(image, 0, 0, width, height, gray);
+        return image;
+    }
+
+    /**
+     * Paints a rectangle with a gray.
+     *
+     * @param image the image.
+     * @param left the left edge.
+     * @param top the top edge.
+     * @param width the width.
+     * @param height the height.
+     * @param gray the gray between 0 and 255.
+     */
+    private static void paint(BufferedImage image, int left, int top,
+            int width, int height, int gray) {
+        for (int y = top; y < top + height; y++) {
+            for (int x = left; x < left + width; x++) {
+                image.setRGB(x, y, gray * 0x010101);
+            }
+        }
+    }
+
+    /**
+     * Creates a diagonal gradient.
+     *
+     * @param width the width.
+     * @param height the height.
+     * @param inverted true if it should be dark on the upper left.
+     * @return the image.
+     */
+    private static BufferedImage gradient(int width, int height,
+            boolean inverted) {
+        final BufferedImage image =
+                new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int gray =
+                        255 * (x * height + y * width) / (2 * width * height);
+                if (inverted) {
+                    gray = 255 - gray;
+                }
+                image.setRGB(x, y, gray * 0x010101);
+            }
+        }
+        return image;
+    }
+}